@@ -0,0 +1,112 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的 BSSID 集合，BSSID 以 {@link WifiSupport#bssidToLong(String)} 的形式存储。
+ * <ul>
+ *     <li>前面是一个布隆过滤器，每个 BSSID 约 16 个比特，绝大多数不在集合中的 BSSID 只需要检查 3 个比特</li>
+ *     <li>布隆过滤器命中后再查开放寻址的 long 哈希表，得到精确的结果</li>
+ * </ul>
+ * 查询不产生任何对象，可以在多个线程中同时调用。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class BssidSet {
+
+    /** 哈希表中的空位，有效的 BSSID 只有 48 位，不会与之相同 */
+    private static final long EMPTY = WifiSupport.INVALID_BSSID;
+
+    @NonNull
+    private final long[] mBloom;
+    private final int mBloomMask;
+    @NonNull
+    private final long[] mTable;
+    private final int mTableMask;
+    private final int mSize;
+
+    /**
+     * @param BSSIDs 可以包含重复的 BSSID，{@link WifiSupport#INVALID_BSSID} 会被忽略
+     */
+    BssidSet(@NonNull final long[] BSSIDs, final int count) {
+        final int bloomBits = tableSizeFor(Math.max(64, count * 16));
+        mBloom = new long[bloomBits >>> 6];
+        mBloomMask = bloomBits - 1;
+        final int tableSize = tableSizeFor(Math.max(4, count * 2));
+        mTable = new long[tableSize];
+        mTableMask = tableSize - 1;
+        Arrays.fill(mTable, EMPTY);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final long BSSID = BSSIDs[i];
+            if (BSSID != EMPTY && insert(BSSID)) {
+                size++;
+            }
+        }
+        mSize = size;
+    }
+
+    private boolean insert(final long BSSID) {
+        final long hash = mix(BSSID);
+        int slot = (int) hash & mTableMask;
+        while (mTable[slot] != EMPTY) {
+            if (mTable[slot] == BSSID) {
+                return false;
+            }
+            slot = (slot + 1) & mTableMask;
+        }
+        mTable[slot] = BSSID;
+        // 双重哈希：用 64 位哈希的高低两半生成 3 个比特位置
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < 3; i++) {
+            final int bit = (h1 + i * h2) & mBloomMask;
+            mBloom[bit >>> 6] |= 1L << bit;
+        }
+        return true;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean contains(final long BSSID) {
+        if (mSize == 0 || BSSID == EMPTY) {
+            return false;
+        }
+        final long hash = mix(BSSID);
+        final int h1 = (int) hash;
+        final int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < 3; i++) {
+            final int bit = (h1 + i * h2) & mBloomMask;
+            if ((mBloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        int slot = (int) hash & mTableMask;
+        long value;
+        while ((value = mTable[slot]) != EMPTY) {
+            if (value == BSSID) {
+                return true;
+            }
+            slot = (slot + 1) & mTableMask;
+        }
+        return false;
+    }
+
+    /**
+     * 64 位整数的混淆函数（SplitMix64 的最后一步），BSSID 的前 3 个字节往往相同，需要打散
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static int tableSizeFor(final int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
@@ -0,0 +1,152 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.jossing.wifihelper.annotation.ConnectFailureReason;
+import org.jossing.wifihelper.enumerate.ConnectFailure;
+
+import java.util.Random;
+
+/**
+ * 连接失败后的重试策略：指数退避加随机抖动，只对指定的失败原因重试。<br/>
+ * 第 n 次重试前等待 min(initialBackoff × multiplier^(n-1), maxBackoff)，再按 jitter 随机缩短，
+ * 多个设备或多次失败不会在同一时刻一起重连；某个 SSID 最近的成功率越低，等待越长，最多加倍。<br/>
+ * 默认不对 {@link ConnectFailure#AUTH} 重试，密码错误时反复重连只会让 AP 更不愿意接受。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#setConnectRetryPolicy(ConnectRetryPolicy)
+ */
+public final class ConnectRetryPolicy {
+
+    /** 统计次数不少于这个数时，才按成功率调整等待时间 */
+    private static final int MIN_SAMPLES = 4;
+
+    private final int mMaxAttempts;
+    private final long mInitialBackoffMillis;
+    private final long mMaxBackoffMillis;
+    private final double mMultiplier;
+    private final double mJitter;
+    /** 按失败原因的位掩码 */
+    private final int mRetryOn;
+
+    private ConnectRetryPolicy(@NonNull final Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mInitialBackoffMillis = builder.mInitialBackoffMillis;
+        mMaxBackoffMillis = Math.max(builder.mMaxBackoffMillis, builder.mInitialBackoffMillis);
+        mMultiplier = builder.mMultiplier;
+        mJitter = builder.mJitter;
+        mRetryOn = builder.mRetryOn;
+    }
+
+    /**
+     * @param attempt 已经进行的尝试次数，从 1 开始
+     */
+    boolean shouldRetry(@ConnectFailureReason final int reason, final int attempt) {
+        return attempt < mMaxAttempts && (mRetryOn & (1 << reason)) != 0;
+    }
+
+    /**
+     * @param attempt 已经进行的尝试次数，从 1 开始
+     * @param stats   这个 SSID 最近的连接统计
+     */
+    long getBackoffMillis(final int attempt, @Nullable final ConnectStats stats, @NonNull final Random random) {
+        double backoff = mInitialBackoffMillis;
+        for (int i = 1; i < attempt && backoff < mMaxBackoffMillis; i++) {
+            backoff *= mMultiplier;
+        }
+        if (stats != null && stats.getAttemptCount() >= MIN_SAMPLES) {
+            // 成功率为 0 时加倍
+            backoff *= 2 - stats.getSuccessRate();
+        }
+        backoff = Math.min(backoff, mMaxBackoffMillis);
+        return (long) (backoff * (1 - mJitter * random.nextDouble()));
+    }
+
+    public static final class Builder {
+        private int mMaxAttempts = 3;
+        private long mInitialBackoffMillis = 2000;
+        private long mMaxBackoffMillis = 30 * 1000;
+        private double mMultiplier = 2;
+        private double mJitter = 0.5;
+        private int mRetryOn = (1 << ConnectFailure.TIMEOUT) | (1 << ConnectFailure.DHCP) | (1 << ConnectFailure.ASSOCIATION);
+
+        /**
+         * 最多尝试几次，包括第一次，默认 3
+         */
+        public Builder maxAttempts(final int attempts) {
+            if (attempts <= 0) {
+                throw new IllegalArgumentException("must be positive: " + attempts);
+            }
+            mMaxAttempts = attempts;
+            return this;
+        }
+
+        /**
+         * 第一次重试前的等待时间，默认 2 秒
+         */
+        public Builder initialBackoff(final long millis) {
+            mInitialBackoffMillis = checkNotNegative(millis);
+            return this;
+        }
+
+        /**
+         * 等待时间的上限，默认 30 秒
+         */
+        public Builder maxBackoff(final long millis) {
+            mMaxBackoffMillis = checkNotNegative(millis);
+            return this;
+        }
+
+        /**
+         * 每次重试等待时间的倍数，不小于 1，默认 2
+         */
+        public Builder multiplier(final double multiplier) {
+            if (!(multiplier >= 1)) {
+                throw new IllegalArgumentException("multiplier: " + multiplier);
+            }
+            mMultiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * 随机缩短等待时间的最大比例，0 到 1 之间，默认 0.5
+         */
+        public Builder jitter(final double jitter) {
+            if (!(jitter >= 0 && jitter <= 1)) {
+                throw new IllegalArgumentException("jitter: " + jitter);
+            }
+            mJitter = jitter;
+            return this;
+        }
+
+        /**
+         * 对哪些失败原因重试，替换默认的 {@link ConnectFailure#TIMEOUT}、{@link ConnectFailure#DHCP}、
+         * {@link ConnectFailure#ASSOCIATION}
+         */
+        public Builder retryOn(@ConnectFailureReason final int... reasons) {
+            int retryOn = 0;
+            for (final int reason : reasons) {
+                if (reason < 0 || reason >= ConnectFailure.COUNT) {
+                    throw new IllegalArgumentException("reason: " + reason);
+                }
+                retryOn |= 1 << reason;
+            }
+            mRetryOn = retryOn;
+            return this;
+        }
+
+        @NonNull
+        public ConnectRetryPolicy build() {
+            return new ConnectRetryPolicy(this);
+        }
+
+        private static long checkNotNegative(final long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("must not be negative: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import org.jossing.wifihelper.annotation.ConnectFailureReason;
+import org.jossing.wifihelper.enumerate.ConnectFailure;
+
+import java.util.Arrays;
+
+/**
+ * 某个 SSID 最近的连接统计，不可变。<br/>
+ * 次数会随时间衰减（每累计一定次数后全部减半），反映的是最近的情况而不是全部历史。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#getConnectStats(String)
+ */
+public final class ConnectStats {
+
+    @NonNull
+    private final String mSSID;
+    private final int mAttemptCount;
+    private final int mSuccessCount;
+    @NonNull
+    private final int[] mFailureCounts;
+
+    ConnectStats(@NonNull final String SSID, final int attemptCount, final int successCount,
+                 @NonNull final int[] failureCounts) {
+        mSSID = SSID;
+        mAttemptCount = attemptCount;
+        mSuccessCount = successCount;
+        mFailureCounts = failureCounts;
+    }
+
+    @NonNull
+    public String getSSID() {
+        return mSSID;
+    }
+
+    /**
+     * 尝试次数，包括重试
+     */
+    public int getAttemptCount() {
+        return mAttemptCount;
+    }
+
+    public int getSuccessCount() {
+        return mSuccessCount;
+    }
+
+    /**
+     * 因为指定原因失败的次数
+     */
+    public int getFailureCount(@ConnectFailureReason final int reason) {
+        return mFailureCounts[reason];
+    }
+
+    /**
+     * 成功率，没有尝试过时为 1
+     */
+    public float getSuccessRate() {
+        return mAttemptCount == 0 ? 1f : (float) mSuccessCount / mAttemptCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ConnectStats{SSID=" + mSSID + ", attempts=" + mAttemptCount + ", successes=" + mSuccessCount
+                + ", failures(auth, timeout, dhcp, association, rejected)=" + Arrays.toString(mFailureCounts) + "}";
+    }
+
+    static int[] emptyFailureCounts() {
+        return new int[ConnectFailure.COUNT];
+    }
+}
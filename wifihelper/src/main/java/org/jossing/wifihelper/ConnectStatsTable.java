@@ -0,0 +1,121 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.jossing.wifihelper.annotation.ConnectFailureReason;
+import org.jossing.wifihelper.enumerate.ConnectFailure;
+
+/**
+ * 按 SSID 记录连接结果，占用固定的内存：
+ * <ul>
+ *     <li>最多记录 {@link #CAPACITY} 个 SSID，所有计数放在创建时分配好的 int 数组中，记录时不分配内存</li>
+ *     <li>表满时替换最久没有连接过的 SSID</li>
+ *     <li>某个 SSID 的尝试次数达到 {@link #DECAY_THRESHOLD} 时，它的所有计数减半，统计偏向最近的结果</li>
+ * </ul>
+ * 由事件循环线程写入，任何线程都可以读取。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class ConnectStatsTable {
+
+    static final int CAPACITY = 32;
+    static final int DECAY_THRESHOLD = 64;
+
+    /** 每个 SSID 一行：尝试次数、成功次数、各原因的失败次数 */
+    private static final int COLUMN_ATTEMPTS = 0;
+    private static final int COLUMN_SUCCESSES = 1;
+    private static final int COLUMN_FAILURES = 2;
+    private static final int COLUMNS = COLUMN_FAILURES + ConnectFailure.COUNT;
+
+    private final String[] mSSIDs = new String[CAPACITY];
+    private final int[] mCounts = new int[CAPACITY * COLUMNS];
+    /** 每一行最近一次记录的序号，用于替换最久没用的行 */
+    private final long[] mLastUsed = new long[CAPACITY];
+    private long mSequence = 0;
+
+    synchronized void recordSuccess(@NonNull final String SSID) {
+        final int row = rowOf(SSID) * COLUMNS;
+        mCounts[row + COLUMN_ATTEMPTS]++;
+        mCounts[row + COLUMN_SUCCESSES]++;
+        decay(row);
+    }
+
+    synchronized void recordFailure(@NonNull final String SSID, @ConnectFailureReason final int reason) {
+        final int row = rowOf(SSID) * COLUMNS;
+        mCounts[row + COLUMN_ATTEMPTS]++;
+        mCounts[row + COLUMN_FAILURES + reason]++;
+        decay(row);
+    }
+
+    /**
+     * @return 没有记录时为 null
+     */
+    @Nullable
+    synchronized ConnectStats get(@NonNull final String SSID) {
+        final int index = indexOf(SSID);
+        if (index < 0) {
+            return null;
+        }
+        final int row = index * COLUMNS;
+        final int[] failureCounts = ConnectStats.emptyFailureCounts();
+        System.arraycopy(mCounts, row + COLUMN_FAILURES, failureCounts, 0, ConnectFailure.COUNT);
+        return new ConnectStats(SSID, mCounts[row + COLUMN_ATTEMPTS], mCounts[row + COLUMN_SUCCESSES], failureCounts);
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            mSSIDs[i] = null;
+            mLastUsed[i] = 0;
+        }
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+        }
+    }
+
+    private int indexOf(@NonNull final String SSID) {
+        for (int i = 0; i < CAPACITY; i++) {
+            if (TextUtils.equals(mSSIDs[i], SSID)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 找到 SSID 所在的行，没有时占用空行或最久没用的行
+     */
+    private int rowOf(@NonNull final String SSID) {
+        int index = indexOf(SSID);
+        if (index < 0) {
+            index = 0;
+            for (int i = 0; i < CAPACITY; i++) {
+                if (mSSIDs[i] == null) {
+                    index = i;
+                    break;
+                }
+                if (mLastUsed[i] < mLastUsed[index]) {
+                    index = i;
+                }
+            }
+            mSSIDs[index] = SSID;
+            final int row = index * COLUMNS;
+            for (int i = 0; i < COLUMNS; i++) {
+                mCounts[row + i] = 0;
+            }
+        }
+        mLastUsed[index] = ++mSequence;
+        return index;
+    }
+
+    private void decay(final int row) {
+        if (mCounts[row + COLUMN_ATTEMPTS] < DECAY_THRESHOLD) {
+            return;
+        }
+        for (int i = 0; i < COLUMNS; i++) {
+            mCounts[row + i] >>= 1;
+        }
+    }
+}
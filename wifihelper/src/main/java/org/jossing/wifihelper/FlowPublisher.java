@@ -0,0 +1,279 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.jossing.wifihelper.annotation.OverflowStrategy;
+import org.jossing.wifihelper.enumerate.Conflation;
+import org.jossing.wifihelper.enumerate.Overflow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于 {@link WifiEventBus} 的 {@link WifiFlow.Publisher}。<br/>
+ * 每个订阅者在总线上挂一个同步执行的监听，事件到来时只放进订阅者自己的有界缓冲区，
+ * 再由订阅者的 Executor 按请求量排空，发布方永远不会被订阅者阻塞，缓冲区满时按 {@link Overflow} 策略处理。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class FlowPublisher<E, T> implements WifiFlow.Publisher<T> {
+    private static final String TAG = "FlowPublisher";
+
+    /** 在发布方线程中直接执行 */
+    private static final Executor DIRECT = Runnable::run;
+
+    @NonNull
+    private final WifiEventBus<E> mBus;
+    @NonNull
+    private final Executor mExecutor;
+    @OverflowStrategy
+    private final int mOverflow;
+    private final int mBufferSize;
+    @NonNull
+    private final Mapper<E, T> mMapper;
+    @Nullable
+    private final OnConnect<E> mOnConnect;
+
+    /**
+     * @param executor   发出信号的 Executor
+     * @param bufferSize {@link Overflow#DROP_OLDEST} 和 {@link Overflow#BUFFER} 时每个订阅者的缓冲区大小
+     * @param onConnect  订阅者接上总线后调用，可以补发当前的值
+     */
+    FlowPublisher(@NonNull final WifiEventBus<E> bus, @NonNull final Executor executor,
+                  @OverflowStrategy final int overflow, final int bufferSize,
+                  @NonNull final Mapper<E, T> mapper, @Nullable final OnConnect<E> onConnect) {
+        if (overflow != Overflow.LATEST && bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize: " + bufferSize);
+        }
+        mBus = bus;
+        mExecutor = executor;
+        mOverflow = overflow;
+        mBufferSize = overflow == Overflow.LATEST ? 1 : bufferSize;
+        mMapper = mapper;
+        mOnConnect = onConnect;
+    }
+
+    @Override
+    public void subscribe(@NonNull final WifiFlow.Subscriber<? super T> subscriber) {
+        final FlowSubscription<E, T> subscription = new FlowSubscription<>(this, subscriber);
+        final WifiEventBus.Subscriber<E> upstream = mBus.subscribe(DIRECT, Conflation.ALL,
+                subscription::onEvent, subscription::complete);
+        subscription.mUpstream = upstream;
+        // 第一次排空时发出 onSubscribe
+        subscription.schedule();
+        if (mOnConnect != null && !upstream.isCancelled()) {
+            mOnConnect.onConnect(upstream);
+        }
+    }
+
+    interface Mapper<E, T> {
+        @NonNull
+        T map(@NonNull final E event);
+    }
+
+    interface OnConnect<E> {
+        void onConnect(@NonNull final WifiEventBus.Subscriber<E> upstream);
+    }
+
+    private static final class FlowSubscription<E, T> implements WifiFlow.Subscription, Runnable {
+        @NonNull
+        private final FlowPublisher<E, T> mPublisher;
+        @NonNull
+        private final WifiFlow.Subscriber<? super T> mSubscriber;
+        /** {@link Overflow#DROP_OLDEST} 和 {@link Overflow#BUFFER} 的缓冲区 */
+        @Nullable
+        private final ArrayBlockingQueue<T> mQueue;
+        /** {@link Overflow#LATEST} 的缓冲区 */
+        private final AtomicReference<T> mLatest = new AtomicReference<>();
+        /** 还没满足的请求量 */
+        private final AtomicLong mRequested = new AtomicLong();
+        /** 还没处理的排空请求，从 0 变为 1 的那次负责提交排空任务 */
+        private final AtomicInteger mPending = new AtomicInteger();
+        @Nullable
+        volatile WifiEventBus.Subscriber<E> mUpstream;
+        private volatile boolean mCancelled = false;
+        /** 不再有新的事件；mError 为 null 时排空缓冲区后结束 */
+        private volatile boolean mDone = false;
+        @Nullable
+        private volatile Throwable mError;
+        /** 只在排空任务中访问 */
+        private boolean mSubscribed = false;
+
+        FlowSubscription(@NonNull final FlowPublisher<E, T> publisher,
+                         @NonNull final WifiFlow.Subscriber<? super T> subscriber) {
+            mPublisher = publisher;
+            mSubscriber = subscriber;
+            mQueue = publisher.mOverflow == Overflow.LATEST ? null : new ArrayBlockingQueue<>(publisher.mBufferSize);
+        }
+
+        /**
+         * 在发布方线程中调用，只入队，不回调订阅者
+         */
+        void onEvent(@NonNull final E event) {
+            if (mCancelled || mDone) {
+                return;
+            }
+            final T item = mPublisher.mMapper.map(event);
+            final ArrayBlockingQueue<T> queue = mQueue;
+            if (queue == null) {
+                mLatest.set(item);
+            } else if (mPublisher.mOverflow == Overflow.DROP_OLDEST) {
+                while (!queue.offer(item)) {
+                    queue.poll();
+                }
+            } else if (!queue.offer(item)) {
+                fail(new IllegalStateException("buffer overflow: " + mPublisher.mBufferSize));
+                return;
+            }
+            schedule();
+        }
+
+        /**
+         * 上游结束，排空缓冲区后发出 onComplete
+         */
+        void complete() {
+            mDone = true;
+            schedule();
+        }
+
+        private void fail(@NonNull final Throwable error) {
+            if (mDone) {
+                return;
+            }
+            mError = error;
+            mDone = true;
+            cancelUpstream();
+            schedule();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request: " + n));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = mRequested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!mRequested.compareAndSet(current, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            cancelUpstream();
+            clear();
+        }
+
+        private void cancelUpstream() {
+            final WifiEventBus.Subscriber<E> upstream = mUpstream;
+            if (upstream != null) {
+                upstream.cancel();
+            }
+        }
+
+        void schedule() {
+            if (mPending.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                mPublisher.mExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Executor 已经关闭，无法再发出任何信号
+                Log.w(TAG, "schedule -> Executor 拒绝执行，取消订阅", e);
+                cancel();
+            }
+        }
+
+        /**
+         * 排空任务，在订阅者的 Executor 中执行，同一时刻只有一个
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            for (;;) {
+                if (!mSubscribed) {
+                    mSubscribed = true;
+                    mSubscriber.onSubscribe(this);
+                }
+                final long requested = mRequested.get();
+                long emitted = 0;
+                while (emitted != requested) {
+                    final boolean done = mDone;
+                    final T item = poll();
+                    if (checkTerminated(done, item == null)) {
+                        return;
+                    }
+                    if (item == null) {
+                        break;
+                    }
+                    mSubscriber.onNext(item);
+                    emitted++;
+                }
+                if (emitted == requested && checkTerminated(mDone, isEmpty())) {
+                    return;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE) {
+                    mRequested.addAndGet(-emitted);
+                }
+                missed = mPending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true 已经结束，不再发出任何信号
+         */
+        private boolean checkTerminated(final boolean done, final boolean empty) {
+            if (mCancelled) {
+                clear();
+                return true;
+            }
+            if (!done) {
+                return false;
+            }
+            final Throwable error = mError;
+            if (error != null) {
+                // 错误立即发出，缓冲的事件丢弃
+                mCancelled = true;
+                clear();
+                mSubscriber.onError(error);
+                return true;
+            }
+            if (empty) {
+                mCancelled = true;
+                mSubscriber.onComplete();
+                return true;
+            }
+            return false;
+        }
+
+        @Nullable
+        private T poll() {
+            return mQueue == null ? mLatest.getAndSet(null) : mQueue.poll();
+        }
+
+        private boolean isEmpty() {
+            return mQueue == null ? mLatest.get() == null : mQueue.isEmpty();
+        }
+
+        private void clear() {
+            if (mQueue != null) {
+                mQueue.clear();
+            }
+            mLatest.set(null);
+        }
+    }
+}
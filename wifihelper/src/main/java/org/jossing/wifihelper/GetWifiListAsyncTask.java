@@ -3,66 +3,68 @@ package org.jossing.wifihelper;
 import android.content.Context;
 import android.net.NetworkInfo;
 import android.os.AsyncTask;
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
-
-import org.jossing.wifihelper.enumerate.WifiConnection;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 
 /**
- * 用于获取 Wi-Fi 列表的异步任务
+ * 用于获取 Wi-Fi 列表的异步任务，在串行的后台线程中执行 {@link WifiPipeline}，
+ * 在 publishHandler 所在的线程（{@link WifiEngine} 的事件循环线程）中发布结果
  *
  * @author jossing
  * @date 2019/1/2
  */
-final class GetWifiListAsyncTask extends AsyncTask<Object, Void, List<Wifi>> {
+final class GetWifiListAsyncTask implements Runnable {
 
-    private final WifiListCallback mWifiListCallback;
+    @NonNull
+    private final WifiPipeline mPipeline;
+    @NonNull
+    private final ScanBatch mBatch;
+    @NonNull
+    private final Handler mPublishHandler;
 
-    private GetWifiListAsyncTask(@NonNull final WifiListCallback callback) {
-        mWifiListCallback = callback;
+    private GetWifiListAsyncTask(@NonNull final WifiPipeline pipeline, @NonNull final ScanBatch batch,
+                                 @NonNull final Handler publishHandler) {
+        mPipeline = pipeline;
+        mBatch = batch;
+        mPublishHandler = publishHandler;
     }
 
     @Override
-    protected List<Wifi> doInBackground(Object... objects) {
-        if (objects[0] == null) {
-            return new ArrayList<>();
-        }
-        final Context appContext = ((Context) objects[0]).getApplicationContext();
-        final NetworkInfo networkInfo = (NetworkInfo) objects[1];
-        // 获取 Wi-Fi 列表
-        final List<Wifi> wifiList = WifiSupport.getWifiList(appContext);
-        // 更新 Wi-Fi 列表中，当前 Wi-Fi 的连接状态
-        if (networkInfo != null) {
-            Wifi currentWifi = null;
-            for (final Wifi wifi : wifiList) {
-                if (wifi.isCurrent()) {
-                    currentWifi = wifi;
-                    break;
-                }
-            }
-            final String changedFromSSID = WifiSupport.getRealSSID(networkInfo.getExtraInfo());
-            if (currentWifi != null && TextUtils.equals(currentWifi.SSID, changedFromSSID)) {
-                currentWifi.setConnectionState(WifiConnection.from(networkInfo));
-            }
+    public void run() {
+        try {
+            mPipeline.process(mBatch);
+        } finally {
+            // 自定义环节的异常已在流水线中拦截；无论如何都要发布，让本次刷新有个结果
+            mPublishHandler.post(() -> mPipeline.publish(mBatch));
         }
-        return wifiList;
-    }
-
-    @Override
-    protected void onPostExecute(List<Wifi> wifiList) {
-        mWifiListCallback.invoke(wifiList != null ? wifiList : new ArrayList<>());
     }
 
+    /**
+     * @param publishHandler 在其线程中发布结果
+     * @param sortLimit   只需要排好前 sortLimit 个 Wi-Fi
+     * @param aging       不为 null 时，先淘汰过期的扫描结果
+     * @param clock       淘汰过期扫描结果时的时钟
+     * @param ouiRegistry 不为 null 时，为每个 Wi-Fi 填充厂商名
+     * @param scanRules   不为 null 时，先丢弃被屏蔽的扫描结果
+     * @see WifiPipeline
+     */
     static void execute(@NonNull final Context context,
                         @Nullable final NetworkInfo networkInfo,
+                        @NonNull final Handler publishHandler,
+                        @NonNull final WifiPipeline pipeline,
+                        final int sortLimit,
+                        @Nullable final ScanResultAging aging,
+                        @NonNull final WifiClock clock,
+                        @Nullable final OuiRegistry ouiRegistry,
+                        @Nullable final ScanRules scanRules,
                         @NonNull final WifiListCallback callback) {
-        new GetWifiListAsyncTask(callback).executeOnExecutor(sDefaultExecutor, context, networkInfo);
+        final ScanBatch batch = new ScanBatch(context, networkInfo, sortLimit, aging, clock, ouiRegistry, scanRules, callback);
+        sDefaultExecutor.execute(new GetWifiListAsyncTask(pipeline, batch, publishHandler));
     }
 
     private static final Executor SERIAL_EXECUTOR = new SerialExecutor();
@@ -89,12 +91,15 @@ final class GetWifiListAsyncTask extends AsyncTask<Object, Void, List<Wifi>> {
 
         private synchronized void scheduleNext() {
             if ((mActive = mTasks.poll()) != null) {
-                THREAD_POOL_EXECUTOR.execute(mActive);
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(mActive);
             }
         }
     }
 
     interface WifiListCallback {
-        void invoke(@NonNull final List<Wifi> wifiList);
+        /**
+         * @param hiddenWifiList 隐藏网络，每个 BSSID 一个
+         */
+        void invoke(@NonNull final List<Wifi> wifiList, @NonNull final List<Wifi> hiddenWifiList);
     }
 }
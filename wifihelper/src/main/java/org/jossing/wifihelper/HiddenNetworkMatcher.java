@@ -0,0 +1,79 @@
+package org.jossing.wifihelper;
+
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 为隐藏网络（扫描结果中 SSID 为空的 AP）查找对应的已保存配置。<br/>
+ * 隐藏网络的扫描结果中没有 SSID，无法按名字匹配，只能：
+ * <ul>
+ *     <li>按配置中指定的 BSSID 匹配（{@link WifiConfiguration#hiddenSSID} 且设置了 BSSID 的配置）</li>
+ *     <li>当前已连接到该 BSSID 时，按 {@link WifiInfo#getNetworkId()} 匹配</li>
+ * </ul>
+ * 两者都预先建立索引，匹配时不需要遍历配置列表。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class HiddenNetworkMatcher {
+
+    /** 隐藏网络配置，以 BSSID 为 key */
+    private final Map<Long, WifiConfiguration> mHiddenConfigurations = new HashMap<>();
+    /** 所有配置，以 networkId 为 key */
+    private final SparseArray<WifiConfiguration> mConfigurations = new SparseArray<>();
+    @Nullable
+    private final WifiInfo mWifiInfo;
+    private final long mCurrentBSSID;
+
+    HiddenNetworkMatcher(@Nullable final List<WifiConfiguration> configuredNetworks, @Nullable final WifiInfo wifiInfo) {
+        if (configuredNetworks != null) {
+            for (final WifiConfiguration configuration : configuredNetworks) {
+                if (!WifiSupport.isConfigurationValid(configuration)) {
+                    continue;
+                }
+                mConfigurations.put(configuration.networkId, configuration);
+                if (configuration.hiddenSSID) {
+                    final long BSSID = WifiSupport.bssidToLong(configuration.BSSID);
+                    if (BSSID != WifiSupport.INVALID_BSSID) {
+                        mHiddenConfigurations.put(BSSID, configuration);
+                    }
+                }
+            }
+        }
+        mWifiInfo = wifiInfo;
+        mCurrentBSSID = wifiInfo == null ? WifiSupport.INVALID_BSSID : WifiSupport.bssidToLong(wifiInfo.getBSSID());
+    }
+
+    /**
+     * 返回该 BSSID 对应的已保存配置，没有时返回 null
+     */
+    @Nullable
+    WifiConfiguration matchConfiguration(final long BSSID) {
+        final WifiConfiguration configuration = mHiddenConfigurations.get(BSSID);
+        if (configuration != null) {
+            return configuration;
+        }
+        if (isCurrent(BSSID)) {
+            return mConfigurations.get(mWifiInfo.getNetworkId());
+        }
+        return null;
+    }
+
+    /**
+     * 当前已连接到该 BSSID 时返回连接信息，否则返回 null
+     */
+    @Nullable
+    WifiInfo matchWifiInfo(final long BSSID) {
+        return isCurrent(BSSID) ? mWifiInfo : null;
+    }
+
+    private boolean isCurrent(final long BSSID) {
+        return BSSID != WifiSupport.INVALID_BSSID && BSSID == mCurrentBSSID && mWifiInfo != null;
+    }
+}
@@ -0,0 +1,342 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 BSSID 的 OUI（前 3 个字节）查询厂商。<br/>
+ * IEEE 的 OUI 注册表（oui.txt 或 oui.csv，约 3.5 万条）先由 {@link #compile(InputStream, File)} 编译成二进制文件，
+ * 之后用 {@link #open(File)} 直接映射该文件，启动时不需要再解析文本：
+ * <pre>
+ * header:    magic, version, 条目数 n, 厂商名个数 m
+ * prefixes:  int[n]，升序排列的 OUI
+ * names:     int[n]，每个 OUI 对应的厂商名编号
+ * offsets:   int[m + 1]，每个厂商名在 strings 中的起始位置
+ * strings:   UTF-8 编码的厂商名，相同的名字只存一份
+ * </pre>
+ * 查询是在映射的 int 表上做二分查找，不产生任何对象；厂商名在第一次被查到时才解码，之后复用同一个字符串。
+ * <p>
+ * 编译和打开都涉及文件读写，不要在主线程调用。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#setOuiRegistry(OuiRegistry)
+ * @see Wifi#getVendor()
+ */
+public final class OuiRegistry implements WifiPipeline.WifiEnricher {
+
+    private static final int MAGIC = 0x574F5549;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @NonNull
+    private final IntBuffer mPrefixes;
+    @NonNull
+    private final IntBuffer mNameIds;
+    @NonNull
+    private final IntBuffer mNameOffsets;
+    @NonNull
+    private final ByteBuffer mStrings;
+    private final int mCount;
+    /** 已经解码过的厂商名 */
+    @NonNull
+    private final String[] mNames;
+
+    private OuiRegistry(@NonNull final File file, @NonNull final MappedByteBuffer buffer) throws IOException {
+        final int size = buffer.capacity();
+        if (size < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not an OUI registry file: " + file);
+        }
+        mCount = buffer.getInt(8);
+        final int nameCount = buffer.getInt(12);
+        final long stringsOffset = HEADER_BYTES + 4L * (2L * mCount + nameCount + 1);
+        if (mCount < 0 || nameCount < 0 || stringsOffset > size) {
+            throw new IOException("bad OUI registry header: " + file);
+        }
+        mPrefixes = slice(buffer, HEADER_BYTES, mCount).asIntBuffer();
+        mNameIds = slice(buffer, HEADER_BYTES + 4 * mCount, mCount).asIntBuffer();
+        mNameOffsets = slice(buffer, HEADER_BYTES + 8 * mCount, nameCount + 1).asIntBuffer();
+        final ByteBuffer strings = buffer.duplicate();
+        strings.position((int) stringsOffset);
+        mStrings = strings.slice();
+        if (mNameOffsets.get(nameCount) > mStrings.capacity()) {
+            throw new IOException("bad OUI registry strings: " + file);
+        }
+        mNames = new String[nameCount];
+    }
+
+    @NonNull
+    private static ByteBuffer slice(@NonNull final ByteBuffer buffer, final int offset, final int ints) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + 4 * ints);
+        return duplicate.slice();
+    }
+
+    /**
+     * 映射已经编译好的注册表文件
+     *
+     * @throws IOException 文件不存在或格式不正确
+     */
+    @NonNull
+    @WorkerThread
+    public static OuiRegistry open(@NonNull final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            return new OuiRegistry(file, buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * 解析 IEEE 的 OUI 注册表文本，编译成二进制文件后打开。<br/>
+     * 支持 oui.txt（"00-00-0C   (hex)		Cisco Systems, Inc"）和 oui.csv（"MA-L,00000C,Cisco Systems, Inc,..."）两种格式，
+     * 无法识别的行会被忽略，同一个 OUI 出现多次时只保留一条。先写入临时文件再重命名，编译中断不会留下损坏的文件。
+     *
+     * @param source 注册表文本，不负责关闭
+     * @param target 编译结果写入的文件，已存在时覆盖
+     */
+    @NonNull
+    @WorkerThread
+    public static OuiRegistry compile(@NonNull final InputStream source, @NonNull final File target) throws IOException {
+        final Map<String, Integer> nameIds = new HashMap<>();
+        final List<String> names = new ArrayList<>();
+        // 高 32 位是 OUI，低 32 位是厂商名编号，排序后即按 OUI 升序
+        long[] entries = new long[1024];
+        int count = 0;
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(source, UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final int prefix;
+            final String name;
+            if (line.startsWith("MA-L,")) {
+                prefix = parseHex(line, 5, 11, 0);
+                name = prefix < 0 ? null : parseCsvField(line, 12);
+            } else if (line.length() > 8 && line.indexOf("(hex)") > 0) {
+                prefix = parseHex(line, 0, 8, 2);
+                name = prefix < 0 ? null : line.substring(line.indexOf("(hex)") + 5).trim();
+            } else {
+                continue;
+            }
+            if (name == null || name.isEmpty()) {
+                continue;
+            }
+            Integer nameId = nameIds.get(name);
+            if (nameId == null) {
+                nameId = names.size();
+                nameIds.put(name, nameId);
+                names.add(name);
+            }
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+            }
+            entries[count++] = ((long) prefix << 32) | nameId;
+        }
+        Arrays.sort(entries, 0, count);
+        write(entries, count, names, target);
+        return open(target);
+    }
+
+    private static void write(@NonNull final long[] entries, final int count,
+                              @NonNull final List<String> names, @NonNull final File target) throws IOException {
+        final byte[][] encodedNames = new byte[names.size()][];
+        int stringBytes = 0;
+        for (int i = 0; i < encodedNames.length; i++) {
+            encodedNames[i] = names.get(i).getBytes(UTF_8);
+            stringBytes += encodedNames[i].length;
+        }
+        // 先去重，同一个 OUI 只保留第一条
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || (entries[i] >>> 32) != (entries[unique - 1] >>> 32)) {
+                entries[unique++] = entries[i];
+            }
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 4 * (2 * unique + names.size() + 1) + stringBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(unique).putInt(names.size());
+        for (int i = 0; i < unique; i++) {
+            buffer.putInt((int) (entries[i] >>> 32));
+        }
+        for (int i = 0; i < unique; i++) {
+            buffer.putInt((int) entries[i]);
+        }
+        int offset = 0;
+        for (final byte[] encodedName : encodedNames) {
+            buffer.putInt(offset);
+            offset += encodedName.length;
+        }
+        buffer.putInt(offset);
+        for (final byte[] encodedName : encodedNames) {
+            buffer.put(encodedName);
+        }
+        buffer.flip();
+
+        final File temp = new File(target.getPath() + ".tmp");
+        final RandomAccessFile file = new RandomAccessFile(temp, "rw");
+        try {
+            file.setLength(0);
+            final FileChannel channel = file.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } finally {
+            file.close();
+        }
+        if (!temp.renameTo(target)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("cannot rename " + temp + " to " + target);
+        }
+    }
+
+    /**
+     * 从 line 的 [from, to) 中读取 6 个十六进制数字，数字之间可以夹着 separators 个分隔符
+     *
+     * @return 格式不正确时返回 -1
+     */
+    private static int parseHex(@NonNull final String line, final int from, final int to, final int separators) {
+        if (line.length() < to) {
+            return -1;
+        }
+        int value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            final int digit = Character.digit(line.charAt(i), 16);
+            if (digit >= 0) {
+                value = (value << 4) | digit;
+                digits++;
+            }
+        }
+        return digits == 6 && digits + separators == to - from ? value : -1;
+    }
+
+    /**
+     * 读取 CSV 中从 from 开始的一个字段，支持双引号包裹和 "" 转义
+     */
+    @Nullable
+    private static String parseCsvField(@NonNull final String line, final int from) {
+        if (from >= line.length()) {
+            return null;
+        }
+        if (line.charAt(from) != '"') {
+            final int end = line.indexOf(',', from);
+            return (end < 0 ? line.substring(from) : line.substring(from, end)).trim();
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = from + 1; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '"') {
+                if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                    continue;
+                }
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * 注册表中的 OUI 个数
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * 查询 OUI 在注册表中的下标
+     *
+     * @param BSSID {@link WifiSupport#bssidToLong(String)} 的返回值
+     * @return 本地管理的地址（随机 MAC）、无效的 BSSID 或未注册的 OUI 返回 -1
+     */
+    public int indexOf(final long BSSID) {
+        // 第一个字节的次低位置位表示本地管理的地址，前 3 个字节不是厂商的 OUI
+        if (BSSID == WifiSupport.INVALID_BSSID || (BSSID & 0x020000000000L) != 0 || mCount == 0) {
+            return -1;
+        }
+        final int prefix = (int) (BSSID >>> 24);
+        // 每一轮只有一次比较，用条件表达式代替分支，循环次数固定为 log2(n)
+        int base = 0;
+        int length = mCount;
+        while (length > 1) {
+            final int half = length >>> 1;
+            base = mPrefixes.get(base + half) <= prefix ? base + half : base;
+            length -= half;
+        }
+        return mPrefixes.get(base) == prefix ? base : -1;
+    }
+
+    /**
+     * 查询厂商名
+     *
+     * @param BSSID {@link WifiSupport#bssidToLong(String)} 的返回值
+     * @return 查不到时返回 null
+     * @see #indexOf(long)
+     */
+    @Nullable
+    public String getVendor(final long BSSID) {
+        final int index = indexOf(BSSID);
+        return index < 0 ? null : getName(mNameIds.get(index));
+    }
+
+    /**
+     * 查询厂商名
+     *
+     * @param BSSID 形如 "00:11:22:33:44:55" 的 BSSID
+     * @return 查不到时返回 null
+     */
+    @Nullable
+    public String getVendor(@Nullable final String BSSID) {
+        return getVendor(WifiSupport.bssidToLong(BSSID));
+    }
+
+    @NonNull
+    private String getName(final int nameId) {
+        // 多个线程同时解码同一个名字时结果相同，不需要加锁
+        String name = mNames[nameId];
+        if (name == null) {
+            final int from = mNameOffsets.get(nameId);
+            final byte[] bytes = new byte[mNameOffsets.get(nameId + 1) - from];
+            final ByteBuffer strings = mStrings.duplicate();
+            strings.position(from);
+            strings.get(bytes);
+            // 不放进 WifiSupport 的驻留池，以免挤掉同一次扫描中的 SSID
+            name = new String(bytes, UTF_8);
+            mNames[nameId] = name;
+        }
+        return name;
+    }
+
+    /**
+     * 为 Wi-Fi 填充厂商名。查询不修改共享状态，可以在多个线程中同时调用。
+     */
+    @Override
+    public void enrich(@NonNull final Wifi wifi) {
+        wifi.setVendor(getVendor(wifi.getBSSID()));
+    }
+}
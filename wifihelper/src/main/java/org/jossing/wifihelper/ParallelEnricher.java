@@ -0,0 +1,92 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 把逐个 Wi-Fi 的补充信息（{@link WifiPipeline.WifiEnricher}）分摊到多个线程上执行。
+ * <ul>
+ *     <li>Wi-Fi 个数少于阈值时直接在当前线程中顺序执行，小规模的扫描不承担线程切换的开销</li>
+ *     <li>线程池是有界的，最多 {@link #MAX_PARALLELISM} 个线程，所有流水线共用</li>
+ *     <li>每个 Wi-Fi 只会被一个任务处理，列表的顺序不变，结果与并行度无关</li>
+ * </ul>
+ * {@link ForkJoinPool} 在 API 21 才加入，更低的系统总是顺序执行。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class ParallelEnricher {
+
+    /** 默认的并行阈值 */
+    static final int DEFAULT_THRESHOLD = 256;
+    private static final int MAX_PARALLELISM = 4;
+    /** 拆分后每个任务至少处理的 Wi-Fi 个数 */
+    private static final int MIN_LEAF_SIZE = 16;
+
+    private static final int PARALLELISM = Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors());
+
+    private ParallelEnricher() {}
+
+    /**
+     * @param threshold 少于这么多个 Wi-Fi 时顺序执行
+     */
+    static void enrich(@NonNull final List<Wifi> wifiList, @NonNull final WifiPipeline.WifiEnricher enricher,
+                       final int threshold) {
+        final int size = wifiList.size();
+        if (size < threshold || PARALLELISM < 2 || !WifiSupport.isOverApi21()) {
+            for (int i = 0; i < size; i++) {
+                enricher.enrich(wifiList.get(i));
+            }
+            return;
+        }
+        ForkJoin.enrich(wifiList, enricher);
+    }
+
+    /**
+     * 单独放在一个类中，低于 API 21 的系统不会加载到 {@link ForkJoinPool}
+     */
+    private static final class ForkJoin {
+        private static final ForkJoinPool sPool = new ForkJoinPool(PARALLELISM);
+
+        static void enrich(@NonNull final List<Wifi> wifiList, @NonNull final WifiPipeline.WifiEnricher enricher) {
+            // 每个线程大约分到 4 个任务，某个线程慢了也能由其它线程窃取
+            final int leafSize = Math.max(MIN_LEAF_SIZE, wifiList.size() / (PARALLELISM * 4));
+            sPool.invoke(new EnrichAction(wifiList, enricher, 0, wifiList.size(), leafSize));
+        }
+    }
+
+    private static final class EnrichAction extends RecursiveAction {
+        @NonNull
+        private final List<Wifi> mWifiList;
+        @NonNull
+        private final WifiPipeline.WifiEnricher mEnricher;
+        private final int mFrom;
+        private final int mTo;
+        private final int mLeafSize;
+
+        EnrichAction(@NonNull final List<Wifi> wifiList, @NonNull final WifiPipeline.WifiEnricher enricher,
+                     final int from, final int to, final int leafSize) {
+            mWifiList = wifiList;
+            mEnricher = enricher;
+            mFrom = from;
+            mTo = to;
+            mLeafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= mLeafSize) {
+                for (int i = mFrom; i < mTo; i++) {
+                    mEnricher.enrich(mWifiList.get(i));
+                }
+                return;
+            }
+            final int middle = (mFrom + mTo) >>> 1;
+            invokeAll(new EnrichAction(mWifiList, mEnricher, mFrom, middle, mLeafSize),
+                    new EnrichAction(mWifiList, mEnricher, middle, mTo, mLeafSize));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link WifiHelper} 发布给所有线程读取的 Wi-Fi 列表，发布后不再修改。<br/>
+ * 后台线程只排好了前一部分 Wi-Fi；读取时如果需要更多有序的 Wi-Fi，会复制一份排序后替换掉旧的有序副本，
+ * 原列表始终不变。多个线程同时排序时结果相同，谁的副本留下来都可以，不需要加锁。<br/>
+ * 发布时已经全部有序的列表（例如 rank 阶段是自定义的排序）不会再排序，读到的就是 rank 阶段产生的顺序。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class PublishedWifiList {
+
+    static final PublishedWifiList EMPTY = new PublishedWifiList(
+            new ArrayList<>(), 0, new ArrayList<>(), 0, false);
+
+    /** 发布时的 Wi-Fi 列表 */
+    @NonNull
+    private final List<Wifi> mWifiList;
+    @NonNull
+    private final List<Wifi> mHiddenWifiList;
+    /** {@link System#currentTimeMillis()} */
+    final long timestamp;
+    /** 是否是从快照文件中还原的旧结果 */
+    final boolean cached;
+
+    /** 发布时已经全部有序 */
+    private final boolean mFullyOrdered;
+
+    /** 目前有序程度最高的副本 */
+    @NonNull
+    private volatile Ordered mOrdered;
+
+    /**
+     * @param wifiList     调用方之后不能再修改
+     * @param orderedCount wifiList 中前多少个 Wi-Fi 已经排好序，不小于 wifiList 的大小时，
+     *                     wifiList 的顺序就是最终顺序
+     */
+    PublishedWifiList(@NonNull final List<Wifi> wifiList, final int orderedCount,
+                      @NonNull final List<Wifi> hiddenWifiList, final long timestamp, final boolean cached) {
+        mWifiList = wifiList;
+        mHiddenWifiList = Collections.unmodifiableList(hiddenWifiList);
+        this.timestamp = timestamp;
+        this.cached = cached;
+        mFullyOrdered = orderedCount >= wifiList.size();
+        mOrdered = new Ordered(wifiList, Math.min(orderedCount, wifiList.size()));
+    }
+
+    int size() {
+        return mWifiList.size();
+    }
+
+    boolean isEmpty() {
+        return mWifiList.isEmpty();
+    }
+
+    /**
+     * 发布时的顺序，只有前一部分是排好序的
+     */
+    @NonNull
+    List<Wifi> unordered() {
+        return Collections.unmodifiableList(mWifiList);
+    }
+
+    @NonNull
+    List<Wifi> hidden() {
+        return mHiddenWifiList;
+    }
+
+    /**
+     * 全部排好序的列表，不可修改
+     */
+    @NonNull
+    List<Wifi> sorted() {
+        return Collections.unmodifiableList(ordered(Integer.MAX_VALUE).mList);
+    }
+
+    /**
+     * 复制排序后从 offset 开始的最多 limit 个 Wi-Fi，只会对前 offset + limit 个 Wi-Fi 排序
+     */
+    @NonNull
+    List<Wifi> window(final int offset, final int limit) {
+        final int size = mWifiList.size();
+        final int from = Math.min(offset, size);
+        final int to = (int) Math.min(size, (long) offset + limit);
+        return new ArrayList<>(ordered(to).mList.subList(from, to));
+    }
+
+    /**
+     * 按排序顺序返回满足条件的前 limit 个 Wi-Fi。<br/>
+     * 已经全部有序时按顺序挑选，取够 limit 个就停下；否则只对满足条件的 Wi-Fi 排序。
+     */
+    @NonNull
+    List<Wifi> filter(@NonNull final WifiHelper.WifiPredicate predicate, final int limit) {
+        final Ordered ordered = mOrdered;
+        final List<Wifi> matched = new ArrayList<>();
+        if (ordered.mCount >= mWifiList.size()) {
+            for (final Wifi wifi : ordered.mList) {
+                if (matched.size() >= limit) {
+                    break;
+                }
+                if (predicate.test(wifi)) {
+                    matched.add(wifi);
+                }
+            }
+            return matched;
+        }
+        for (final Wifi wifi : mWifiList) {
+            if (predicate.test(wifi)) {
+                matched.add(wifi);
+            }
+        }
+        WifiSorter.sortTopK(matched, limit);
+        return limit < matched.size() ? new ArrayList<>(matched.subList(0, limit)) : matched;
+    }
+
+    /**
+     * 发布时 {@link #unordered()} 是否已经是最终顺序
+     */
+    boolean isFullyOrdered() {
+        return mFullyOrdered;
+    }
+
+    @NonNull
+    private Ordered ordered(final int count) {
+        final Ordered ordered = mOrdered;
+        final int target = Math.min(count, mWifiList.size());
+        if (ordered.mCount >= target) {
+            return ordered;
+        }
+        final List<Wifi> copy = new ArrayList<>(ordered.mList);
+        WifiSorter.sortTopK(copy, target);
+        final Ordered sorted = new Ordered(copy, target);
+        mOrdered = sorted;
+        return sorted;
+    }
+
+    private static final class Ordered {
+        @NonNull
+        final List<Wifi> mList;
+        /** 前多少个已经排好序 */
+        final int mCount;
+
+        Ordered(@NonNull final List<Wifi> list, final int count) {
+            mList = list;
+            mCount = count;
+        }
+    }
+}
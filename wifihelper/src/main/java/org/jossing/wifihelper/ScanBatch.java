@@ -0,0 +1,168 @@
+package org.jossing.wifihelper;
+
+import android.content.Context;
+import android.net.NetworkInfo;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次扫描结果在 {@link WifiPipeline} 中流转的数据。各环节直接读写其中的列表：
+ * <ul>
+ *     <li>source 阶段填充 {@link #getScanResults()}、{@link #getConfiguredNetworks()} 和 {@link #getWifiInfo()}</li>
+ *     <li>filter 阶段从 {@link #getScanResults()} 中移除不需要的扫描结果</li>
+ *     <li>merge 阶段把扫描结果合并到 {@link #getWifiList()} 和 {@link #getHiddenWifiList()}</li>
+ *     <li>enrich、rank 阶段修改 Wi-Fi 或调整列表的顺序</li>
+ * </ul>
+ * 除 publish 阶段外，所有环节都在同一个后台线程中依次执行，不需要加锁；
+ * 只有 {@link WifiPipeline.WifiEnricher} 可能在多个线程中并行处理不同的 Wi-Fi。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanBatch {
+
+    @Nullable
+    private final Context mContext;
+    @Nullable
+    private final NetworkInfo mNetworkInfo;
+    private final int mSortLimit;
+    @Nullable
+    final ScanResultAging mAging;
+    /** 淘汰过期扫描结果时的当前时间 */
+    @NonNull
+    final WifiClock mClock;
+    @Nullable
+    final OuiRegistry mOuiRegistry;
+    @Nullable
+    final ScanRules mScanRules;
+    @NonNull
+    private final GetWifiListAsyncTask.WifiListCallback mCallback;
+    /** 由 {@link WifiPipeline} 在执行前设置 */
+    int mParallelThreshold = ParallelEnricher.DEFAULT_THRESHOLD;
+
+    @NonNull
+    private List<ScanResult> mScanResults = new ArrayList<>();
+    @Nullable
+    private List<WifiConfiguration> mConfiguredNetworks;
+    @Nullable
+    private WifiInfo mWifiInfo;
+    @NonNull
+    private final List<Wifi> mWifiList = new ArrayList<>();
+    @NonNull
+    private final List<Wifi> mHiddenWifiList = new ArrayList<>();
+
+    /**
+     * @param networkInfo 触发本次刷新的网络状态变化，用于更新当前 Wi-Fi 的连接状态
+     * @param sortLimit   只需要排好前 sortLimit 个 Wi-Fi
+     * @param aging       不为 null 时，先淘汰过期的扫描结果
+     * @param clock       淘汰过期扫描结果时的时钟
+     * @param ouiRegistry 不为 null 时，为每个 Wi-Fi 填充厂商名
+     * @param scanRules   不为 null 时，先丢弃被屏蔽的扫描结果
+     */
+    ScanBatch(@Nullable final Context context, @Nullable final NetworkInfo networkInfo, final int sortLimit,
+              @Nullable final ScanResultAging aging, @NonNull final WifiClock clock,
+              @Nullable final OuiRegistry ouiRegistry,
+              @Nullable final ScanRules scanRules, @NonNull final GetWifiListAsyncTask.WifiListCallback callback) {
+        mContext = context == null ? null : context.getApplicationContext();
+        mNetworkInfo = networkInfo;
+        mSortLimit = sortLimit;
+        mAging = aging;
+        mClock = clock;
+        mOuiRegistry = ouiRegistry;
+        mScanRules = scanRules;
+        mCallback = callback;
+    }
+
+    /**
+     * @return Application Context，为 null 时 source 阶段不会获取任何扫描结果
+     */
+    @Nullable
+    public Context getContext() {
+        return mContext;
+    }
+
+    /**
+     * 触发本次刷新的网络状态变化，主动刷新时为 null
+     */
+    @Nullable
+    public NetworkInfo getNetworkInfo() {
+        return mNetworkInfo;
+    }
+
+    /**
+     * 需要排好序的 Wi-Fi 个数，rank 阶段只需要保证前这么多个 Wi-Fi 是有序的。<br/>
+     * rank 阶段不是内置的排序时总是 {@link Integer#MAX_VALUE}，rank 阶段排出的顺序会原样发布
+     *
+     * @see WifiSorter#sortTopK(List, int)
+     */
+    public int getSortLimit() {
+        return mSortLimit;
+    }
+
+    /**
+     * 原始的扫描结果，可以直接修改
+     */
+    @NonNull
+    public List<ScanResult> getScanResults() {
+        return mScanResults;
+    }
+
+    public void setScanResults(@NonNull final List<ScanResult> scanResults) {
+        mScanResults = scanResults;
+    }
+
+    /**
+     * @see android.net.wifi.WifiManager#getConfiguredNetworks()
+     */
+    @Nullable
+    public List<WifiConfiguration> getConfiguredNetworks() {
+        return mConfiguredNetworks;
+    }
+
+    public void setConfiguredNetworks(@Nullable final List<WifiConfiguration> configuredNetworks) {
+        mConfiguredNetworks = configuredNetworks;
+    }
+
+    /**
+     * @see android.net.wifi.WifiManager#getConnectionInfo()
+     */
+    @Nullable
+    public WifiInfo getWifiInfo() {
+        return mWifiInfo;
+    }
+
+    public void setWifiInfo(@Nullable final WifiInfo wifiInfo) {
+        mWifiInfo = wifiInfo;
+    }
+
+    /**
+     * 合并后的 Wi-Fi 列表，可以直接修改
+     */
+    @NonNull
+    public List<Wifi> getWifiList() {
+        return mWifiList;
+    }
+
+    /**
+     * 合并后的隐藏网络，每个 BSSID 一个，可以直接修改
+     *
+     * @see Wifi#isHidden()
+     */
+    @NonNull
+    public List<Wifi> getHiddenWifiList() {
+        return mHiddenWifiList;
+    }
+
+    /**
+     * 把结果交给 Wi-Fi 引擎，由内置的 publish 环节在引擎的事件循环线程中调用
+     */
+    void deliver() {
+        mCallback.invoke(mWifiList, mHiddenWifiList);
+    }
+}
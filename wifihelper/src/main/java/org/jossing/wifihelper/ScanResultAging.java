@@ -0,0 +1,278 @@
+package org.jossing.wifihelper;
+
+import android.net.wifi.ScanResult;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 {@link ScanResult#timestamp} 淘汰过期的扫描结果。<br/>
+ * {@link android.net.wifi.WifiManager#getScanResults()} 返回的结果中经常包含几分钟前缓存的 AP，
+ * 已经离开的网络依然会以旧的信号强度出现在列表中。
+ * <ul>
+ *     <li>每个 AP 的过期时间 = 最后一次被扫描到的时间 + 所在频段的最大存活时间</li>
+ *     <li>过期由时间轮驱动：每个 AP 按过期时间挂在时间轮的某一格上，每走一格只处理这一格上的 AP，
+ *         刷新和淘汰单个 AP 都是 O(1) 的</li>
+ *     <li>可选地合并最近 N 次扫描的结果，某次扫描偶尔漏掉的 AP 不会在列表中闪烁</li>
+ * </ul>
+ * 低于 API 17 的系统没有 {@link ScanResult#timestamp}，此时以本次扫描的时间代替，只有合并多次扫描结果的功能有效。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#setScanResultAging(ScanResultAging)
+ */
+public final class ScanResultAging {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long mMaxAge24GHzMicros;
+    private final long mMaxAge5GHzMicros;
+    private final long mMaxAgeOtherMicros;
+    private final int mUnionScans;
+    private final long mTickMicros;
+
+    /** 以 BSSID 为 key 的存活 AP */
+    private final Map<Long, Entry> mEntries = new HashMap<>();
+    /** 时间轮，每一格是一个双向链表的表头 */
+    private final Entry[] mWheel = new Entry[WHEEL_SIZE];
+    /** 时间轮已经处理到的格子（绝对值） */
+    private long mCurrentTick = Long.MIN_VALUE;
+    /** 第几次扫描 */
+    private int mGeneration = 0;
+    private long mExpiredCount = 0;
+
+    private ScanResultAging(@NonNull final Builder builder) {
+        mMaxAge24GHzMicros = builder.mMaxAge24GHzMillis * 1000;
+        mMaxAge5GHzMicros = builder.mMaxAge5GHzMillis * 1000;
+        mMaxAgeOtherMicros = Math.max(mMaxAge24GHzMicros, mMaxAge5GHzMicros);
+        mUnionScans = builder.mUnionScans;
+        mTickMicros = builder.mTickMillis * 1000;
+    }
+
+    /**
+     * 对一次扫描的结果做淘汰，返回仍然有效的扫描结果（包括最近 N 次扫描中仍未过期的 AP）
+     */
+    @NonNull
+    @WorkerThread
+    public List<ScanResult> apply(@NonNull final List<ScanResult> scanResults) {
+        return apply(scanResults, SystemClock.elapsedRealtime() * 1000);
+    }
+
+    /**
+     * @param nowMicros 当前时间，与 {@link ScanResult#timestamp} 同一时基（开机以来的微秒数）
+     */
+    @NonNull
+    synchronized List<ScanResult> apply(@NonNull final List<ScanResult> scanResults, final long nowMicros) {
+        final boolean hasTimestamp = WifiSupport.isOverApi17();
+        if (mCurrentTick == Long.MIN_VALUE) {
+            mCurrentTick = nowMicros / mTickMicros;
+        }
+        mGeneration++;
+        // 隐藏网络（SSID 为空）同样按 BSSID 淘汰
+        for (final ScanResult scanResult : scanResults) {
+            final long BSSID = WifiSupport.bssidToLong(scanResult.BSSID);
+            if (BSSID == WifiSupport.INVALID_BSSID) {
+                continue;
+            }
+            Entry entry = mEntries.get(BSSID);
+            final long seenAtMicros = hasTimestamp ? scanResult.timestamp : nowMicros;
+            final long deadlineTick = (seenAtMicros + maxAgeOf(scanResult.frequency)) / mTickMicros;
+            if (deadlineTick <= mCurrentTick) {
+                // 结果本身就已经过期了
+                continue;
+            }
+            if (entry == null) {
+                entry = new Entry(BSSID);
+                mEntries.put(BSSID, entry);
+            } else if (entry.mSeenAtMicros > seenAtMicros) {
+                // 已经有更新的结果了
+                entry.mGeneration = mGeneration;
+                continue;
+            } else {
+                unlink(entry);
+            }
+            entry.mScanResult = scanResult;
+            entry.mSeenAtMicros = seenAtMicros;
+            entry.mGeneration = mGeneration;
+            entry.mDeadlineTick = deadlineTick;
+            link(entry);
+        }
+        advance(nowMicros / mTickMicros);
+        final List<ScanResult> result = new ArrayList<>(mEntries.size());
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (mGeneration - entry.mGeneration >= mUnionScans) {
+                // 连续 N 次扫描都没有出现
+                unlink(entry);
+                iterator.remove();
+                continue;
+            }
+            result.add(entry.mScanResult);
+        }
+        return result;
+    }
+
+    /**
+     * 当前存活的 AP 个数
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * 累计因超过最大存活时间而被淘汰的 AP 个数
+     */
+    public synchronized long getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            mWheel[i] = null;
+        }
+        mCurrentTick = Long.MIN_VALUE;
+    }
+
+    private long maxAgeOf(final int frequency) {
+        if (WifiSupport.is24GHz(frequency)) {
+            return mMaxAge24GHzMicros;
+        }
+        if (WifiSupport.is5GHz(frequency)) {
+            return mMaxAge5GHzMicros;
+        }
+        return mMaxAgeOtherMicros;
+    }
+
+    /**
+     * 时间轮走到 tick，淘汰途经各格中已到期的 AP。
+     * 一格中可能挂着之后几圈才到期的 AP，它们保持不动。
+     */
+    private void advance(final long tick) {
+        if (tick <= mCurrentTick) {
+            return;
+        }
+        // 走过超过一圈时，每一格只需要处理一次
+        final long from = Math.max(mCurrentTick + 1, tick - WHEEL_MASK);
+        for (long t = from; t <= tick; t++) {
+            Entry entry = mWheel[(int) (t & WHEEL_MASK)];
+            while (entry != null) {
+                final Entry next = entry.mNext;
+                if (entry.mDeadlineTick <= tick) {
+                    unlink(entry);
+                    mEntries.remove(entry.mBSSID);
+                    mExpiredCount++;
+                }
+                entry = next;
+            }
+        }
+        mCurrentTick = tick;
+    }
+
+    private void link(@NonNull final Entry entry) {
+        final int slot = (int) (entry.mDeadlineTick & WHEEL_MASK);
+        final Entry head = mWheel[slot];
+        entry.mPrev = null;
+        entry.mNext = head;
+        if (head != null) {
+            head.mPrev = entry;
+        }
+        mWheel[slot] = entry;
+        entry.mLinked = true;
+    }
+
+    private void unlink(@NonNull final Entry entry) {
+        if (!entry.mLinked) {
+            return;
+        }
+        if (entry.mPrev != null) {
+            entry.mPrev.mNext = entry.mNext;
+        } else {
+            mWheel[(int) (entry.mDeadlineTick & WHEEL_MASK)] = entry.mNext;
+        }
+        if (entry.mNext != null) {
+            entry.mNext.mPrev = entry.mPrev;
+        }
+        entry.mPrev = null;
+        entry.mNext = null;
+        entry.mLinked = false;
+    }
+
+    private static final class Entry {
+        private final long mBSSID;
+        @Nullable
+        private ScanResult mScanResult;
+        private long mSeenAtMicros;
+        private int mGeneration;
+        private long mDeadlineTick;
+        @Nullable
+        private Entry mPrev;
+        @Nullable
+        private Entry mNext;
+        private boolean mLinked = false;
+
+        Entry(final long BSSID) {
+            mBSSID = BSSID;
+        }
+    }
+
+    public static final class Builder {
+        private long mMaxAge24GHzMillis = 60 * 1000;
+        private long mMaxAge5GHzMillis = 60 * 1000;
+        private int mUnionScans = 1;
+        private long mTickMillis = 1000;
+
+        /**
+         * 2.4GHz 频段 AP 的最大存活时间，默认 60 秒
+         */
+        public Builder maxAge24GHz(final long millis) {
+            mMaxAge24GHzMillis = checkPositive(millis);
+            return this;
+        }
+
+        /**
+         * 5GHz 频段 AP 的最大存活时间，默认 60 秒
+         */
+        public Builder maxAge5GHz(final long millis) {
+            mMaxAge5GHzMillis = checkPositive(millis);
+            return this;
+        }
+
+        /**
+         * 合并最近几次扫描的结果，默认 1，即只使用本次扫描的结果
+         */
+        public Builder unionScans(final int scans) {
+            mUnionScans = (int) checkPositive(scans);
+            return this;
+        }
+
+        /**
+         * 时间轮每一格的时长，即过期判断的精度，默认 1 秒
+         */
+        public Builder tick(final long millis) {
+            mTickMillis = checkPositive(millis);
+            return this;
+        }
+
+        @NonNull
+        public ScanResultAging build() {
+            return new ScanResultAging(this);
+        }
+
+        private static long checkPositive(final long value) {
+            if (value <= 0) {
+                throw new IllegalArgumentException("must be positive: " + value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.jossing.wifihelper;
+
+import android.net.wifi.ScanResult;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 扫描结果的允许/屏蔽规则，在合并之前丢弃不需要的扫描结果，被丢弃的扫描结果不会生成 {@link Wifi}。
+ * <ul>
+ *     <li>命中任何一条屏蔽规则的扫描结果都会被丢弃，屏蔽优先于允许</li>
+ *     <li>没有任何允许规则时，其余扫描结果全部保留；否则只保留 BSSID 或 SSID 命中允许规则的扫描结果</li>
+ *     <li>BSSID 规则存放在 {@link BssidSet} 中，SSID 规则支持 '*' 和 '?' 通配，编译为 {@link SsidMatcher}</li>
+ * </ul>
+ * 规则编译后不可变，可以随时通过 {@link WifiHelper#setScanRules(ScanRules)} 整体替换，
+ * 正在进行的刷新继续使用旧规则，下一次刷新开始使用新规则，刷新过程中不需要加锁。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiPipeline#STAGE_RULES
+ */
+public final class ScanRules {
+
+    @NonNull
+    private final BssidSet mBlockedBSSIDs;
+    @NonNull
+    private final BssidSet mAllowedBSSIDs;
+    @NonNull
+    private final SsidMatcher mBlockedSSIDs;
+    @NonNull
+    private final SsidMatcher mAllowedSSIDs;
+    private final boolean mHasAllowRules;
+
+    private ScanRules(@NonNull final Builder builder) {
+        mBlockedBSSIDs = new BssidSet(builder.mBlockedBSSIDs, builder.mBlockedCount);
+        mAllowedBSSIDs = new BssidSet(builder.mAllowedBSSIDs, builder.mAllowedCount);
+        mBlockedSSIDs = new SsidMatcher(builder.mBlockedSSIDs);
+        mAllowedSSIDs = new SsidMatcher(builder.mAllowedSSIDs);
+        mHasAllowRules = mAllowedBSSIDs.size() > 0 || !mAllowedSSIDs.isEmpty();
+    }
+
+    /**
+     * @return false 丢弃该扫描结果
+     */
+    public boolean accept(@NonNull final ScanResult scanResult) {
+        final long BSSID = WifiSupport.bssidToLong(scanResult.BSSID);
+        // 隐藏网络的 SSID 为空，只能按 BSSID 匹配
+        final String SSID = scanResult.SSID == null ? "" : scanResult.SSID;
+        final boolean hasSSID = !TextUtils.isEmpty(SSID);
+        if (mBlockedBSSIDs.contains(BSSID) || (hasSSID && mBlockedSSIDs.matches(SSID))) {
+            return false;
+        }
+        if (!mHasAllowRules) {
+            return true;
+        }
+        return mAllowedBSSIDs.contains(BSSID) || (hasSSID && mAllowedSSIDs.matches(SSID));
+    }
+
+    /**
+     * 过滤扫描结果
+     *
+     * @return 保留下来的扫描结果，顺序不变
+     */
+    @NonNull
+    List<ScanResult> filter(@NonNull final List<ScanResult> scanResults) {
+        final List<ScanResult> accepted = new ArrayList<>(scanResults.size());
+        for (final ScanResult scanResult : scanResults) {
+            if (accept(scanResult)) {
+                accepted.add(scanResult);
+            }
+        }
+        return accepted;
+    }
+
+    public static final class Builder {
+        private long[] mBlockedBSSIDs = new long[16];
+        private int mBlockedCount = 0;
+        private long[] mAllowedBSSIDs = new long[16];
+        private int mAllowedCount = 0;
+        private final List<String> mBlockedSSIDs = new ArrayList<>();
+        private final List<String> mAllowedSSIDs = new ArrayList<>();
+
+        /**
+         * 屏蔽一个 BSSID，例如已知的非法 AP
+         *
+         * @param BSSID 形如 "00:11:22:33:44:55"，不区分大小写
+         * @throws IllegalArgumentException BSSID 格式不正确
+         */
+        public Builder blockBSSID(@NonNull final String BSSID) {
+            if (mBlockedCount == mBlockedBSSIDs.length) {
+                mBlockedBSSIDs = Arrays.copyOf(mBlockedBSSIDs, mBlockedCount * 2);
+            }
+            mBlockedBSSIDs[mBlockedCount++] = parseBSSID(BSSID);
+            return this;
+        }
+
+        /**
+         * 只允许指定的 BSSID（以及命中 {@link #allowSSID(String)} 的 SSID）
+         *
+         * @param BSSID 形如 "00:11:22:33:44:55"，不区分大小写
+         * @throws IllegalArgumentException BSSID 格式不正确
+         */
+        public Builder allowBSSID(@NonNull final String BSSID) {
+            if (mAllowedCount == mAllowedBSSIDs.length) {
+                mAllowedBSSIDs = Arrays.copyOf(mAllowedBSSIDs, mAllowedCount * 2);
+            }
+            mAllowedBSSIDs[mAllowedCount++] = parseBSSID(BSSID);
+            return this;
+        }
+
+        /**
+         * 屏蔽 SSID，支持 '*' 和 '?' 通配，例如 "Guest-*"、"*_nomap"
+         */
+        public Builder blockSSID(@NonNull final String pattern) {
+            mBlockedSSIDs.add(pattern);
+            return this;
+        }
+
+        /**
+         * 只允许指定的 SSID（以及 {@link #allowBSSID(String)} 指定的 BSSID），支持 '*' 和 '?' 通配，例如 "CORP-*"
+         */
+        public Builder allowSSID(@NonNull final String pattern) {
+            mAllowedSSIDs.add(pattern);
+            return this;
+        }
+
+        /**
+         * 编译规则，规则较多时不要在主线程中调用
+         */
+        @NonNull
+        public ScanRules build() {
+            return new ScanRules(this);
+        }
+
+        private static long parseBSSID(@NonNull final String BSSID) {
+            final long value = WifiSupport.bssidToLong(BSSID);
+            if (value == WifiSupport.INVALID_BSSID) {
+                throw new IllegalArgumentException("invalid BSSID: " + BSSID);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.jossing.wifihelper;
+
+import android.content.Context;
+import android.net.NetworkInfo;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.ArrayMap;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.jossing.wifihelper.enumerate.WifiConnection;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link WifiPipeline} 的内置环节
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class ScanStages {
+    private static final String TAG = "ScanStages";
+
+    private ScanStages() {}
+
+    /**
+     * @see WifiPipeline#STAGE_SCAN
+     */
+    static final WifiPipeline.Stage SCAN = batch -> {
+        final Context context = batch.getContext();
+        // 首先检查有权限没有
+        if (context == null || !WifiSupport.isLocationServiceEnabled(context)
+                || !WifiSupport.isLocationPermissionGranted(context)) {
+            return;
+        }
+        final WifiManager wifiManager = WifiSupport.getWifiManager(context);
+        final List<ScanResult> scanResults = wifiManager.getScanResults();
+        if (scanResults != null) {
+            batch.setScanResults(scanResults);
+        }
+        batch.setConfiguredNetworks(wifiManager.getConfiguredNetworks());
+        batch.setWifiInfo(wifiManager.getConnectionInfo());
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_AGING
+     */
+    static final WifiPipeline.Stage AGING = batch -> {
+        if (batch.mAging != null) {
+            batch.setScanResults(batch.mAging.apply(batch.getScanResults(), batch.mClock.elapsedRealtime() * 1000));
+        }
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_RULES
+     */
+    static final WifiPipeline.Stage RULES = batch -> {
+        if (batch.mScanRules != null) {
+            batch.setScanResults(batch.mScanRules.filter(batch.getScanResults()));
+        }
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_MERGE
+     */
+    static final WifiPipeline.Stage MERGE = batch -> {
+        final List<WifiConfiguration> configuredNetworks = batch.getConfiguredNetworks();
+        final Map<String, WifiConfiguration> wifiConfigurationMap = getConfigurationNetworks(configuredNetworks);
+        final WifiInfo wifiInfo = batch.getWifiInfo();
+        // 同名 Wi-Fi 进行合并，没有名字的 Wi-Fi 按 BSSID 单独归并
+        final Map<String, Wifi> wifiMap = new ArrayMap<>();
+        final Map<Long, Wifi> hiddenWifiMap = new ArrayMap<>();
+        HiddenNetworkMatcher hiddenNetworkMatcher = null;
+        for (final ScanResult scanResult : batch.getScanResults()) {
+            if (TextUtils.isEmpty(scanResult.SSID)) {
+                if (hiddenNetworkMatcher == null) {
+                    hiddenNetworkMatcher = new HiddenNetworkMatcher(configuredNetworks, wifiInfo);
+                }
+                addHiddenWifi(hiddenWifiMap, hiddenNetworkMatcher, scanResult);
+                continue;
+            }
+            // 驻留字符串，相同的字符串只保留一份，之后的比较大多可以由 == 快速判断
+            scanResult.SSID = WifiSupport.intern(scanResult.SSID);
+            scanResult.BSSID = WifiSupport.intern(scanResult.BSSID);
+            scanResult.capabilities = WifiSupport.intern(scanResult.capabilities);
+            final Wifi wifiAdded = wifiMap.get(scanResult.SSID);
+            if (wifiAdded == null) {
+                wifiMap.put(scanResult.SSID, Wifi.from(scanResult)
+                        .configuration(wifiConfigurationMap.get(scanResult.SSID))
+                        .wifiInfo(wifiInfo)
+                        .create());
+                continue;
+            }
+            final boolean success = wifiAdded.merge(scanResult);
+            if (!success) {
+                Log.w(TAG, "merge -> 忽略：" + scanResult);
+            }
+        }
+        batch.getWifiList().addAll(wifiMap.values());
+        batch.getHiddenWifiList().addAll(hiddenWifiMap.values());
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_CONNECTION
+     */
+    static final WifiPipeline.Stage CONNECTION = batch -> {
+        final NetworkInfo networkInfo = batch.getNetworkInfo();
+        if (networkInfo == null) {
+            return;
+        }
+        // 更新 Wi-Fi 列表中，当前 Wi-Fi 的连接状态
+        Wifi currentWifi = null;
+        for (final Wifi wifi : batch.getWifiList()) {
+            if (wifi.isCurrent()) {
+                currentWifi = wifi;
+                break;
+            }
+        }
+        final String changedFromSSID = WifiSupport.getRealSSID(networkInfo.getExtraInfo());
+        if (currentWifi != null && TextUtils.equals(currentWifi.SSID, changedFromSSID)) {
+            currentWifi.setConnectionState(WifiConnection.from(networkInfo));
+        }
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_VENDOR
+     */
+    static final WifiPipeline.Stage VENDOR = batch -> {
+        final OuiRegistry ouiRegistry = batch.mOuiRegistry;
+        if (ouiRegistry != null) {
+            ParallelEnricher.enrich(batch.getWifiList(), ouiRegistry, batch.mParallelThreshold);
+            ParallelEnricher.enrich(batch.getHiddenWifiList(), ouiRegistry, batch.mParallelThreshold);
+        }
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_RANK
+     */
+    static final WifiPipeline.Stage RANK = batch -> {
+        WifiSorter.sortTopK(batch.getWifiList(), batch.getSortLimit());
+        WifiSorter.sort(batch.getHiddenWifiList());
+    };
+
+    /**
+     * @see WifiPipeline#STAGE_PUBLISH
+     */
+    static final WifiPipeline.Stage PUBLISH = ScanBatch::deliver;
+
+    /**
+     * 将隐藏网络的扫描结果按 BSSID 归并，与普通 Wi-Fi 一样合并频段和信道带宽
+     */
+    private static void addHiddenWifi(@NonNull final Map<Long, Wifi> hiddenWifiMap,
+                                      @NonNull final HiddenNetworkMatcher matcher,
+                                      @NonNull final ScanResult scanResult) {
+        final long BSSID = WifiSupport.bssidToLong(scanResult.BSSID);
+        if (BSSID == WifiSupport.INVALID_BSSID) {
+            return;
+        }
+        // 统一为同一个空字符串实例，合并时可以直接比较引用
+        scanResult.SSID = "";
+        scanResult.BSSID = WifiSupport.intern(scanResult.BSSID);
+        scanResult.capabilities = WifiSupport.intern(scanResult.capabilities);
+        final Wifi wifiAdded = hiddenWifiMap.get(BSSID);
+        if (wifiAdded == null) {
+            hiddenWifiMap.put(BSSID, Wifi.from(scanResult)
+                    .configuration(matcher.matchConfiguration(BSSID))
+                    .wifiInfo(matcher.matchWifiInfo(BSSID))
+                    .hidden(true)
+                    .create());
+            return;
+        }
+        if (!wifiAdded.merge(scanResult)) {
+            Log.w(TAG, "addHiddenWifi -> 忽略：" + scanResult);
+        }
+    }
+
+    /**
+     * 使用 SSID 为 key，将已配置的的网络列表包装在 Map 中返回
+     *
+     * @see WifiManager#getConfiguredNetworks()
+     */
+    @NonNull
+    private static Map<String, WifiConfiguration> getConfigurationNetworks(@Nullable final List<WifiConfiguration> configuredNetworks) {
+        final Map<String, WifiConfiguration> wifiConfigurationMap = new ArrayMap<>();
+        if (configuredNetworks == null) {
+            return wifiConfigurationMap;
+        }
+        for (final WifiConfiguration configuration : configuredNetworks) {
+            wifiConfigurationMap.put(WifiSupport.getRealSSID(configuration.SSID), configuration);
+        }
+        return wifiConfigurationMap;
+    }
+}
@@ -0,0 +1,244 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的 SSID 通配规则，支持 '*'（任意个字符）和 '?'（一个字符），区分大小写。<br/>
+ * 规则按形式分类，常见的形式都不需要逐条匹配：
+ * <ul>
+ *     <li>不含通配符：哈希集合</li>
+ *     <li>"abc*" 前缀、"*abc" 后缀：按（长度, {@link String#hashCode()}）排序的数组。
+ *         匹配时对 SSID 只遍历一次，边遍历边计算各个长度的前缀（后缀）哈希，再二分查找，最后核对字符串</li>
+ *     <li>"*"：匹配任何 SSID</li>
+ *     <li>其它形式：逐条做通配匹配</li>
+ * </ul>
+ * 匹配不产生任何对象，可以在多个线程中同时调用。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class SsidMatcher {
+
+    @NonNull
+    private final Set<String> mExact;
+    @NonNull
+    private final AffixTable mPrefixes;
+    @NonNull
+    private final AffixTable mSuffixes;
+    @NonNull
+    private final String[] mGlobs;
+    private final boolean mMatchAll;
+    private final boolean mEmpty;
+
+    SsidMatcher(@NonNull final List<String> patterns) {
+        final Set<String> exact = new HashSet<>();
+        final List<String> prefixes = new ArrayList<>();
+        final List<String> suffixes = new ArrayList<>();
+        final List<String> globs = new ArrayList<>();
+        boolean matchAll = false;
+        for (final String pattern : patterns) {
+            final int wildcards = countWildcards(pattern);
+            final int length = pattern.length();
+            if (wildcards == 0) {
+                exact.add(pattern);
+            } else if (isMatchAll(pattern)) {
+                matchAll = true;
+            } else if (wildcards == 1 && pattern.charAt(length - 1) == '*') {
+                prefixes.add(pattern.substring(0, length - 1));
+            } else if (wildcards == 1 && pattern.charAt(0) == '*') {
+                suffixes.add(pattern.substring(1));
+            } else {
+                globs.add(pattern);
+            }
+        }
+        mExact = exact;
+        mPrefixes = new AffixTable(prefixes);
+        mSuffixes = new AffixTable(suffixes);
+        mGlobs = globs.toArray(new String[0]);
+        mMatchAll = matchAll;
+        mEmpty = patterns.isEmpty();
+    }
+
+    /**
+     * 没有任何规则
+     */
+    boolean isEmpty() {
+        return mEmpty;
+    }
+
+    boolean matches(@NonNull final String SSID) {
+        if (mMatchAll || mExact.contains(SSID)) {
+            return true;
+        }
+        if (mPrefixes.size() > 0 && matchesPrefix(SSID)) {
+            return true;
+        }
+        if (mSuffixes.size() > 0 && matchesSuffix(SSID)) {
+            return true;
+        }
+        for (final String glob : mGlobs) {
+            if (globMatches(glob, SSID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesPrefix(@NonNull final String SSID) {
+        final int length = Math.min(SSID.length(), mPrefixes.mMaxLength);
+        int hash = 0;
+        // hash 始终等于长度为 i + 1 的前缀的 String#hashCode()
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + SSID.charAt(i);
+            if (mPrefixes.contains(i + 1, hash, SSID, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesSuffix(@NonNull final String SSID) {
+        final int ssidLength = SSID.length();
+        final int length = Math.min(ssidLength, mSuffixes.mMaxLength);
+        int hash = 0;
+        int power = 1;
+        // 从后往前，hash 始终等于长度为 i + 1 的后缀的 String#hashCode()
+        for (int i = 0; i < length; i++) {
+            hash += SSID.charAt(ssidLength - 1 - i) * power;
+            power *= 31;
+            if (mSuffixes.contains(i + 1, hash, SSID, ssidLength - 1 - i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 迭代的通配匹配，遇到 '*' 时记录回退点，最坏 O(m × n)，不递归
+     */
+    static boolean globMatches(@NonNull final String pattern, @NonNull final String text) {
+        int p = 0;
+        int t = 0;
+        int star = -1;
+        int mark = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private static int countWildcards(@NonNull final String pattern) {
+        int count = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isMatchAll(@NonNull final String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != '*') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 前缀或后缀表：key 的高 32 位是长度，低 32 位是哈希，升序排列
+     */
+    private static final class AffixTable {
+        @NonNull
+        private final long[] mKeys;
+        @NonNull
+        private final String[] mValues;
+        private final int mMaxLength;
+        /** 第 n 位表示存在长度为 n 的条目，长度不小于 64 的不记录 */
+        private final long mLengths;
+
+        AffixTable(@NonNull final List<String> values) {
+            final List<String> sorted = new ArrayList<>(values);
+            // Long.compare 在 API 19 才加入
+            Collections.sort(sorted, (a, b) -> {
+                final long keyA = keyOf(a);
+                final long keyB = keyOf(b);
+                return keyA < keyB ? -1 : (keyA == keyB ? 0 : 1);
+            });
+            mKeys = new long[sorted.size()];
+            mValues = sorted.toArray(new String[0]);
+            int maxLength = 0;
+            long lengths = 0;
+            for (int i = 0; i < mValues.length; i++) {
+                final int length = mValues[i].length();
+                mKeys[i] = keyOf(mValues[i]);
+                maxLength = Math.max(maxLength, length);
+                if (length < 64) {
+                    lengths |= 1L << length;
+                }
+            }
+            mMaxLength = maxLength;
+            mLengths = lengths;
+        }
+
+        int size() {
+            return mKeys.length;
+        }
+
+        /**
+         * @param offset 候选字符串在 text 中的起始位置
+         */
+        boolean contains(final int length, final int hash, @NonNull final String text, final int offset) {
+            // 大多数长度上根本没有条目，先用位图排除
+            if (length < 64 && (mLengths & (1L << length)) == 0) {
+                return false;
+            }
+            final long key = keyOf(length, hash);
+            int index = Arrays.binarySearch(mKeys, key);
+            if (index < 0) {
+                return false;
+            }
+            // 哈希相同的可能有多条，向前找到第一条
+            while (index > 0 && mKeys[index - 1] == key) {
+                index--;
+            }
+            for (; index < mKeys.length && mKeys[index] == key; index++) {
+                if (text.regionMatches(offset, mValues[index], 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long keyOf(@NonNull final String value) {
+            return keyOf(value.length(), value.hashCode());
+        }
+
+        private static long keyOf(final int length, final int hash) {
+            return ((long) length << 32) | (hash & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 有容量上限的字符串驻留池。<br/>
+ * 相等的字符串经过 {@link #intern(String)} 后通常会得到同一个实例，可以先用 == 快速判断。
+ * 但已经被淘汰的字符串再次驻留时会得到新的实例，所以 == 不成立时仍需要用 equals 比较，
+ * 见 {@link WifiSupport#equalStrings(String, String)}。
+ * <p>
+ * 池中只持有字符串的弱引用，不会阻止字符串被回收；
+ * 超出容量时按最近最少使用（LRU）的顺序淘汰。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class StringPool {
+
+    private final int mCapacity;
+    private final ReferenceQueue<String> mQueue = new ReferenceQueue<>();
+    private final Map<Object, PoolEntry> mEntries;
+    /** 查询时复用的探针，避免每次查询都创建对象 */
+    private final Probe mProbe = new Probe();
+
+    StringPool(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mCapacity = capacity;
+        mEntries = new LinkedHashMap<Object, PoolEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, PoolEntry> eldest) {
+                return size() > mCapacity;
+            }
+        };
+    }
+
+    /**
+     * 返回与 value 相等的驻留实例。池中没有时，value 本身会成为驻留实例。
+     */
+    @Nullable
+    synchronized String intern(@Nullable final String value) {
+        if (value == null) {
+            return null;
+        }
+        expungeStaleEntries();
+        mProbe.mValue = value;
+        final PoolEntry entry = mEntries.get(mProbe);
+        mProbe.mValue = null;
+        if (entry != null) {
+            final String interned = entry.get();
+            if (interned != null) {
+                return interned;
+            }
+            mEntries.remove(entry);
+        }
+        final PoolEntry newEntry = new PoolEntry(value, mQueue);
+        mEntries.put(newEntry, newEntry);
+        return value;
+    }
+
+    synchronized int size() {
+        expungeStaleEntries();
+        return mEntries.size();
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+        while (mQueue.poll() != null) {
+            // 丢弃已入队的引用
+        }
+    }
+
+    private void expungeStaleEntries() {
+        Object stale;
+        while ((stale = mQueue.poll()) != null) {
+            mEntries.remove(stale);
+        }
+    }
+
+    /**
+     * 池中的条目。只与自身相等，保证字符串被回收后仍能从 Map 中移除。
+     */
+    private static final class PoolEntry extends WeakReference<String> {
+        private final int mHash;
+
+        PoolEntry(@NonNull final String value, @NonNull final ReferenceQueue<String> queue) {
+            super(value, queue);
+            mHash = value.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this == obj;
+        }
+    }
+
+    /**
+     * 查询用的探针，按字符串内容与 {@link PoolEntry} 比较
+     */
+    private static final class Probe {
+        private String mValue;
+
+        @Override
+        public int hashCode() {
+            return mValue.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof PoolEntry) {
+                return mValue.equals(((PoolEntry) obj).get());
+            }
+            return false;
+        }
+    }
+}
@@ -5,7 +5,7 @@ import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiInfo;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
+import android.support.v4.util.ArrayMap;
 
 import org.jossing.wifihelper.annotation.ConnectionState;
 import org.jossing.wifihelper.enumerate.WifiConnection;
@@ -13,6 +13,7 @@ import org.jossing.wifihelper.enumerate.WifiConnection;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 封装了与 Wi-Fi 相关参数的类
@@ -45,6 +46,13 @@ public class Wifi implements Comparable<Wifi> {
      */
     private int level;
 
+    /**
+     * 信号最好的那个 BSSID 的频率
+     *
+     * @see android.net.wifi.ScanResult#frequency
+     */
+    private int frequency;
+
     /**
      * 是否是 2.4GHz 的 Wi-Fi
      */
@@ -81,33 +89,108 @@ public class Wifi implements Comparable<Wifi> {
     private int mConnectionState = WifiConnection.UNKNOWN;
 
     /**
-     * 由 {@link ScanResult} 的实例生成此类的实例
+     * 预先计算好的排序键，值越大越靠前。<br/>
+     * 在信号强度或连接状态变化时更新，排序时不再重复调用 {@link #isSaved()}、{@link #isCurrent()}。
+     *
+     * @see WifiSorter
+     */
+    private long mSortKey;
+
+    /**
+     * @see #isRestored()
+     */
+    private boolean mRestored = false;
+
+    /**
+     * @see #isHidden()
+     */
+    private final boolean mHidden;
+
+    /**
+     * @see #getVendor()
+     */
+    @Nullable
+    private String mVendor;
+
+    /**
+     * 由 {@link WifiPipeline.WifiEnricher} 补充的信息，用到时才创建
+     *
+     * @see #getExtra(String)
+     */
+    @Nullable
+    private Map<String, Object> mExtras;
+
+    /**
+     * 由 {@link ScanResult} 的实例生成此类的实例。<br/>
+     * scanResult 的字符串字段应已经过 {@link WifiSupport#intern(String)} 驻留。
      */
     public static WifiFactory from(@NonNull final ScanResult scanResult) {
         return new WifiFactory(scanResult);
     }
 
     protected Wifi(@NonNull final ScanResult scanResult, @Nullable final WifiConfiguration configuration, @Nullable final WifiInfo wifiInfo) {
+        this(scanResult, configuration, wifiInfo, false);
+    }
+
+    /**
+     * @param hidden true 表示隐藏网络。隐藏网络没有 SSID，configuration 和 wifiInfo 应已由调用方按 BSSID 匹配好
+     * @see HiddenNetworkMatcher
+     */
+    Wifi(@NonNull final ScanResult scanResult, @Nullable final WifiConfiguration configuration,
+         @Nullable final WifiInfo wifiInfo, final boolean hidden) {
+        mHidden = hidden;
         SSID = scanResult.SSID;
         BSSID = scanResult.BSSID;
         capabilities = scanResult.capabilities;
         level = scanResult.level;
+        frequency = scanResult.frequency;
         freq24GHz = WifiSupport.is24GHz(scanResult.frequency);
         freq5GHz = WifiSupport.is5GHz(scanResult.frequency);
         mChannelWidths.add(WifiSupport.isOverApi23() ? scanResult.channelWidth : UNSPECIFIED);
-        // 检查该配置有效性，和是否是此网络的配置
+        // 检查该配置有效性，和是否是此网络的配置。
+        // SSID 与 getRealSSID 的返回值都是驻留过的字符串，大多可以由引用比较快速判断
         if (WifiSupport.isConfigurationValid(configuration) &&
-                TextUtils.equals(SSID, WifiSupport.getRealSSID(configuration.SSID))) {
+                (hidden || WifiSupport.equalStrings(SSID, WifiSupport.getRealSSID(configuration.SSID)))) {
             this.configuration = configuration;
         } else {
             this.configuration = null;
         }
-        if (wifiInfo != null && TextUtils.equals(SSID, WifiSupport.getRealSSID(wifiInfo.getSSID()))) {
+        if (wifiInfo != null && (hidden || WifiSupport.equalStrings(SSID, WifiSupport.getRealSSID(wifiInfo.getSSID())))) {
             this.wifiInfo = wifiInfo;
             mConnectionState = WifiConnection.from(wifiInfo);
         } else {
             this.wifiInfo = null;
         }
+        updateSortKey();
+    }
+
+    /**
+     * 由已经处理过的各项属性直接还原一个实例，不再校验配置与连接信息。
+     *
+     * @param channelWidthMask 信道带宽的位掩码
+     * @see #getChannelWidthMask()
+     */
+    Wifi(@NonNull final String SSID, @Nullable final String BSSID, @NonNull final String capabilities,
+         final int level, final int frequency, final boolean freq24GHz, final boolean freq5GHz, final int channelWidthMask,
+         @Nullable final WifiConfiguration configuration, @Nullable final WifiInfo wifiInfo,
+         @ConnectionState final int connectionState) {
+        mHidden = false;
+        this.SSID = SSID;
+        this.BSSID = BSSID;
+        this.capabilities = capabilities;
+        this.level = level;
+        this.frequency = frequency;
+        this.freq24GHz = freq24GHz;
+        this.freq5GHz = freq5GHz;
+        for (int bit = 0; bit < Integer.SIZE; bit++) {
+            if ((channelWidthMask & (1 << bit)) != 0) {
+                mChannelWidths.add(bit - 1);
+            }
+        }
+        this.configuration = configuration;
+        this.wifiInfo = wifiInfo;
+        mConnectionState = connectionState;
+        updateSortKey();
     }
 
     /**
@@ -124,6 +207,13 @@ public class Wifi implements Comparable<Wifi> {
         return level;
     }
 
+    /**
+     * @see ScanResult#frequency
+     */
+    public int getFrequency() {
+        return frequency;
+    }
+
     /**
      * 如果 {@link #isCurrent()} == false，那么此方法没有意义。
      * @see WifiInfo#getIpAddress()
@@ -132,6 +222,50 @@ public class Wifi implements Comparable<Wifi> {
         return wifiInfo == null ? 0 : wifiInfo.getIpAddress();
     }
 
+    /**
+     * 由 {@link #getBSSID()} 的 OUI 查得的厂商名。
+     * 未设置 {@link OuiRegistry}、BSSID 是随机 MAC 或 OUI 未注册时为 null。
+     *
+     * @see WifiHelper#setOuiRegistry(OuiRegistry)
+     */
+    @Nullable
+    public String getVendor() {
+        return mVendor;
+    }
+
+    void setVendor(@Nullable final String vendor) {
+        mVendor = vendor;
+    }
+
+    /**
+     * 获取由 {@link WifiPipeline.WifiEnricher} 补充的信息
+     *
+     * @return 没有该项信息时返回 null
+     */
+    @Nullable
+    public Object getExtra(@NonNull final String key) {
+        return mExtras == null ? null : mExtras.get(key);
+    }
+
+    /**
+     * 保存补充的信息。只应在 {@link WifiPipeline.WifiEnricher} 中调用，
+     * 列表发布到主线程后不要再修改。
+     *
+     * @param value 传 null 移除该项信息
+     */
+    public void setExtra(@NonNull final String key, @Nullable final Object value) {
+        if (value == null) {
+            if (mExtras != null) {
+                mExtras.remove(key);
+            }
+            return;
+        }
+        if (mExtras == null) {
+            mExtras = new ArrayMap<>();
+        }
+        mExtras.put(key, value);
+    }
+
     /**
      * @see WifiSupport#isNeedPassword(String)
      */
@@ -177,6 +311,18 @@ public class Wifi implements Comparable<Wifi> {
         return mChannelWidths.get(index);
     }
 
+    /**
+     * 以位掩码的形式返回所有信道带宽，第 (channelWidth + 1) 位表示支持该带宽，
+     * 其中第 0 位表示 {@link #UNSPECIFIED}
+     */
+    int getChannelWidthMask() {
+        int mask = 0;
+        for (final int channelWidth : mChannelWidths) {
+            mask |= 1 << (channelWidth + 1);
+        }
+        return mask;
+    }
+
     /**
      * @see WifiSupport#getChannelBandWidthDescription(int)
      */
@@ -225,24 +371,28 @@ public class Wifi implements Comparable<Wifi> {
     boolean setConnectionState(@ConnectionState final int connectionState) {
         if (mConnectionState != connectionState) {
             mConnectionState = connectionState;
+            updateSortKey();
             return true;
         }
         return false;
     }
 
     /**
-     * 与另一个 {@link ScanResult} 对象合并
+     * 与另一个 {@link ScanResult} 对象合并。<br/>
+     * target 的 SSID、BSSID、capabilities 经过 {@link WifiSupport#intern(String)} 驻留时，比较大多只需要比较引用。
      *
      * @return true 合并成功
      */
     boolean merge(@NonNull final ScanResult target) {
-        if (!TextUtils.equals(SSID, target.SSID) || !TextUtils.equals(capabilities, target.capabilities)) {
+        if (!WifiSupport.equalStrings(SSID, target.SSID) || !WifiSupport.equalStrings(capabilities, target.capabilities)) {
             return false;
         }
         // 保留信号好的那个
         if (level < target.level) {
             BSSID = target.BSSID;
             level = target.level;
+            frequency = target.frequency;
+            updateSortKey();
         }
         freq24GHz = is24GHz() || WifiSupport.is24GHz(target.frequency);
         freq5GHz = is5GHz() || WifiSupport.is5GHz(target.frequency);
@@ -254,11 +404,51 @@ public class Wifi implements Comparable<Wifi> {
         return true;
     }
 
+    /**
+     * 排序键
+     *
+     * @see WifiSorter#sortKeyOf(boolean, boolean, boolean, int)
+     */
+    long getSortKey() {
+        return mSortKey;
+    }
+
+    /**
+     * 直接指定排序键，用于从持久化的快照中还原时保持原有顺序
+     */
+    void restoreSortKey(final long sortKey) {
+        mSortKey = sortKey;
+        mRestored = true;
+    }
+
+    /**
+     * 是否是隐藏网络。隐藏网络的 {@link #SSID} 为空字符串，每个 BSSID 单独作为一个 Wi-Fi，
+     * 匹配到已保存的配置时可以从 {@link #configuration} 中得到网络名，
+     * 未保存的需要用 {@link WifiHelper#connectWifi(Wifi, String, String, WifiHelper.WifiConnectCallback.Callback)} 传入网络名后连接。
+     *
+     * @see WifiHelper#getHiddenWifiList()
+     */
+    public boolean isHidden() {
+        return mHidden;
+    }
+
+    /**
+     * 是否是从持久化的快照中还原的。还原的 Wi-Fi 不含配置与连接信息。
+     */
+    public boolean isRestored() {
+        return mRestored;
+    }
+
+    private void updateSortKey() {
+        mSortKey = WifiSorter.sortKeyOf(isCurrent(), isSaved(), isConfigDisabled(), level);
+    }
+
     /**
      * 排序优先级为：<br/>
      * <ol>
      *     <li>已连接</li>
      *     <li>已保存</li>
+     *     <li>配置未过期</li>
      *     <li>信号好</li>
      * </ol>
      */
@@ -267,25 +457,8 @@ public class Wifi implements Comparable<Wifi> {
         if (another == null) {
             return -1;
         }
-        // 已连接的网络要排在最前面，然后是已保存的
-        if (isSaved()) {
-            if (another.isSaved()) {
-                final boolean isCurrent = isCurrent();
-                final boolean isAnotherCurrent = another.isCurrent();
-                if (isCurrent && !isAnotherCurrent) {
-                    return -1;
-                }
-                if (!isCurrent && isAnotherCurrent) {
-                    return 1;
-                }
-            } else {
-                return -1;
-            }
-        } else if (another.isSaved()) {
-            return 1;
-        }
-        // 最后再根据信号强度排序
-        return Integer.compare(another.level, level);
+        // Long.compare 在 API 19 才加入
+        return mSortKey > another.mSortKey ? -1 : (mSortKey == another.mSortKey ? 0 : 1);
     }
 
     @NonNull
@@ -307,6 +480,7 @@ public class Wifi implements Comparable<Wifi> {
         private final ScanResult mScanResult;
         private WifiConfiguration mConfiguration = null;
         private WifiInfo mWifiInfo = null;
+        private boolean mHidden = false;
 
         WifiFactory(@NonNull final ScanResult scanResult) {
             mScanResult = scanResult;
@@ -322,8 +496,13 @@ public class Wifi implements Comparable<Wifi> {
             return this;
         }
 
+        WifiFactory hidden(final boolean hidden) {
+            mHidden = hidden;
+            return this;
+        }
+
         Wifi create() {
-            return new Wifi(mScanResult, mConfiguration, mWifiInfo);
+            return new Wifi(mScanResult, mConfiguration, mWifiInfo, mHidden);
         }
     }
 }
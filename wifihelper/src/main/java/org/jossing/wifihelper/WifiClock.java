@@ -0,0 +1,57 @@
+package org.jossing.wifihelper;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 库内所有超时和延时使用的时钟，单调递增，与 {@link SystemClock#elapsedRealtime()} 同一时基，单位毫秒。<br/>
+ * 测试中可以换成 {@link Manual}，由测试决定时间何时前进。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#setClock(WifiClock)
+ */
+public interface WifiClock {
+
+    WifiClock SYSTEM = SystemClock::elapsedRealtime;
+
+    long elapsedRealtime();
+
+    /**
+     * 只有调用 {@link #advance(long)} 时才前进的时钟，前进后到期的超时立即在事件循环线程中执行
+     */
+    final class Manual implements WifiClock {
+        private final AtomicLong mNow;
+        private final CopyOnWriteArrayList<Runnable> mListeners = new CopyOnWriteArrayList<>();
+
+        public Manual(final long startMillis) {
+            mNow = new AtomicLong(startMillis);
+        }
+
+        @Override
+        public long elapsedRealtime() {
+            return mNow.get();
+        }
+
+        public void advance(final long millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("millis: " + millis);
+            }
+            mNow.addAndGet(millis);
+            for (final Runnable listener : mListeners) {
+                listener.run();
+            }
+        }
+
+        void addListener(@NonNull final Runnable listener) {
+            mListeners.addIfAbsent(listener);
+        }
+
+        void removeListener(@NonNull final Runnable listener) {
+            mListeners.remove(listener);
+        }
+    }
+}
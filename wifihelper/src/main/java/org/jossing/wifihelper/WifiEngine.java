@@ -0,0 +1,1231 @@
+package org.jossing.wifihelper;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.IntentFilter;
+import android.net.DhcpInfo;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.jossing.wifihelper.annotation.ConnectFailureReason;
+import org.jossing.wifihelper.annotation.ConnectionState;
+import org.jossing.wifihelper.annotation.ScanResult;
+import org.jossing.wifihelper.annotation.WifiListState;
+import org.jossing.wifihelper.annotation.WifiState;
+import org.jossing.wifihelper.enumerate.ConnectFailure;
+import org.jossing.wifihelper.enumerate.WifiConnection;
+import org.jossing.wifihelper.enumerate.WifiOperating;
+import org.jossing.wifihelper.history.ScanHistoryStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 进程内唯一的 Wi-Fi 引擎，只持有 application context。广播接收、列表缓存和刷新都只做一份，
+ * 每个界面的 {@link WifiHelper} 只是挂在引擎上的轻量句柄。
+ * <ul>
+ *     <li>只有一个事件循环线程修改状态：命令投递到这个线程依次执行，系统广播也直接在这个线程中接收，不需要加锁；
+ *         主线程只执行最终给界面的回调</li>
+ *     <li>查询读取最近一次发布的不可变 Wi-Fi 列表，不会被正在进行的刷新阻塞</li>
+ *     <li>句柄按引用计数挂上和卸下：有句柄时注册广播并刷新；最后一个句柄卸下后反注册广播、不再刷新，
+ *         只保留已发布的列表。屏幕旋转这类卸下后马上又挂上的情况，引擎不会重新开始</li>
+ *     <li>Android 5.0 以上同时用 {@link WifiNetworkCallback} 跟踪连接，连接结果比广播来得早；
+ *         广播随后带来的重复或已经过时的连接状态不再发布</li>
+ *     <li>开关、连接、扫描都有超时，超时都挂在同一个 {@link WifiTimer} 上，由事件循环线程驱动</li>
+ *     <li>连接失败时按原因分类并记录到每个 SSID 的统计中，按 {@link ConnectRetryPolicy} 退避后重试</li>
+ *     <li>句柄都不可见（所在的 Activity 都已 onStop）时暂停：广播照常接收，只记录 Wi-Fi 状态和连接信息，
+ *         不再获取和处理扫描结果，只记下有一次待刷新；恢复可见时只补一次刷新，不重放暂停期间的广播</li>
+ * </ul>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiEngine {
+    private static final String TAG = "WifiEngine";
+
+    /** 开关 Wi-Fi 的超时，单位毫秒 */
+    private static final long SWITCH_TIMEOUT_MILLIS = 10_000;
+    /** 连接 Wi-Fi 的超时，单位毫秒 */
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+    /** 请求扫描后等待扫描结果广播的超时，单位毫秒 */
+    private static final long SCAN_TIMEOUT_MILLIS = 15_000;
+
+    /** 快照文件相对于缓存目录的路径 */
+    private static final String SNAPSHOT_FILE_NAME = "wifihelper/wifi_snapshot.bin";
+
+    private static volatile WifiEngine sInstance;
+
+    @NonNull
+    private final Context mContext;
+    @NonNull
+    private final WifiManager mWifiManager;
+
+    /** 事件循环线程，所有状态的修改都在这里依次执行，随进程存在 */
+    @NonNull
+    private final Handler mLoop;
+    /** 所有超时共用的定时器，只在事件循环线程中使用 */
+    @NonNull
+    private final WifiTimer mTimer;
+    /** 回调默认投递到主线程执行 */
+    @NonNull
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    @NonNull
+    private final Executor mMainExecutor = mMainHandler::post;
+
+    /** Wi-Fi 列表的订阅者 */
+    @NonNull
+    private final WifiEventBus<WifiListEvent> mWifiListBus = new WifiEventBus<>();
+    /** Wi-Fi 状态的订阅者 */
+    @NonNull
+    private final WifiEventBus<Integer> mWifiStateBus = new WifiEventBus<>();
+    /** Wi-Fi 连接状态的订阅者 */
+    @NonNull
+    private final WifiEventBus<Integer> mConnectionStateBus = new WifiEventBus<>();
+    /** Wi-Fi 网络的订阅者 */
+    @NonNull
+    private final WifiEventBus<WifiNetwork> mWifiNetworkBus = new WifiEventBus<>();
+    /** 挂在引擎上的句柄，即引用计数 */
+    @NonNull
+    private final CopyOnWriteArrayList<WifiHelper> mHandles = new CopyOnWriteArrayList<>();
+
+    // ---- 以下字段只在事件循环线程中访问 ----
+
+    /** 不为 null 表示引擎正在工作 */
+    private WifiReceiver mWifiReceiver;
+    /** 是否已经主动获取过一次 Wi-Fi 列表 */
+    private boolean mRefreshed = false;
+    /** 暂停期间（或反注册期间）有没有被跳过的刷新 */
+    private boolean mRefreshPending = false;
+    /** 开 Wi-Fi 回调 */
+    private WifiHelper.WifiSwitchCallback mWifiSwitchOnCallback;
+    /** 关 Wi-Fi 回调 */
+    private WifiHelper.WifiSwitchCallback mWifiSwitchOffCallback;
+    /** 当前 Wi-Fi 网络的连接信息 */
+    private NetworkInfo mCurWifiNetworkInfo = null;
+    /** 连接指定 Wi-Fi 的回调 */
+    private WifiHelper.WifiConnectCallback mWifiConnectCallback;
+    /** Android 5.0 以上，与广播一起注册和反注册 */
+    @Nullable
+    private WifiNetworkCallback mWifiNetworkCallback;
+    /** 退避中、等待重试的连接，退避期间不接收连接状态 */
+    @Nullable
+    private WifiHelper.WifiConnectCallback mConnectRetry;
+    /** 重试退避的随机抖动 */
+    private final Random mRandom = new Random();
+    /** 请求扫描后等待扫描结果广播的超时 */
+    @Nullable
+    private WifiTimer.Timeout mScanTimeout;
+    /** 是否已经发布过连接状态 */
+    private boolean mHasConnectionState = false;
+    /** 最近一次发布的连接状态 */
+    @ConnectionState
+    private int mConnectionState = WifiConnection.UNKNOWN;
+
+    // ---- 以下字段由事件循环线程发布，任何线程都可以读取 ----
+
+    /** 每个 SSID 的连接统计，自身是线程安全的 */
+    @NonNull
+    private final ConnectStatsTable mConnectStats = new ConnectStatsTable();
+    /** 连接失败后的重试策略，为 null 时不重试 */
+    @Nullable
+    private volatile ConnectRetryPolicy mConnectRetryPolicy;
+    /** 超时和淘汰过期扫描结果使用的时钟 */
+    @NonNull
+    private volatile WifiClock mClock = WifiClock.SYSTEM;
+
+    /** 最近一次合并出的 Wi-Fi 网络 */
+    @NonNull
+    private volatile WifiNetwork mWifiNetwork = WifiNetwork.DISCONNECTED;
+
+    /** 最近一次发布的 Wi-Fi 列表，发布后不再修改 */
+    @NonNull
+    private volatile PublishedWifiList mPublishedWifiList = PublishedWifiList.EMPTY;
+    /** SSID 搜索索引，首次搜索时才创建，之后在事件循环线程中随列表增量更新 */
+    @Nullable
+    private volatile WifiSearchIndex mWifiSearchIndex;
+    /** Wi-Fi 的上一个状态 */
+    @WifiState
+    private volatile int mWifiPreState;
+    /** 是否因为没有可见的句柄而暂停 */
+    private volatile boolean mPaused = false;
+    /** 本次暂停开始的时间，{@link SystemClock#elapsedRealtime()} */
+    private volatile long mPausedSince = 0;
+    /** 此前所有暂停的总时长，单位毫秒 */
+    private volatile long mPausedMillis = 0;
+    /** 暂停的次数 */
+    private volatile long mPauseCount = 0;
+    /** 暂停期间跳过的刷新次数 */
+    private volatile long mSkippedRefreshCount = 0;
+    /** 恢复时补做的刷新次数 */
+    private volatile long mCatchUpRefreshCount = 0;
+
+    /** 持久化最近一次 Wi-Fi 列表的快照文件 */
+    @NonNull
+    private final WifiSnapshotStore mWifiSnapshotStore;
+    /** 等待保存的最新列表，为 null 时没有待执行的保存 */
+    private final AtomicReference<PublishedWifiList> mPendingSnapshot = new AtomicReference<>();
+    /** 扫描结果的处理流水线 */
+    @NonNull
+    private volatile WifiPipeline mWifiPipeline = new WifiPipeline.Builder().build();
+    /** 淘汰过期扫描结果的策略，未设置时不淘汰 */
+    @Nullable
+    private volatile ScanResultAging mScanResultAging;
+    /** 扫描结果的允许/屏蔽规则，未设置时不过滤 */
+    @Nullable
+    private volatile ScanRules mScanRules;
+    /** 查询 Wi-Fi 厂商名的注册表，未设置时不查询 */
+    @Nullable
+    private volatile OuiRegistry mOuiRegistry;
+    /** 记录每次扫描结果的历史存储，未设置时不记录 */
+    @Nullable
+    private volatile ScanHistoryStore mScanHistoryStore;
+
+    private WifiEngine(@NonNull final Context context) {
+        mContext = context;
+        mWifiManager = WifiSupport.getWifiManager(context);
+        mWifiPreState = WifiManager.WIFI_STATE_UNKNOWN;
+        mWifiSnapshotStore = new WifiSnapshotStore(new File(context.getCacheDir(), SNAPSHOT_FILE_NAME));
+        final HandlerThread loopThread = new HandlerThread(TAG);
+        loopThread.start();
+        mLoop = new Handler(loopThread.getLooper());
+        mTimer = new WifiTimer(mLoop, mClock, WifiTimer.DEFAULT_TICK_MILLIS);
+        // 先还原上一次保存的 Wi-Fi 列表，让第一帧就有内容可以显示。
+        // 读文件放在事件循环线程中，不阻塞创建引擎的主线程；这是事件循环的第一个任务，之后补发列表的任务都能看到还原的结果
+        mLoop.post(this::restoreWifiSnapshot);
+        if (context instanceof Application) {
+            ((Application) context).registerActivityLifecycleCallbacks(mHostLifecycleCallbacks);
+        }
+    }
+
+    /**
+     * 进程内唯一的引擎，首次调用时创建
+     */
+    @NonNull
+    static WifiEngine get(@NonNull final Context context) {
+        WifiEngine engine = sInstance;
+        if (engine == null) {
+            synchronized (WifiEngine.class) {
+                engine = sInstance;
+                if (engine == null) {
+                    sInstance = engine = new WifiEngine(context.getApplicationContext());
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * 挂上一个句柄，第一个句柄挂上时恢复工作
+     */
+    void attach(@NonNull final WifiHelper handle) {
+        mHandles.addIfAbsent(handle);
+        mLoop.post(this::updateActive);
+    }
+
+    /**
+     * 卸下一个句柄，最后一个句柄卸下时暂停工作
+     */
+    void detach(@NonNull final WifiHelper handle) {
+        mHandles.remove(handle);
+        mLoop.post(this::updateActive);
+    }
+
+    /**
+     * 按当前的句柄决定是否工作、是否暂停。挂上、卸下、可见性变化各投递一次，执行时只看最终的状态，
+     * 所以卸下后马上又挂上不会反注册再注册。
+     */
+    private void updateActive() {
+        if (mHandles.isEmpty()) {
+            unregister();
+            setPaused(false);
+            // 反注册期间错过的广播，重新注册时补一次刷新
+            mRefreshPending = true;
+            return;
+        }
+        if (mWifiReceiver == null) {
+            register();
+            if (!mRefreshed) {
+                mRefreshed = true;
+                mRefreshPending = false;
+                // 主动拿一下 Wi-Fi 列表
+                refreshWifiList(true);
+            }
+        }
+        boolean visible = false;
+        for (final WifiHelper handle : mHandles) {
+            if (handle.isVisible()) {
+                visible = true;
+                break;
+            }
+        }
+        setPaused(!visible);
+        if (visible && mRefreshPending) {
+            // 只补一次刷新，不重放暂停期间的广播
+            mRefreshPending = false;
+            mCatchUpRefreshCount++;
+            refreshWifiList(false);
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     */
+    private void setPaused(final boolean paused) {
+        if (mPaused == paused) {
+            return;
+        }
+        final long now = SystemClock.elapsedRealtime();
+        if (paused) {
+            mPausedSince = now;
+            mPauseCount++;
+        } else {
+            mPausedMillis += now - mPausedSince;
+        }
+        mPaused = paused;
+    }
+
+    /**
+     * 当前的暂停统计，各项分别读取，彼此之间可能差一次更新
+     */
+    @NonNull
+    WifiHelper.LifecycleStats getLifecycleStats() {
+        final boolean paused = mPaused;
+        long pausedMillis = mPausedMillis;
+        if (paused) {
+            pausedMillis += SystemClock.elapsedRealtime() - mPausedSince;
+        }
+        return new WifiHelper.LifecycleStats(paused, mPauseCount, pausedMillis,
+                mSkippedRefreshCount, mCatchUpRefreshCount);
+    }
+
+    /**
+     * 向事件循环线程投递命令
+     */
+    void post(@NonNull final Runnable command) {
+        mLoop.post(command);
+    }
+
+    void postToMain(@NonNull final Runnable callback) {
+        mMainHandler.post(callback);
+    }
+
+    @NonNull
+    Executor getMainExecutor() {
+        return mMainExecutor;
+    }
+
+    @NonNull
+    WifiEventBus<WifiListEvent> getWifiListBus() {
+        return mWifiListBus;
+    }
+
+    @NonNull
+    WifiEventBus<Integer> getWifiStateBus() {
+        return mWifiStateBus;
+    }
+
+    @NonNull
+    WifiEventBus<Integer> getConnectionStateBus() {
+        return mConnectionStateBus;
+    }
+
+    @NonNull
+    WifiEventBus<WifiNetwork> getWifiNetworkBus() {
+        return mWifiNetworkBus;
+    }
+
+    @NonNull
+    WifiNetwork getWifiNetwork() {
+        return mWifiNetwork;
+    }
+
+    @NonNull
+    PublishedWifiList getPublishedWifiList() {
+        return mPublishedWifiList;
+    }
+
+    /**
+     * 在事件循环线程中给新的订阅者补发当前的 Wi-Fi 列表
+     */
+    void replayWifiList(@NonNull final WifiEventBus.Subscriber<WifiListEvent> subscriber) {
+        mLoop.post(() -> {
+            final PublishedWifiList published = mPublishedWifiList;
+            if (!published.isEmpty()) {
+                final int state = published.cached ? WifiOperating.RESULT_CACHED : WifiOperating.RESULT_SUCCESS;
+                subscriber.offer(new WifiListEvent(state, published.sorted()));
+            }
+        });
+    }
+
+    /**
+     * 还原出的旧列表立即补发给新的订阅者，再刷新一次，不必等待新的结果
+     */
+    void replayCachedWifiList(@NonNull final WifiEventBus.Subscriber<WifiListEvent> subscriber) {
+        mLoop.post(() -> {
+            final PublishedWifiList published = mPublishedWifiList;
+            if (subscriber.isCancelled() || published.isEmpty()) {
+                return;
+            }
+            if (published.cached) {
+                subscriber.offer(new WifiListEvent(WifiOperating.RESULT_CACHED, published.sorted()));
+            }
+            handleScanResultsAvailable(true);
+        });
+    }
+
+    /**
+     * 在事件循环线程中给新的订阅者补发当前的 Wi-Fi 状态
+     */
+    void replayWifiState(@NonNull final WifiEventBus.Subscriber<Integer> subscriber) {
+        mLoop.post(() -> subscriber.offer(getWifiCurState()));
+    }
+
+    /**
+     * 在事件循环线程中给新的订阅者补发当前的连接状态，还没有收到过连接状态时不补发
+     */
+    void replayConnectionState(@NonNull final WifiEventBus.Subscriber<Integer> subscriber) {
+        mLoop.post(() -> {
+            if (mHasConnectionState) {
+                subscriber.offer(mConnectionState);
+            }
+        });
+    }
+
+    /**
+     * 在事件循环线程中给新的订阅者补发当前的 Wi-Fi 网络
+     */
+    void replayWifiNetwork(@NonNull final WifiEventBus.Subscriber<WifiNetwork> subscriber) {
+        mLoop.post(() -> subscriber.offer(mWifiNetwork));
+    }
+
+    /**
+     * 需要在后台线程中排好序的 Wi-Fi 个数
+     */
+    private int getSortLimit() {
+        if (mWifiListBus.hasSubscribers()) {
+            return Integer.MAX_VALUE;
+        }
+        int sortLimit = 0;
+        for (final WifiHelper handle : mHandles) {
+            sortLimit = Math.max(sortLimit, handle.getWifiWindowEnd());
+        }
+        return sortLimit;
+    }
+
+    /**
+     * 在后台线程中刷新 Wi-Fi 列表，结果回到事件循环线程中发布。<br/>
+     * 只在事件循环线程中调用
+     *
+     * @param initial 首次刷新，新的 Wi-Fi 列表为空时不回调；当前是还原的快照时保留快照
+     */
+    private void refreshWifiList(final boolean initial) {
+        final WifiPipeline pipeline = mWifiPipeline;
+        // 自定义的 rank 环节没办法在读取时补排，需要一次排好全部 Wi-Fi，发布后原样使用
+        final int sortLimit = pipeline.isDefaultRank() ? getSortLimit() : Integer.MAX_VALUE;
+        GetWifiListAsyncTask.execute(mContext, mCurWifiNetworkInfo, mLoop, pipeline, sortLimit, mScanResultAging, mClock, mOuiRegistry, mScanRules, (wifiList, hiddenWifiList) -> {
+            if (initial) {
+                if (wifiList.isEmpty() && mPublishedWifiList.cached) {
+                    // 系统还没有扫描结果，先保留已经回调出去的快照，等扫描结果广播触发的刷新再替换，
+                    // 否则界面上还是快照，getWifiList() 却已经是空列表了
+                    return;
+                }
+                setWifiList(wifiList, hiddenWifiList, sortLimit);
+                // 这时候主动从系统获取的 wifiList 如果还是 empty，足以说明 wifiList 没变了。。
+                if (!wifiList.isEmpty()) {
+                    invokeWifiListCallback(WifiOperating.RESULT_SUCCESS);
+                }
+                return;
+            }
+            final PublishedWifiList published = mPublishedWifiList;
+            if (published.isEmpty() && wifiList.isEmpty()) {
+                // wifiList 没变，就不用回调了
+                mPublishedWifiList = new PublishedWifiList(wifiList, 0, hiddenWifiList, published.timestamp, published.cached);
+                return;
+            }
+            setWifiList(wifiList, hiddenWifiList, sortLimit);
+            final int state;
+            if (!WifiSupport.isLocationServiceEnabled(mContext)) {
+                state = WifiOperating.LOCATION_SERVICE_DISABLED;
+            } else if (!WifiSupport.isLocationPermissionGranted(mContext)) {
+                state = WifiOperating.REQUIRE_LOCATION_PERMISSION;
+            } else {
+                state = WifiOperating.RESULT_SUCCESS;
+            }
+            // 回调 Wi-Fi 列表
+            invokeWifiListCallback(state);
+        });
+    }
+
+    /**
+     * 发布新的 Wi-Fi 列表，发布后不能再修改 wifiList。<br/>
+     * 只在事件循环线程中调用
+     *
+     * @param orderedCount wifiList 中前多少个 Wi-Fi 已经排好序
+     */
+    private void setWifiList(@NonNull final List<Wifi> wifiList, @NonNull final List<Wifi> hiddenWifiList,
+                             final int orderedCount) {
+        final long timestamp = System.currentTimeMillis();
+        final PublishedWifiList published = new PublishedWifiList(wifiList, orderedCount, hiddenWifiList, timestamp, false);
+        mPublishedWifiList = published;
+        final WifiSearchIndex wifiSearchIndex = mWifiSearchIndex;
+        if (wifiSearchIndex != null) {
+            wifiSearchIndex.update(published);
+        }
+        saveWifiSnapshot(published);
+        final ScanHistoryStore scanHistoryStore = mScanHistoryStore;
+        if (scanHistoryStore != null && !wifiList.isEmpty()) {
+            scanHistoryStore.append(timestamp, wifiList);
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用，还原上一次保存的 Wi-Fi 列表
+     */
+    private void restoreWifiSnapshot() {
+        final WifiSnapshotStore.Restored restored = mWifiSnapshotStore.load();
+        if (restored != null && !restored.wifiList.isEmpty() && mPublishedWifiList.isEmpty()) {
+            mPublishedWifiList = new PublishedWifiList(restored.wifiList, restored.wifiList.size(),
+                    new ArrayList<>(), restored.timestamp, true);
+        }
+    }
+
+    /**
+     * 在后台线程中保存 Wi-Fi 列表的快照。<br/>
+     * 保存依次执行，不会乱序；前一次还没开始时只保存最新的列表。
+     */
+    private void saveWifiSnapshot(@NonNull final PublishedWifiList published) {
+        if (mPendingSnapshot.getAndSet(published) == null) {
+            AsyncTask.SERIAL_EXECUTOR.execute(() -> {
+                final PublishedWifiList pending = mPendingSnapshot.getAndSet(null);
+                // 在后台取全部有序的列表，已经全部有序时不会再排序，保留 rank 阶段产生的顺序
+                mWifiSnapshotStore.save(WifiSnapshot.of(pending.sorted()), pending.timestamp);
+            });
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     */
+    private void invokeWifiListCallback(@WifiListState final int state) {
+        final PublishedWifiList published = mPublishedWifiList;
+        if (mWifiListBus.hasSubscribers()) {
+            // 在事件循环线程中排好序，所有订阅者共用同一个不可变的列表
+            mWifiListBus.publish(new WifiListEvent(state, published.sorted()));
+        }
+        for (final WifiHelper handle : mHandles) {
+            handle.invokeWifiWindowCallback(state, published);
+        }
+    }
+
+    /**
+     * 注册 Wi-Fi 相关信息的监听器。<br/>
+     * 仅在未注册时，此方法才会生效。只在事件循环线程中调用
+     * @see #unregister()
+     */
+    private void register() {
+        if (mWifiReceiver == null) {
+            final IntentFilter intentFilter = WifiReceiver.addFilterActions(new IntentFilter());
+            // 在事件循环线程中接收广播，SSID 解析、getConnectionInfo 这类 IPC 都不占用主线程
+            mContext.registerReceiver(mWifiReceiver = new WifiReceiver(mWifiReceiverCallback), intentFilter, null, mLoop);
+            if (WifiSupport.isOverApi21()) {
+                mWifiNetworkCallback = new WifiNetworkCallback(mLoop, this::handleWifiNetworkChanged);
+                WifiSupport.getConnectivityManager(mContext)
+                        .registerNetworkCallback(WifiNetworkCallback.getNetworkRequest(), mWifiNetworkCallback);
+            }
+        }
+    }
+
+    /**
+     * 反注册 Wi-Fi 相关信息的监听器。<br/>
+     * 仅在已注册时，此方法才会生效。只在事件循环线程中调用
+     * @see #register()
+     */
+    private void unregister() {
+        if (mWifiReceiver != null) {
+            mContext.unregisterReceiver(mWifiReceiver);
+            mWifiReceiver = null;
+        }
+        if (mWifiNetworkCallback != null) {
+            WifiSupport.getConnectivityManager(mContext).unregisterNetworkCallback(mWifiNetworkCallback);
+            mWifiNetworkCallback = null;
+            // 重新注册时系统会再回调一次当前的网络
+            mWifiNetwork = WifiNetwork.DISCONNECTED;
+        }
+    }
+
+    /**
+     * @see WifiHelper#scanWifi()
+     */
+    @ScanResult
+    int scanWifi() {
+        // 检查定位服务是否已开启
+        if (!WifiSupport.isLocationServiceEnabled(mContext)) {
+            return WifiOperating.LOCATION_SERVICE_DISABLED;
+        }
+        // 检查是否已授权定位权限
+        if (!WifiSupport.isLocationPermissionGranted(mContext)) {
+            return WifiOperating.REQUIRE_LOCATION_PERMISSION;
+        }
+        if (isScanAlwaysAvailable() || mWifiManager.isWifiEnabled()) {
+            if (!mWifiManager.startScan()) {
+                return WifiOperating.ERROR_INTERNAL;
+            }
+            mLoop.post(this::armScanTimeout);
+            return WifiOperating.RESULT_SUCCESS;
+        }
+        return WifiOperating.WIFI_NOT_ENABLED;
+    }
+
+    /**
+     * 只在事件循环线程中调用。扫描结果的广播迟迟不来时（例如被系统限制了扫描频率），
+     * 用系统现有的扫描结果刷新一次，不让等待刷新的界面一直等下去
+     */
+    private void armScanTimeout() {
+        if (mScanTimeout != null) {
+            mScanTimeout.cancel();
+        }
+        mScanTimeout = mTimer.schedule(SCAN_TIMEOUT_MILLIS, () -> {
+            mScanTimeout = null;
+            Log.w(TAG, "scanWifi -> 等待扫描结果超时，使用现有的扫描结果");
+            handleScanResultsAvailable(true);
+        });
+    }
+
+    /**
+     * @see WifiHelper#switchWifi(boolean, WifiHelper.WifiSwitchCallback)
+     */
+    void switchWifi(final boolean switchOn, @NonNull final WifiHelper.WifiSwitchCallback callback) {
+        final WifiHelper.WifiSwitchCallback mainCallback = success -> mMainHandler.post(() -> callback.onSwitchDone(success));
+        mLoop.post(() -> handleSwitchWifi(switchOn, mainCallback));
+    }
+
+    /**
+     * 命令在事件循环线程中依次执行，判断 Wi-Fi 状态和设置回调之间不会被其它命令打断
+     */
+    private void handleSwitchWifi(final boolean switchOn, @NonNull final WifiHelper.WifiSwitchCallback userCallback) {
+        final TimedSwitchCallback callback = new TimedSwitchCallback(userCallback);
+        final int wifiCurState = mWifiManager.getWifiState();
+        if (wifiCurState == WifiManager.WIFI_STATE_UNKNOWN) {
+            // Wi-Fi 状态未知，无法操作
+            callback.onSwitchDone(false);
+            return;
+        }
+        if (switchOn) {
+            // 用户要求打开
+            if (wifiCurState == WifiManager.WIFI_STATE_ENABLED) {
+                // 已经打开
+                mWifiSwitchOnCallback = null;
+                callback.onSwitchDone(true);
+            } else if (wifiCurState == WifiManager.WIFI_STATE_ENABLING) {
+                // 正在打开
+                mWifiSwitchOnCallback = callback;
+            } else if (wifiCurState == WifiManager.WIFI_STATE_DISABLING) {
+                // 正在关闭，等关闭后再打开
+                mWifiSwitchOffCallback = off -> {
+                    // 关闭成功才能执行打开操作
+                    final boolean success = off && !callback.isDone() && mWifiManager.setWifiEnabled(true);
+                    callback.onSwitchDone(success);
+                };
+            } else {
+                // 当前已关闭，直接打开
+                mWifiSwitchOnCallback = callback;
+                final boolean success = mWifiManager.setWifiEnabled(true);
+                if (!success) {
+                    mWifiSwitchOnCallback = null;
+                    callback.onSwitchDone(false);
+                }
+            }
+        } else {
+            // 用户要求关闭
+            if (wifiCurState == WifiManager.WIFI_STATE_DISABLED) {
+                // 已经关闭
+                mWifiSwitchOffCallback = null;
+                callback.onSwitchDone(true);
+            } else if (wifiCurState == WifiManager.WIFI_STATE_DISABLING) {
+                // 正在关闭
+                mWifiSwitchOffCallback = callback;
+            } else if (wifiCurState == WifiManager.WIFI_STATE_ENABLING) {
+                // 正在打开，等打开后再关闭
+                mWifiSwitchOnCallback = on -> {
+                    // 打开成功才能执行关闭操作
+                    final boolean success = on && !callback.isDone() && mWifiManager.setWifiEnabled(false);
+                    callback.onSwitchDone(success);
+                };
+            } else {
+                // 当前已打开，直接关闭
+                mWifiSwitchOffCallback = callback;
+                final boolean success = mWifiManager.setWifiEnabled(false);
+                if (!success) {
+                    mWifiSwitchOffCallback = null;
+                    callback.onSwitchDone(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * 只回调一次的开关回调，超时后回调失败。只在事件循环线程中使用
+     */
+    private final class TimedSwitchCallback implements WifiHelper.WifiSwitchCallback, Runnable {
+        @NonNull
+        private final WifiHelper.WifiSwitchCallback mCallback;
+        @NonNull
+        private final WifiTimer.Timeout mTimeout;
+        private boolean mDone = false;
+
+        TimedSwitchCallback(@NonNull final WifiHelper.WifiSwitchCallback callback) {
+            mCallback = callback;
+            mTimeout = mTimer.schedule(SWITCH_TIMEOUT_MILLIS, this);
+        }
+
+        boolean isDone() {
+            return mDone;
+        }
+
+        @Override
+        public void onSwitchDone(final boolean success) {
+            if (mDone) {
+                return;
+            }
+            mDone = true;
+            mTimeout.cancel();
+            mCallback.onSwitchDone(success);
+        }
+
+        /**
+         * 超时
+         */
+        @Override
+        public void run() {
+            if (mDone) {
+                return;
+            }
+            Log.w(TAG, "switchWifi -> 等待 Wi-Fi 状态变化超时");
+            if (mWifiSwitchOnCallback == this) {
+                mWifiSwitchOnCallback = null;
+            }
+            if (mWifiSwitchOffCallback == this) {
+                mWifiSwitchOffCallback = null;
+            }
+            onSwitchDone(false);
+        }
+    }
+
+    /**
+     * 不论如何，调用此方法后，{@link #mWifiSwitchOnCallback} 总是会被置为 null。
+     */
+    @Nullable
+    private WifiHelper.WifiSwitchCallback takeWifiSwitchOnCallback() {
+        final WifiHelper.WifiSwitchCallback wifiSwitchOnCallback = mWifiSwitchOnCallback;
+        mWifiSwitchOnCallback = null;
+        return wifiSwitchOnCallback;
+    }
+
+    /**
+     * 不论如何，调用此方法后，{@link #mWifiSwitchOffCallback} 总是会被置为 null。
+     */
+    @Nullable
+    private WifiHelper.WifiSwitchCallback takeWifiSwitchOffCallback() {
+        final WifiHelper.WifiSwitchCallback wifiSwitchOffCallback = mWifiSwitchOffCallback;
+        mWifiSwitchOffCallback = null;
+        return wifiSwitchOffCallback;
+    }
+
+    /**
+     * @see WifiHelper#setClock(WifiClock)
+     */
+    void setClock(@NonNull final WifiClock clock) {
+        mClock = clock;
+        mLoop.post(() -> mTimer.setClock(clock));
+    }
+
+    void setScanResultAging(@Nullable final ScanResultAging aging) {
+        mScanResultAging = aging;
+    }
+
+    void setWifiPipeline(@NonNull final WifiPipeline pipeline) {
+        mWifiPipeline = pipeline;
+    }
+
+    @NonNull
+    WifiPipeline getWifiPipeline() {
+        return mWifiPipeline;
+    }
+
+    void setScanRules(@Nullable final ScanRules scanRules) {
+        mScanRules = scanRules;
+    }
+
+    void setOuiRegistry(@Nullable final OuiRegistry ouiRegistry) {
+        mOuiRegistry = ouiRegistry;
+    }
+
+    void setScanHistoryStore(@Nullable final ScanHistoryStore scanHistoryStore) {
+        mScanHistoryStore = scanHistoryStore;
+    }
+
+    @NonNull
+    WifiSearchIndex getWifiSearchIndex() {
+        final WifiSearchIndex wifiSearchIndex = mWifiSearchIndex;
+        if (wifiSearchIndex != null) {
+            return wifiSearchIndex;
+        }
+        // 在调用方线程中建好索引再发布；建索引期间如果有新列表发布，交给事件循环线程补一次更新，
+        // 之后的更新都在事件循环线程中进行，不会被旧列表覆盖
+        final PublishedWifiList published = mPublishedWifiList;
+        final WifiSearchIndex created = new WifiSearchIndex();
+        created.update(published);
+        mWifiSearchIndex = created;
+        if (mPublishedWifiList != published) {
+            mLoop.post(() -> created.update(mPublishedWifiList));
+        }
+        return created;
+    }
+
+    @WifiState
+    int getWifiCurState() {
+        return mWifiManager.getWifiState();
+    }
+
+    @WifiState
+    int getWifiPreState() {
+        return mWifiPreState;
+    }
+
+    /**
+     * @see WifiSupport#isScanAlwaysAvailable(Context)
+     */
+    boolean isScanAlwaysAvailable() {
+        if (!WifiSupport.isOverApi18()) {
+            return false;
+        }
+        return mWifiManager.isScanAlwaysAvailable();
+    }
+
+    WifiInfo getConnectionInfo() {
+        return mWifiManager.getConnectionInfo();
+    }
+
+    DhcpInfo getDhcpInfo() {
+        return mWifiManager.getDhcpInfo();
+    }
+
+    /**
+     * @param SSID 隐藏网络的真实 SSID，为 null 时使用 wifi.SSID
+     * @see WifiHelper#connectWifi(Wifi, String, String, WifiHelper.WifiConnectCallback.Callback)
+     */
+    void connectWifi(@NonNull final Wifi wifi, @Nullable final String SSID, @Nullable final String password,
+                     @NonNull final WifiHelper.WifiConnectCallback.Callback callback) {
+        final WifiHelper.WifiConnectCallback.Callback mainCallback = success -> mMainHandler.post(() -> callback.onConnected(success));
+        mLoop.post(() -> handleConnectWifi(wifi, SSID, password, mainCallback));
+    }
+
+    private void handleConnectWifi(@NonNull final Wifi wifi, @Nullable final String SSID, @Nullable final String password,
+                                   @NonNull final WifiHelper.WifiConnectCallback.Callback callback) {
+        // 新的连接请求取代还在退避中的重试
+        final WifiHelper.WifiConnectCallback connectRetry = mConnectRetry;
+        if (connectRetry != null) {
+            mConnectRetry = null;
+            connectRetry.invoke(false);
+        }
+        if (wifi.isCurrent()) {
+            callback.onConnected(true);
+            return;
+        }
+        if (wifi.isRestored()) {
+            // 从快照还原的 Wi-Fi 没有配置信息，无法判断是否已保存，等新的结果到来后再连接
+            handleScanResultsAvailable(true);
+            callback.onConnected(false);
+            return;
+        }
+        // 隐藏网络扫描不到 SSID，已保存的从配置中取，未保存的只能由调用方提供
+        final String targetSSID;
+        if (!TextUtils.isEmpty(SSID)) {
+            targetSSID = SSID;
+        } else if (wifi.isSaved()) {
+            targetSSID = WifiSupport.getRealSSID(wifi.configuration.SSID);
+        } else {
+            targetSSID = wifi.SSID;
+        }
+        if (TextUtils.isEmpty(targetSSID)) {
+            Log.w(TAG, "connectWifi -> 未保存的隐藏网络需要提供 SSID：" + wifi.getBSSID());
+            callback.onConnected(false);
+            return;
+        }
+        final WifiConfiguration wifiConfig;
+        final int networkId;
+        if (wifi.isSaved()) {
+            wifiConfig = wifi.configuration;
+            if (wifi.isConfigDisabled()) {
+                WifiSupport.wifiPwdConfig(wifiConfig, wifi, password);
+                networkId = mWifiManager.updateNetwork(wifiConfig);
+            } else {
+                networkId = wifiConfig.networkId;
+            }
+        } else {
+            wifiConfig = new WifiConfiguration();
+            wifiConfig.SSID = "\"" + targetSSID + "\"";
+            // 隐藏网络不广播 SSID，需要主动探测
+            wifiConfig.hiddenSSID = wifi.isHidden();
+            WifiSupport.wifiPwdConfig(wifiConfig, wifi, password);
+            networkId = mWifiManager.addNetwork(wifiConfig);
+        }
+        final WifiHelper.WifiConnectCallback connectCallback = WifiHelper.WifiConnectCallback.with(targetSSID, callback);
+        connectCallback.mNetworkId = networkId;
+        startConnectAttempt(connectCallback);
+    }
+
+    /**
+     * 只在事件循环线程中调用，第一次连接和每次重试都从这里开始
+     */
+    private void startConnectAttempt(@NonNull final WifiHelper.WifiConnectCallback connectCallback) {
+        final WifiHelper.WifiConnectCallback superseded = mWifiConnectCallback;
+        if (superseded != null && superseded != connectCallback) {
+            // 被新的连接请求取代，取消它的超时并回调失败，不计入连接统计
+            superseded.invoke(false);
+        }
+        mWifiConnectCallback = connectCallback;
+        connectCallback.mTimeout = mTimer.schedule(CONNECT_TIMEOUT_MILLIS, () -> {
+            Log.w(TAG, "connectWifi -> 等待连接结果超时");
+            onConnectFailed(connectCallback, ConnectFailure.TIMEOUT);
+        });
+        if (!mWifiManager.enableNetwork(connectCallback.mNetworkId, true)) {
+            onConnectFailed(connectCallback, ConnectFailure.REJECTED);
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     */
+    private void onConnectSucceeded(@NonNull final WifiHelper.WifiConnectCallback connectCallback) {
+        if (!connectCallback.finish()) {
+            return;
+        }
+        if (mWifiConnectCallback == connectCallback) {
+            mWifiConnectCallback = null;
+        }
+        mConnectStats.recordSuccess(connectCallback.getTargetSSID());
+        connectCallback.deliver(true);
+    }
+
+    /**
+     * 只在事件循环线程中调用。记录失败的原因，策略允许时退避后重试，否则回调失败
+     */
+    private void onConnectFailed(@NonNull final WifiHelper.WifiConnectCallback connectCallback,
+                                 @ConnectFailureReason final int reason) {
+        if (!connectCallback.finish()) {
+            return;
+        }
+        final String SSID = connectCallback.getTargetSSID();
+        // 已经被新的连接请求取代的，不计入统计，也不再重试
+        final boolean current = mWifiConnectCallback == connectCallback;
+        if (current) {
+            mWifiConnectCallback = null;
+            mConnectStats.recordFailure(SSID, reason);
+        }
+        final ConnectRetryPolicy policy = mConnectRetryPolicy;
+        if (current && policy != null && policy.shouldRetry(reason, connectCallback.mAttempt)) {
+            final WifiHelper.WifiConnectCallback retry = connectCallback.retry();
+            final long backoffMillis = policy.getBackoffMillis(connectCallback.mAttempt, mConnectStats.get(SSID), mRandom);
+            Log.w(TAG, "connectWifi -> 第 " + connectCallback.mAttempt + " 次连接失败（" + reason + "），"
+                    + backoffMillis + "ms 后重试");
+            mConnectRetry = retry;
+            retry.mTimeout = mTimer.schedule(backoffMillis, () -> {
+                mConnectRetry = null;
+                startConnectAttempt(retry);
+            });
+            return;
+        }
+        handleScanResultsAvailable(true);
+        connectCallback.deliver(false);
+    }
+
+    /**
+     * 只在事件循环线程中调用，连接断开时判断失败的原因
+     */
+    @ConnectFailureReason
+    private int classifyConnectFailure(@NonNull final WifiHelper.WifiConnectCallback connectCallback) {
+        final List<WifiConfiguration> configuredNetworks = mWifiManager.getConfiguredNetworks();
+        if (configuredNetworks != null) {
+            for (final WifiConfiguration config : configuredNetworks) {
+                if (config.networkId == connectCallback.mNetworkId) {
+                    if (config.status == WifiConfiguration.Status.DISABLED) {
+                        // 认证失败后系统会停用这个配置
+                        return ConnectFailure.AUTH;
+                    }
+                    return connectCallback.mObtainingIp ? ConnectFailure.DHCP : ConnectFailure.ASSOCIATION;
+                }
+            }
+            // 配置已经不在了，被系统或其他应用移除，再连也没有意义
+            return ConnectFailure.REJECTED;
+        }
+        return connectCallback.mObtainingIp ? ConnectFailure.DHCP : ConnectFailure.ASSOCIATION;
+    }
+
+    /**
+     * @see WifiHelper#setConnectRetryPolicy(ConnectRetryPolicy)
+     */
+    void setConnectRetryPolicy(@Nullable final ConnectRetryPolicy policy) {
+        mConnectRetryPolicy = policy;
+    }
+
+    /**
+     * @see WifiHelper#getConnectStats(String)
+     */
+    @Nullable
+    ConnectStats getConnectStats(@NonNull final String SSID) {
+        return mConnectStats.get(SSID);
+    }
+
+    /**
+     * @see WifiHelper#removeWifiConfig(Wifi)
+     */
+    boolean removeWifiConfig(@NonNull final Wifi wifi) {
+        final boolean success;
+        if (wifi.isSaved()) {
+            final int networkId = wifi.configuration.networkId;
+            success = mWifiManager.removeNetwork(networkId);
+        } else {
+            success = false;
+        }
+        if (success) {
+            mLoop.post(() -> handleScanResultsAvailable(true));
+        }
+        return success;
+    }
+
+    /**
+     * 只在事件循环线程中调用，暂停或反注册期间只记下有待刷新
+     *
+     * @see WifiReceiver.Callback#onScanResultsAvailable(boolean)
+     */
+    private void handleScanResultsAvailable(final boolean isUpdated) {
+        // Wi-Fi 列表已更新，或是 Wi-Fi 列表还未拿到，都要重新获取
+        if (!isUpdated && !mPublishedWifiList.isEmpty()) {
+            return;
+        }
+        if (mWifiReceiver == null) {
+            mRefreshPending = true;
+            return;
+        }
+        if (mPaused) {
+            mRefreshPending = true;
+            mSkippedRefreshCount++;
+            return;
+        }
+        refreshWifiList(false);
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     *
+     * @see WifiReceiver.Callback#onWifiStateChanged(int, int)
+     */
+    private void handleWifiStateChanged(@WifiState final int curState, @WifiState final int previousState) {
+        mWifiPreState = previousState;
+        // 回调 Wi-Fi 状态
+        mWifiStateBus.publish(curState);
+        if (curState == WifiManager.WIFI_STATE_DISABLED || curState == WifiManager.WIFI_STATE_UNKNOWN) {
+            // Wi-Fi 关闭后，如果 Wi-Fi 不允许关闭时扫描，则清空 Wi-Fi 列表
+            if (!isScanAlwaysAvailable()) {
+                setWifiList(new ArrayList<>(), new ArrayList<>(), 0);
+                invokeWifiListCallback(WifiOperating.RESULT_SUCCESS);
+            }
+            final WifiHelper.WifiSwitchCallback wifiSwitchOffCallback = takeWifiSwitchOffCallback();
+            if (wifiSwitchOffCallback != null) {
+                final boolean success = curState != WifiManager.WIFI_STATE_UNKNOWN;
+                wifiSwitchOffCallback.onSwitchDone(success);
+            }
+        }
+        if (curState == WifiManager.WIFI_STATE_ENABLED || curState == WifiManager.WIFI_STATE_UNKNOWN) {
+            final WifiHelper.WifiSwitchCallback wifiSwitchOnCallback = takeWifiSwitchOnCallback();
+            if (wifiSwitchOnCallback != null) {
+                final boolean success = curState != WifiManager.WIFI_STATE_UNKNOWN;
+                wifiSwitchOnCallback.onSwitchDone(success);
+            }
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     *
+     * @see WifiReceiver.Callback#onWifiConnectionStateChanged(NetworkInfo)
+     */
+    private void handleWifiConnectionStateChanged(@NonNull final NetworkInfo networkInfo) {
+        mCurWifiNetworkInfo = networkInfo;
+        final int connectionState = WifiConnection.from(networkInfo);
+        // 网络回调已经报告连接成功，广播迟到的连接中间状态已经过时
+        final boolean stale = mWifiNetwork.isConnected() && mConnectionState == WifiConnection.CONNECTED
+                && connectionState != WifiConnection.DISCONNECTED && connectionState != WifiConnection.SUSPENDED;
+        if (!stale) {
+            publishConnectionState(connectionState);
+        }
+        handleScanResultsAvailable(true);
+
+        final WifiHelper.WifiConnectCallback connectCallback = mWifiConnectCallback;
+        if (connectCallback == null) {
+            return;
+        }
+        final String connectingSSID;
+        // 在 Android 9.0 以上，此处拿到的 NetworkInfo.getExtraInfo 可能为空，
+        // 为保险起见，增加一个从 WifiInfo 中获取 SSID 的方法。
+        if (!TextUtils.isEmpty(networkInfo.getExtraInfo())) {
+            connectingSSID = WifiSupport.getRealSSID(networkInfo.getExtraInfo());
+        } else {
+            connectingSSID = WifiSupport.getRealSSID(getConnectionInfo().getSSID());
+        }
+        if (!connectCallback.compareSSID(connectingSSID)) {
+            return;
+        }
+        if (WifiConnection.OBTAINING_IPADDR == connectionState) {
+            // 之后再断开，就是获取 IP 地址失败
+            connectCallback.mObtainingIp = true;
+        } else if (WifiConnection.CONNECTED == connectionState) {
+            onConnectSucceeded(connectCallback);
+        } else if (WifiConnection.DISCONNECTED == connectionState) {
+            onConnectFailed(connectCallback, classifyConnectFailure(connectCallback));
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用
+     *
+     * @see WifiNetworkCallback.Listener#onWifiNetworkChanged(WifiNetwork)
+     */
+    private void handleWifiNetworkChanged(@NonNull final WifiNetwork wifiNetwork) {
+        final boolean wasConnected = mWifiNetwork.isConnected();
+        mWifiNetwork = wifiNetwork;
+        mWifiNetworkBus.publish(wifiNetwork);
+        if (wasConnected == wifiNetwork.isConnected()) {
+            // 只是能力或链路信息变化
+            return;
+        }
+        if (!wifiNetwork.isConnected()) {
+            publishConnectionState(WifiConnection.DISCONNECTED);
+            return;
+        }
+        publishConnectionState(WifiConnection.CONNECTED);
+        handleScanResultsAvailable(true);
+        // 不等广播，直接结束正在连接的回调；断开时无法确定是哪个 SSID，仍由广播判断
+        final WifiHelper.WifiConnectCallback connectCallback = mWifiConnectCallback;
+        if (connectCallback != null
+                && connectCallback.compareSSID(WifiSupport.getRealSSID(getConnectionInfo().getSSID()))) {
+            onConnectSucceeded(connectCallback);
+        }
+    }
+
+    /**
+     * 只在事件循环线程中调用，与上一次发布的相同时不再发布
+     */
+    private void publishConnectionState(@ConnectionState final int connectionState) {
+        if (mHasConnectionState && mConnectionState == connectionState) {
+            return;
+        }
+        mHasConnectionState = true;
+        mConnectionState = connectionState;
+        mConnectionStateBus.publish(connectionState);
+    }
+
+    /**
+     * 广播在事件循环线程中接收，直接处理
+     *
+     * @see #register()
+     */
+    private final WifiReceiver.Callback mWifiReceiverCallback = new WifiReceiver.Callback() {
+        @Override
+        public boolean onScanResultsAvailable(boolean isUpdated) {
+            if (mScanTimeout != null) {
+                mScanTimeout.cancel();
+                mScanTimeout = null;
+            }
+            handleScanResultsAvailable(isUpdated);
+            return true;
+        }
+
+        @Override
+        public boolean onWifiStateChanged(int curState, int previousState) {
+            handleWifiStateChanged(curState, previousState);
+            return true;
+        }
+
+        @Override
+        public boolean onWifiConnectionStateChanged(@NonNull NetworkInfo networkInfo) {
+            handleWifiConnectionStateChanged(networkInfo);
+            return true;
+        }
+    };
+
+    /**
+     * 宿主 Activity 的可见性变化，在主线程中回调
+     */
+    private final Application.ActivityLifecycleCallbacks mHostLifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(Activity activity) {
+            onHostVisibilityChanged(activity, true);
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            onHostVisibilityChanged(activity, false);
+        }
+
+        private void onHostVisibilityChanged(@NonNull final Activity activity, final boolean visible) {
+            boolean changed = false;
+            for (final WifiHelper handle : mHandles) {
+                changed |= handle.onHostVisibilityChanged(activity, visible);
+            }
+            if (changed) {
+                mLoop.post(WifiEngine.this::updateActive);
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+        @Override
+        public void onActivityResumed(Activity activity) {}
+
+        @Override
+        public void onActivityPaused(Activity activity) {}
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {}
+    };
+
+    /**
+     * 一次 Wi-Fi 列表的回调，发布后不再修改
+     */
+    static final class WifiListEvent {
+        @WifiListState
+        final int state;
+        /** 已排好序，不可修改 */
+        @NonNull
+        final List<Wifi> wifiList;
+
+        WifiListEvent(@WifiListState final int state, @NonNull final List<Wifi> wifiList) {
+            this.state = state;
+            this.wifiList = wifiList;
+        }
+    }
+}
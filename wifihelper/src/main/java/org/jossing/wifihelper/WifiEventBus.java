@@ -0,0 +1,197 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.jossing.wifihelper.annotation.ConflationPolicy;
+import org.jossing.wifihelper.enumerate.Conflation;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 多订阅者的事件分发，不加锁：
+ * <ul>
+ *     <li>订阅者列表是 {@link CopyOnWriteArrayList}，发布时遍历快照，订阅和取消不会阻塞发布</li>
+ *     <li>发布只是把事件放进各个订阅者自己的队列（或替换最新事件），再把排空任务交给订阅者的 Executor，
+ *         处理慢的订阅者只会让自己的事件积压，不会拖慢其它订阅者和发布方</li>
+ *     <li>同一订阅者的事件由一个排空任务依次投递，回调不会并发执行，顺序与发布顺序一致</li>
+ * </ul>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiEventBus<E> {
+    private static final String TAG = "WifiEventBus";
+
+    @NonNull
+    private final CopyOnWriteArrayList<Subscriber<E>> mSubscribers = new CopyOnWriteArrayList<>();
+    private volatile boolean mClosed = false;
+
+    @NonNull
+    Subscriber<E> subscribe(@NonNull final Executor executor,
+                            @ConflationPolicy final int conflation,
+                            @NonNull final Listener<E> listener) {
+        return subscribe(executor, conflation, listener, null);
+    }
+
+    /**
+     * @param onClose 总线关闭时在 {@link #close()} 的调用线程中执行，已经关闭时立即执行
+     */
+    @NonNull
+    Subscriber<E> subscribe(@NonNull final Executor executor,
+                            @ConflationPolicy final int conflation,
+                            @NonNull final Listener<E> listener,
+                            @Nullable final Runnable onClose) {
+        final Subscriber<E> subscriber = new Subscriber<>(this, executor, conflation, listener, onClose);
+        mSubscribers.add(subscriber);
+        // 与 close() 并发时，由这里补上关闭
+        if (mClosed) {
+            subscriber.close();
+        }
+        return subscriber;
+    }
+
+    boolean hasSubscribers() {
+        return !mSubscribers.isEmpty();
+    }
+
+    /**
+     * 发布事件，只是入队，不会等待任何回调执行
+     */
+    void publish(@NonNull final E event) {
+        for (final Subscriber<E> subscriber : mSubscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * 关闭总线，取消所有订阅，之后的订阅会立即被关闭
+     */
+    void close() {
+        mClosed = true;
+        for (final Subscriber<E> subscriber : mSubscribers) {
+            subscriber.close();
+        }
+    }
+
+    interface Listener<E> {
+        void onEvent(@NonNull final E event);
+    }
+
+    static final class Subscriber<E> implements WifiSubscription, Runnable {
+        @NonNull
+        private final WifiEventBus<E> mBus;
+        @NonNull
+        private final Executor mExecutor;
+        @ConflationPolicy
+        private final int mConflation;
+        @NonNull
+        private final Listener<E> mListener;
+        @Nullable
+        private final Runnable mOnClose;
+        /** {@link Conflation#ALL} 时排队的事件 */
+        private final ConcurrentLinkedQueue<E> mQueue = new ConcurrentLinkedQueue<>();
+        /** {@link Conflation#LATEST} 时还没投递的最新事件 */
+        private final AtomicReference<E> mLatest = new AtomicReference<>();
+        /** 还没处理的发布次数，从 0 变为 1 的那次发布负责提交排空任务 */
+        private final AtomicInteger mPending = new AtomicInteger();
+        private volatile boolean mCancelled = false;
+
+        private Subscriber(@NonNull final WifiEventBus<E> bus, @NonNull final Executor executor,
+                           @ConflationPolicy final int conflation, @NonNull final Listener<E> listener,
+                           @Nullable final Runnable onClose) {
+            mBus = bus;
+            mExecutor = executor;
+            mConflation = conflation;
+            mListener = listener;
+            mOnClose = onClose;
+        }
+
+        /**
+         * 只投递给这一个订阅者
+         */
+        void offer(@NonNull final E event) {
+            if (mCancelled) {
+                return;
+            }
+            if (mConflation == Conflation.LATEST) {
+                mLatest.set(event);
+            } else {
+                mQueue.offer(event);
+            }
+            if (mPending.getAndIncrement() == 0) {
+                try {
+                    mExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // Executor 已经关闭，这个订阅者再也收不到事件了
+                    Log.w(TAG, "offer -> Executor 拒绝执行，取消订阅", e);
+                    cancel();
+                }
+            }
+        }
+
+        /**
+         * 排空任务，在订阅者的 Executor 中执行
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (mConflation == Conflation.LATEST) {
+                    final E event = mLatest.getAndSet(null);
+                    if (event != null) {
+                        deliver(event);
+                    }
+                } else {
+                    E event;
+                    while ((event = mQueue.poll()) != null) {
+                        deliver(event);
+                    }
+                }
+                missed = mPending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver(@NonNull final E event) {
+            if (mCancelled) {
+                return;
+            }
+            try {
+                mListener.onEvent(event);
+            } catch (RuntimeException e) {
+                // 不能让一个订阅者的异常中断排空，否则之后的事件都不会再投递
+                Log.e(TAG, "deliver -> 订阅者回调异常", e);
+            }
+        }
+
+        /**
+         * 取消订阅，并执行订阅时传入的 onClose
+         */
+        void close() {
+            final boolean wasCancelled = mCancelled;
+            cancel();
+            if (!wasCancelled && mOnClose != null) {
+                mOnClose.run();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            mBus.mSubscribers.remove(this);
+            mQueue.clear();
+            mLatest.set(null);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+}
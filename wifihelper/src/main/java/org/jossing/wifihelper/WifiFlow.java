@@ -0,0 +1,61 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+/**
+ * 与 java.util.concurrent.Flow（Reactive Streams）相同的发布/订阅接口。
+ * Flow 要到 Android 11 才有，这里照搬一份，需要时可以很容易地适配到 Flow 或 org.reactivestreams。
+ * <ul>
+ *     <li>订阅者通过 {@link Subscription#request(long)} 声明还能处理多少个事件，发布者不会超出请求量推送</li>
+ *     <li>请求量不足时的事件按订阅时指定的 {@link org.jossing.wifihelper.enumerate.Overflow} 策略缓冲或丢弃，内存有上限</li>
+ *     <li>同一订阅者的所有信号依次发出，不会并发</li>
+ * </ul>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#wifiListPublisher
+ */
+public final class WifiFlow {
+
+    private WifiFlow() {}
+
+    public interface Publisher<T> {
+
+        /**
+         * 订阅，之后会先收到 {@link Subscriber#onSubscribe(Subscription)}
+         */
+        void subscribe(@NonNull final Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+
+        void onSubscribe(@NonNull final Subscription subscription);
+
+        void onNext(@NonNull final T item);
+
+        /**
+         * 订阅因错误结束，之后不会再有任何信号
+         */
+        void onError(@NonNull final Throwable throwable);
+
+        /**
+         * 发布者结束（例如 {@link WifiHelper#destroy()}），之后不会再有任何信号
+         */
+        void onComplete();
+    }
+
+    public interface Subscription {
+
+        /**
+         * 再请求 n 个事件，可以多次调用，累加到 Long.MAX_VALUE 为止
+         *
+         * @param n 不大于 0 时以 {@link IllegalArgumentException} 结束订阅
+         */
+        void request(final long n);
+
+        /**
+         * 取消订阅，之后不再发出信号，缓冲的事件被丢弃
+         */
+        void cancel();
+    }
+}
@@ -2,28 +2,36 @@ package org.jossing.wifihelper;
 
 import android.app.Activity;
 import android.content.Context;
-import android.content.IntentFilter;
 import android.net.DhcpInfo;
-import android.net.NetworkInfo;
-import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 
+import org.jossing.wifihelper.annotation.ConflationPolicy;
+import org.jossing.wifihelper.annotation.OverflowStrategy;
 import org.jossing.wifihelper.annotation.WifiListState;
 import org.jossing.wifihelper.annotation.ScanResult;
 import org.jossing.wifihelper.annotation.WifiState;
-import org.jossing.wifihelper.enumerate.WifiConnection;
+import org.jossing.wifihelper.enumerate.Conflation;
+import org.jossing.wifihelper.enumerate.Overflow;
 import org.jossing.wifihelper.enumerate.WifiOperating;
+import org.jossing.wifihelper.history.ScanHistoryStore;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
- * Wi-Fi 相关功能的帮助类
+ * Wi-Fi 相关功能的帮助类。<br/>
+ * 每个界面持有一个 WifiHelper，它只是挂在进程内唯一的 {@link WifiEngine} 上的轻量句柄：
+ * 广播接收、Wi-Fi 列表的缓存和刷新在整个进程中只做一份，句柄只保存自己的回调和订阅。
+ * 查询方法读取引擎最近一次发布的不可变 Wi-Fi 列表，不会被正在进行的刷新阻塞。<br/>
+ * Wi-Fi 列表和 Wi-Fi 状态可以有任意多个订阅者，各自指定回调的 Executor 和合并策略；通过 set*Callback 设置的回调在主线程中执行。
  *
  * @author jossing
  * @date 2018/12/28
@@ -31,120 +39,296 @@ import java.util.Objects;
 public final class WifiHelper {
     private static final String TAG = "WifiHelper";
 
-    private Activity mActivity;
-    private WifiManager mWifiManager;
-    private WifiReceiver mWifiReceiver;
+    @NonNull
+    private final WifiEngine mEngine;
+    /** 宿主 Activity，不是用 Activity 创建时为 null，始终视为可见 */
+    @Nullable
+    private final WeakReference<Activity> mHost;
+    /** 宿主是否可见，在主线程中随宿主的 onStart/onStop 更新 */
+    private volatile boolean mVisible = true;
 
+    /** {@link #setWifiListCallback(WifiListCallback)} 设置的回调对应的订阅，设置新回调时取消 */
     @Nullable
-    private WifiListCallback mWifiListCallback;
+    private volatile WifiEventBus.Subscriber<WifiEngine.WifiListEvent> mWifiListSubscriber;
+    /** {@link #setWifiStateCallback(WifiStateCallback)} 设置的回调对应的订阅，设置新回调时取消 */
     @Nullable
-    private WifiStateCallback mWifiStateCallback;
+    private volatile WifiSubscription mWifiStateSubscription;
+    /** 通过此句柄建立的所有订阅，{@link #destroy()} 时一起关闭 */
+    @NonNull
+    private final CopyOnWriteArrayList<WifiEventBus.Subscriber<?>> mSubscribers = new CopyOnWriteArrayList<>();
+    /** 调用方直接替换；主线程执行回调前会核对是否已被替换，取消后不会再收到回调。窗口的位置和回调一起替换 */
+    @Nullable
+    private volatile WifiWindow mWifiWindow;
+
+    // ---- 以下字段只在引擎的事件循环线程中访问 ----
 
-    /** Wi-Fi 列表的访问锁 */
-    private final Object mLockWifiList = new Object();
-    /** 扫描得到的 Wi-Fi 集合 */
+    /** {@link #mLastWifiWindow} 对应的窗口，窗口被替换后需要重新回调 */
+    @Nullable
+    private WifiWindow mLastWifiWindowOwner;
+    /** 上一次回调给窗口的 Wi-Fi，用于判断窗口内容是否变化 */
     @NonNull
-    private List<Wifi> mWifiList = new ArrayList<>();
+    private List<Wifi> mLastWifiWindow = new ArrayList<>();
 
-    /** 当前 Wi-Fi 状态和上一个 Wi-Fi 状态的访问锁 */
-    private final Object mLockWifiState = new Object();
-    /** Wi-Fi 的上一个状态 */
-    @WifiState
-    private int mWifiPreState;
-
-    /** 开 Wi-Fi 回调的访问锁 */
-    private final Object mLockWifiSwitchOnCallback = new Object();
-    /** 开 Wi-Fi 回调 */
-    private WifiSwitchCallback mWifiSwitchOnCallback;
-
-    /** 关 Wi-Fi 回调的访问锁 */
-    private final Object mLockWifiSwitchOffCallback = new Object();
-    /** 关 Wi-Fi 回调 */
-    private WifiSwitchCallback mWifiSwitchOffCallback;
-
-    /** 当前 Wi-Fi 网络连接信息的访问锁 */
-    private final Object mLockCurWifiNetworkInfo = new Object();
-    /** 当前 Wi-Fi 网络的连接信息 */
-    private NetworkInfo mCurWifiNetworkInfo = null;
-
-    /** 连接指定 Wi-Fi 回调的访问锁 */
-    private final Object mLockWifiConnectCallback = new Object();
-    /** 连接指定 Wi-Fi 的回调 */
-    private WifiConnectCallback mWifiConnectCallback;
-
-
-    public WifiHelper(@NonNull final Activity activity) {
-        mActivity = Objects.requireNonNull(activity);
-        mWifiManager = WifiSupport.getWifiManager(activity);
-        mWifiPreState = WifiManager.WIFI_STATE_UNKNOWN;
-        register();
-        // 主动拿一下 Wi-Fi 列表
-        GetWifiListAsyncTask.execute(activity, null, wifiList -> {
-            synchronized (mLockWifiList) {
-                mWifiList = wifiList;
-                // 刚初始化出来的 wifiList 肯定是 empty，
-                // 这时候主动从系统获取的 wifiList 如果还是 empty，足以说明 wifiList 没变了。。
-                if (!wifiList.isEmpty()) {
-                    invokeWifiListCallback(WifiOperating.RESULT_SUCCESS);
-                }
-            }
-        });
+
+    /**
+     * 挂到进程内唯一的 {@link WifiEngine} 上，不持有传入的 context，可以放心传 Activity。<br/>
+     * 传 Activity 时，句柄跟随 Activity 的可见性：所有句柄都不可见时，引擎暂停处理扫描结果。
+     */
+    public WifiHelper(@NonNull final Context context) {
+        mEngine = WifiEngine.get(WifiSupport.checkNotNull(context, "context"));
+        mHost = context instanceof Activity ? new WeakReference<>((Activity) context) : null;
+        mEngine.attach(this);
     }
 
-    public void setWifiListCallback(@Nullable final WifiListCallback wifiListCallback) {
-        mWifiListCallback = wifiListCallback;
-        final boolean shouldInvokeNow;
-        synchronized (mLockWifiList) {
-            shouldInvokeNow = !mWifiList.isEmpty();
+    boolean isVisible() {
+        return mVisible;
+    }
+
+    /**
+     * 在主线程中调用
+     *
+     * @return true 此句柄的可见性发生了变化
+     */
+    boolean onHostVisibilityChanged(@NonNull final Activity activity, final boolean visible) {
+        if (mHost == null || mHost.get() != activity || mVisible == visible) {
+            return false;
         }
-        if (shouldInvokeNow && wifiListCallback != null) {
-            onScanResultsAvailable(true);
+        mVisible = visible;
+        return true;
+    }
+
+    /**
+     * 引擎暂停与恢复的统计，所有句柄共享
+     */
+    @NonNull
+    public LifecycleStats getLifecycleStats() {
+        return mEngine.getLifecycleStats();
+    }
+
+    /**
+     * 记下通过此句柄建立的订阅，顺便清理已经取消的
+     */
+    private <E> WifiEventBus.Subscriber<E> track(@NonNull final WifiEventBus.Subscriber<E> subscriber) {
+        for (final WifiEventBus.Subscriber<?> tracked : mSubscribers) {
+            if (tracked.isCancelled()) {
+                mSubscribers.remove(tracked);
+            }
         }
+        mSubscribers.add(subscriber);
+        return subscriber;
     }
 
-    private void invokeWifiListCallback(@WifiListState final int state) {
-        final WifiListCallback wifiListCallback = mWifiListCallback;
-        if (wifiListCallback != null) {
-            wifiListCallback.onWifiListChanged(state, mWifiList);
+    /**
+     * 设置在主线程中执行的 Wi-Fi 列表回调，替换上一次设置的回调，不影响 {@link #subscribeWifiList} 的订阅者
+     *
+     * @param wifiListCallback 传 null 取消回调
+     */
+    public void setWifiListCallback(@Nullable final WifiListCallback wifiListCallback) {
+        final WifiSubscription previous = mWifiListSubscriber;
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (wifiListCallback == null) {
+            mWifiListSubscriber = null;
+            return;
+        }
+        final WifiEventBus.Subscriber<WifiEngine.WifiListEvent> subscriber = track(mEngine.getWifiListBus().subscribe(
+                mEngine.getMainExecutor(), Conflation.ALL, event -> wifiListCallback.onWifiListChanged(event.state, event.wifiList)));
+        mWifiListSubscriber = subscriber;
+        mEngine.replayCachedWifiList(subscriber);
+    }
+
+    /**
+     * 订阅 Wi-Fi 列表，可以有任意多个订阅者。已经有 Wi-Fi 列表时，会先收到一次当前的列表。
+     *
+     * @param executor   执行回调的 Executor，同一订阅者的回调不会并发执行
+     * @param conflation 处理不过来时是否只保留最新的列表，见 {@link Conflation}
+     * @return 用于取消订阅，{@link #destroy()} 时也会取消
+     */
+    @NonNull
+    public WifiSubscription subscribeWifiList(@NonNull final Executor executor,
+                                              @ConflationPolicy final int conflation,
+                                              @NonNull final WifiListCallback callback) {
+        final WifiEventBus.Subscriber<WifiEngine.WifiListEvent> subscriber = track(mEngine.getWifiListBus().subscribe(
+                executor, conflation, event -> callback.onWifiListChanged(event.state, event.wifiList)));
+        mEngine.replayWifiList(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * 设置窗口回调：只关心排序后从 offset 开始的 limit 个 Wi-Fi。<br/>
+     * 仅当窗口内的 Wi-Fi 发生变化时才会回调，窗口以外的 Wi-Fi 不会被完整排序。
+     *
+     * @param callback 传 null 取消窗口回调
+     */
+    public void setWifiWindowCallback(final int offset, final int limit, @Nullable final WifiWindowCallback callback) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset: " + offset + ", limit: " + limit);
+        }
+        final WifiWindow wifiWindow = callback == null ? null : new WifiWindow(offset, limit, callback);
+        mWifiWindow = wifiWindow;
+        if (wifiWindow == null) {
+            return;
+        }
+        mEngine.post(() -> {
+            final PublishedWifiList published = mEngine.getPublishedWifiList();
+            if (!published.isEmpty()) {
+                final int state = published.cached ? WifiOperating.RESULT_CACHED : WifiOperating.RESULT_SUCCESS;
+                invokeWifiWindowCallback(state, published);
+            }
+        });
+    }
+
+    /**
+     * 窗口需要排好序的 Wi-Fi 个数，没有窗口时为 0
+     */
+    int getWifiWindowEnd() {
+        final WifiWindow wifiWindow = mWifiWindow;
+        return wifiWindow == null ? 0 : wifiWindow.getEnd();
+    }
+
+    /**
+     * 窗口内的 Wi-Fi 有变化时才回调。<br/>
+     * 只在引擎的事件循环线程中调用
+     */
+    void invokeWifiWindowCallback(@WifiListState final int state, @NonNull final PublishedWifiList published) {
+        final WifiWindow wifiWindow = mWifiWindow;
+        if (wifiWindow == null) {
+            return;
+        }
+        if (mLastWifiWindowOwner != wifiWindow) {
+            mLastWifiWindowOwner = wifiWindow;
+            mLastWifiWindow = new ArrayList<>();
+        }
+        final List<Wifi> window = published.window(wifiWindow.mOffset, wifiWindow.mLimit);
+        if (isSameWifiWindow(mLastWifiWindow, window)) {
+            return;
+        }
+        mLastWifiWindow = window;
+        final int totalCount = published.size();
+        final List<Wifi> copy = new ArrayList<>(window);
+        mEngine.postToMain(() -> {
+            if (mWifiWindow == wifiWindow) {
+                wifiWindow.mCallback.onWifiWindowChanged(state, totalCount, copy);
+            }
+        });
+    }
+
+    /**
+     * 比较两个窗口中的 Wi-Fi 是否一致。字符串都是驻留过的，大多可以由引用比较快速判断。
+     */
+    private static boolean isSameWifiWindow(@NonNull final List<Wifi> last, @NonNull final List<Wifi> current) {
+        if (last.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            final Wifi lastWifi = last.get(i);
+            final Wifi wifi = current.get(i);
+            if (!WifiSupport.equalStrings(lastWifi.SSID, wifi.SSID) ||
+                    !WifiSupport.equalStrings(lastWifi.getBSSID(), wifi.getBSSID()) ||
+                    lastWifi.getSortKey() != wifi.getSortKey() ||
+                    lastWifi.getConnectionState() != wifi.getConnectionState()) {
+                return false;
+            }
         }
+        return true;
     }
 
+    /**
+     * 设置在主线程中执行的 Wi-Fi 状态回调，替换上一次设置的回调，不影响 {@link #subscribeWifiState} 的订阅者
+     *
+     * @param wifiStateCallback 传 null 取消回调
+     */
     public void setWifiStateCallback(@Nullable final WifiStateCallback wifiStateCallback) {
-        mWifiStateCallback = wifiStateCallback;
-        if (wifiStateCallback != null) {
-            wifiStateCallback.onWifiStateChanged(getWifiCurState());
+        final WifiSubscription previous = mWifiStateSubscription;
+        if (previous != null) {
+            previous.cancel();
         }
+        mWifiStateSubscription = wifiStateCallback == null ? null
+                : subscribeWifiState(mEngine.getMainExecutor(), Conflation.ALL, wifiStateCallback);
     }
 
-    private void invokeWifiStateCallback(@WifiState final int state) {
-        final WifiStateCallback wifiStateCallback = mWifiStateCallback;
-        if (wifiStateCallback != null) {
-            wifiStateCallback.onWifiStateChanged(state);
-        }
+    /**
+     * 订阅 Wi-Fi 状态，可以有任意多个订阅者。订阅后会先收到一次当前的状态。
+     *
+     * @param executor   执行回调的 Executor，同一订阅者的回调不会并发执行
+     * @param conflation 处理不过来时是否只保留最新的状态，见 {@link Conflation}
+     * @return 用于取消订阅，{@link #destroy()} 时也会取消
+     */
+    @NonNull
+    public WifiSubscription subscribeWifiState(@NonNull final Executor executor,
+                                               @ConflationPolicy final int conflation,
+                                               @NonNull final WifiStateCallback callback) {
+        final WifiEventBus.Subscriber<Integer> subscriber = track(mEngine.getWifiStateBus().subscribe(
+                executor, conflation, callback::onWifiStateChanged));
+        mEngine.replayWifiState(subscriber);
+        return subscriber;
     }
 
     /**
-     * 注册 Wi-Fi 相关信息的监听器。<br/>
-     * 仅在未注册时，此方法才会生效。
-     * @see #unregister()
+     * Wi-Fi 列表的发布者，按订阅者的请求量推送，适合处理较慢、需要控制流量的订阅者。
+     * 订阅后，已经有 Wi-Fi 列表时会先收到当前的列表；{@link #destroy()} 后收到 onComplete。
+     *
+     * @param executor   发出信号的 Executor，同一订阅者的信号不会并发
+     * @param overflow   请求量不足时如何缓冲，见 {@link Overflow}
+     * @param bufferSize {@link Overflow#DROP_OLDEST} 和 {@link Overflow#BUFFER} 时每个订阅者最多缓冲的列表个数
+     * @throws IllegalArgumentException bufferSize 不大于 0
      */
-    private void register() {
-        if (mWifiReceiver == null) {
-            final IntentFilter intentFilter = WifiReceiver.addFilterActions(new IntentFilter());
-            mActivity.registerReceiver(mWifiReceiver = new WifiReceiver(mWifiReceiverCallback), intentFilter);
-        }
+    @NonNull
+    public WifiFlow.Publisher<List<Wifi>> wifiListPublisher(@NonNull final Executor executor,
+                                                            @OverflowStrategy final int overflow,
+                                                            final int bufferSize) {
+        return new FlowPublisher<>(mEngine.getWifiListBus(), executor, overflow, bufferSize, event -> event.wifiList,
+                upstream -> mEngine.replayWifiList(track(upstream)));
     }
 
     /**
-     * 反注册 Wi-Fi 相关信息的监听器。<br/>
-     * 仅在已注册时，此方法才会生效。
-     * @see #register()
+     * Wi-Fi 状态（{@link WifiState}）的发布者，订阅后会先收到当前的状态
+     *
+     * @see #wifiListPublisher(Executor, int, int)
      */
-    private void unregister() {
-        if (mWifiReceiver != null) {
-            mActivity.unregisterReceiver(mWifiReceiver);
-            mWifiReceiver = null;
-        }
+    @NonNull
+    public WifiFlow.Publisher<Integer> wifiStatePublisher(@NonNull final Executor executor,
+                                                          @OverflowStrategy final int overflow,
+                                                          final int bufferSize) {
+        return new FlowPublisher<>(mEngine.getWifiStateBus(), executor, overflow, bufferSize, event -> event,
+                upstream -> mEngine.replayWifiState(track(upstream)));
+    }
+
+    /**
+     * 当前 Wi-Fi 连接状态（{@link org.jossing.wifihelper.annotation.ConnectionState}）的发布者，
+     * 订阅后，已经收到过连接状态时会先收到当前的状态
+     *
+     * @see #wifiListPublisher(Executor, int, int)
+     */
+    @NonNull
+    public WifiFlow.Publisher<Integer> connectionStatePublisher(@NonNull final Executor executor,
+                                                                @OverflowStrategy final int overflow,
+                                                                final int bufferSize) {
+        return new FlowPublisher<>(mEngine.getConnectionStateBus(), executor, overflow, bufferSize, event -> event,
+                upstream -> mEngine.replayConnectionState(track(upstream)));
+    }
+
+    /**
+     * 当前 Wi-Fi 网络的发布者，订阅后会先收到当前的网络。
+     * 合并了连接、是否验证通过、是否计费、链路带宽，只在 Android 5.0 以上更新
+     *
+     * @see #wifiListPublisher(Executor, int, int)
+     */
+    @NonNull
+    public WifiFlow.Publisher<WifiNetwork> wifiNetworkPublisher(@NonNull final Executor executor,
+                                                                @OverflowStrategy final int overflow,
+                                                                final int bufferSize) {
+        return new FlowPublisher<>(mEngine.getWifiNetworkBus(), executor, overflow, bufferSize, event -> event,
+                upstream -> mEngine.replayWifiNetwork(track(upstream)));
+    }
+
+    /**
+     * 最近一次合并出的 Wi-Fi 网络，Android 5.0 以下始终是 {@link WifiNetwork#DISCONNECTED}
+     */
+    @NonNull
+    public WifiNetwork getWifiNetwork() {
+        return mEngine.getWifiNetwork();
     }
 
     /**
@@ -152,220 +336,251 @@ public final class WifiHelper {
      */
     @ScanResult
     public int scanWifi() {
-        // 检查定位服务是否已开启
-        if (!WifiSupport.isLocationServiceEnabled(mActivity)) {
-            return WifiOperating.LOCATION_SERVICE_DISABLED;
-        }
-        // 检查是否已授权定位权限
-        if (!WifiSupport.isLocationPermissionGranted(mActivity)) {
-            return WifiOperating.REQUIRE_LOCATION_PERMISSION;
-        }
-        if (isScanAlwaysAvailable() || mWifiManager.isWifiEnabled()) {
-            return mWifiManager.startScan() ? WifiOperating.RESULT_SUCCESS : WifiOperating.ERROR_INTERNAL;
-        }
-        return WifiOperating.WIFI_NOT_ENABLED;
+        return mEngine.scanWifi();
     }
 
     /**
      * 切换 Wi-Fi 开关。<br/>
-     * 注意：只有最后一次调用此方法"开"或者"关"传入的 callback 能够收到回调。
+     * 注意：同一进程内只有最后一次调用此方法"开"或者"关"传入的 callback 能够收到回调。
      *
      * @param switchOn true 打开，false 关闭
-     * @param callback 切换完成时会回调
+     * @param callback 切换完成时会在主线程中回调，10 秒内没有完成时回调失败
      */
     public void switchWifi(final boolean switchOn, @NonNull final WifiSwitchCallback callback) {
-        // 使用 Wi-Fi 状态访问锁，同步以下对 Wi-Fi 状态判断的代码块
-        synchronized (mLockWifiState) {
-            final int wifiCurState = mWifiManager.getWifiState();
-            if (wifiCurState == WifiManager.WIFI_STATE_UNKNOWN) {
-                // Wi-Fi 状态未知，无法操作
-                callback.onSwitchDone(false);
-                return;
-            }
-            if (switchOn) {
-                // 用户要求打开
-                if (wifiCurState == WifiManager.WIFI_STATE_ENABLED) {
-                    // 已经打开
-                    setWifiSwitchOnCallback(null);
-                    callback.onSwitchDone(true);
-                } else if (wifiCurState == WifiManager.WIFI_STATE_ENABLING) {
-                    // 正在打开
-                    setWifiSwitchOnCallback(callback);
-                } else if (wifiCurState == WifiManager.WIFI_STATE_DISABLING) {
-                    // 正在关闭，等关闭后再打开
-                    setWifiSwitchOffCallback(off -> {
-                        // 关闭成功才能执行打开操作
-                        final boolean success = off && mWifiManager.setWifiEnabled(true);
-                        callback.onSwitchDone(success);
-                    });
-                } else {
-                    // 当前已关闭，直接打开
-                    setWifiSwitchOnCallback(callback);
-                    final boolean success = mWifiManager.setWifiEnabled(true);
-                    if (!success) {
-                        setWifiSwitchOnCallback(null);
-                        callback.onSwitchDone(false);
-                    }
-                }
-            } else {
-                // 用户要求关闭
-                if (wifiCurState == WifiManager.WIFI_STATE_DISABLED) {
-                    // 已经关闭
-                    setWifiSwitchOffCallback(null);
-                    callback.onSwitchDone(true);
-                } else if (wifiCurState == WifiManager.WIFI_STATE_DISABLING) {
-                    // 正在关闭
-                    setWifiSwitchOffCallback(callback);
-                } else if (wifiCurState == WifiManager.WIFI_STATE_ENABLING) {
-                    // 正在打开，等打开后再关闭
-                    setWifiSwitchOnCallback(on -> {
-                        // 打开成功才能执行关闭操作
-                        final boolean success = on && mWifiManager.setWifiEnabled(false);
-                        callback.onSwitchDone(success);
-                    });
-                } else {
-                    // 当前已打开，直接关闭
-                    setWifiSwitchOffCallback(callback);
-                    final boolean success = mWifiManager.setWifiEnabled(false);
-                    if (!success) {
-                        setWifiSwitchOffCallback(null);
-                        callback.onSwitchDone(false);
-                    }
-                }
-            }
+        mEngine.switchWifi(switchOn, callback);
+    }
+
+    /**
+     * 获取上一次扫描得到的 Wi-Fi 列表，已排好序，不可修改
+     */
+    @NonNull
+    public List<Wifi> getWifiList() {
+        return mEngine.getPublishedWifiList().sorted();
+    }
+
+    /**
+     * 获取上一次扫描得到的隐藏网络（不广播 SSID 的 AP），每个 BSSID 一个，按信号强度排序。<br/>
+     * 隐藏网络的 SSID 为空，如果已保存过该网络且配置了 hiddenSSID，会带上对应的配置。
+     */
+    @NonNull
+    public List<Wifi> getHiddenWifiList() {
+        return new ArrayList<>(mEngine.getPublishedWifiList().hidden());
+    }
+
+    /**
+     * 当前 Wi-Fi 列表是否是从快照中还原的旧结果。<br/>
+     * 还原的 Wi-Fi 不含配置与连接信息，在新结果到来之前不要用于连接。
+     */
+    public boolean isWifiListCached() {
+        return mEngine.getPublishedWifiList().cached;
+    }
+
+    /**
+     * 当前 Wi-Fi 列表生成至今的时长，单位毫秒。还没有列表时返回 -1。
+     */
+    public long getWifiListAge() {
+        final long timestamp = mEngine.getPublishedWifiList().timestamp;
+        if (timestamp <= 0) {
+            return -1;
         }
+        return Math.max(0, System.currentTimeMillis() - timestamp);
     }
 
     /**
-     * 不论如何，调用此方法后，{@link #mWifiSwitchOnCallback} 总是会被置为 null。
+     * 上一次扫描得到的 Wi-Fi 个数，不会触发排序
      */
-    @Nullable
-    private WifiSwitchCallback getWifiSwitchOnCallback() {
-        synchronized (mLockWifiSwitchOnCallback) {
-            final WifiSwitchCallback wifiSwitchOnCallback = mWifiSwitchOnCallback;
-            mWifiSwitchOnCallback = null;
-            return wifiSwitchOnCallback;
+    public int getWifiCount() {
+        return mEngine.getPublishedWifiList().size();
+    }
+
+    /**
+     * 获取排序后从 offset 开始的最多 limit 个 Wi-Fi。<br/>
+     * 只会对前 offset + limit 个 Wi-Fi 排序。
+     */
+    @NonNull
+    public List<Wifi> getWifiList(final int offset, final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset: " + offset + ", limit: " + limit);
         }
+        return mEngine.getPublishedWifiList().window(offset, limit);
     }
 
     /**
-     * 以线程同步的方式给 {@link #mWifiSwitchOnCallback} 赋值。<br/>
-     * 同步锁为 {@link #mLockWifiSwitchOnCallback} 对象。
+     * 获取满足条件的前 limit 个 Wi-Fi，按排序顺序返回。<br/>
+     * 只会对满足条件的 Wi-Fi 排序。
      */
-    private void setWifiSwitchOnCallback(final WifiSwitchCallback wifiSwitchOnCallback) {
-        synchronized (mLockWifiSwitchOnCallback) {
-            mWifiSwitchOnCallback = wifiSwitchOnCallback;
+    @NonNull
+    public List<Wifi> getWifiList(@NonNull final WifiPredicate predicate, final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit: " + limit);
         }
+        return mEngine.getPublishedWifiList().filter(predicate, limit);
+    }
+
+    /**
+     * 以列存储的方式返回上一次扫描得到的 Wi-Fi 列表，适合需要长期保留大量 Wi-Fi 的场景
+     *
+     * @see WifiSnapshot
+     */
+    @NonNull
+    public WifiSnapshot getWifiSnapshot() {
+        return WifiSnapshot.of(mEngine.getPublishedWifiList().unordered());
+    }
+
+    /**
+     * 设置扫描结果的淘汰策略，之后获取的 Wi-Fi 列表中不再包含已过期的 AP。对同一进程内的所有 WifiHelper 生效
+     *
+     * @param aging 传 null 不做淘汰，直接使用系统返回的扫描结果
+     */
+    public void setScanResultAging(@Nullable final ScanResultAging aging) {
+        mEngine.setScanResultAging(aging);
     }
 
     /**
-     * 不论如何，调用此方法后，{@link #mWifiSwitchOffCallback} 总是会被置为 null。
+     * 设置连接失败后的重试策略，对同一进程内的所有 WifiHelper 生效。
+     * 重试期间不回调，所有尝试都失败后才回调失败
+     *
+     * @param policy 传 null 不重试，失败后立即回调
+     */
+    public void setConnectRetryPolicy(@Nullable final ConnectRetryPolicy policy) {
+        mEngine.setConnectRetryPolicy(policy);
+    }
+
+    /**
+     * 某个 SSID 最近的连接统计，包括每次重试
+     *
+     * @return 没有连接过时为 null
      */
     @Nullable
-    private WifiSwitchCallback getWifiSwitchOffCallback() {
-        synchronized (mLockWifiSwitchOffCallback) {
-            final WifiSwitchCallback wifiSwitchOffCallback = mWifiSwitchOffCallback;
-            mWifiSwitchOffCallback = null;
-            return wifiSwitchOffCallback;
-        }
+    public ConnectStats getConnectStats(@NonNull final String SSID) {
+        return mEngine.getConnectStats(WifiSupport.checkNotNull(SSID, "SSID"));
     }
 
     /**
-     * 以线程同步的方式给 {@link #mWifiSwitchOffCallback} 赋值。<br/>
-     * 同步锁为 {@link #mLockWifiSwitchOffCallback} 对象。
+     * 替换库内所有超时和淘汰过期扫描结果使用的时钟，所有句柄共享，已有的超时保持剩余的时间不变。<br/>
+     * 测试中传入 {@link WifiClock.Manual}，推进时钟后到期的超时立即执行
      */
-    private void setWifiSwitchOffCallback(final WifiSwitchCallback wifiSwitchOffCallback) {
-        synchronized (mLockWifiSwitchOffCallback) {
-            mWifiSwitchOffCallback = wifiSwitchOffCallback;
-        }
+    @VisibleForTesting
+    public void setClock(@NonNull final WifiClock clock) {
+        mEngine.setClock(WifiSupport.checkNotNull(clock, "clock"));
+    }
+
+    /**
+     * 设置扫描结果的处理流水线，从下一次刷新 Wi-Fi 列表开始生效。对同一进程内的所有 WifiHelper 生效
+     *
+     * @see WifiPipeline.Builder
+     */
+    public void setWifiPipeline(@NonNull final WifiPipeline pipeline) {
+        mEngine.setWifiPipeline(pipeline);
     }
 
     /**
-     * 获取上一次扫描得到的 Wi-Fi 列表
+     * 当前使用的处理流水线，可以从中获取各环节的耗时统计
+     *
+     * @see WifiPipeline#getStageStats()
      */
     @NonNull
-    public List<Wifi> getWifiList() {
-        synchronized (mLockWifiList) {
-            return mWifiList;
-        }
+    public WifiPipeline getWifiPipeline() {
+        return mEngine.getWifiPipeline();
+    }
+
+    /**
+     * 设置扫描结果的允许/屏蔽规则，被丢弃的扫描结果不会出现在 Wi-Fi 列表和隐藏网络中。
+     * 可以随时替换，从下一次刷新 Wi-Fi 列表开始生效。对同一进程内的所有 WifiHelper 生效
+     *
+     * @param scanRules 传 null 不再过滤
+     */
+    public void setScanRules(@Nullable final ScanRules scanRules) {
+        mEngine.setScanRules(scanRules);
+    }
+
+    /**
+     * 设置 OUI 注册表，之后每次得到新的 Wi-Fi 列表时都会在后台线程中为每个 Wi-Fi 填充厂商名。
+     * 注册表应在后台线程中打开或编译好再设置进来。对同一进程内的所有 WifiHelper 生效
+     *
+     * @param ouiRegistry 传 null 不再查询厂商
+     * @see Wifi#getVendor()
+     */
+    public void setOuiRegistry(@Nullable final OuiRegistry ouiRegistry) {
+        mEngine.setOuiRegistry(ouiRegistry);
+    }
+
+    /**
+     * 设置扫描历史存储，之后每次得到新的 Wi-Fi 列表都会追加到历史中。
+     * 写入在存储自己的线程中进行，不会阻塞扫描结果的处理。对同一进程内的所有 WifiHelper 生效
+     *
+     * @param scanHistoryStore 传 null 停止记录；存储的关闭由调用方负责
+     */
+    public void setScanHistoryStore(@Nullable final ScanHistoryStore scanHistoryStore) {
+        mEngine.setScanHistoryStore(scanHistoryStore);
+    }
+
+    /**
+     * 搜索 SSID 中包含 query 的 Wi-Fi（忽略大小写），按排序顺序返回
+     */
+    @NonNull
+    public List<Wifi> searchWifi(@NonNull final String query) {
+        return mEngine.getWifiSearchIndex().searchSubstring(query);
+    }
+
+    /**
+     * 搜索 SSID 以 prefix 开头的 Wi-Fi（忽略大小写），按排序顺序返回
+     */
+    @NonNull
+    public List<Wifi> searchWifiByPrefix(@NonNull final String prefix) {
+        return mEngine.getWifiSearchIndex().searchPrefix(prefix);
     }
 
     @WifiState
     public int getWifiCurState() {
-        return mWifiManager.getWifiState();
+        return mEngine.getWifiCurState();
     }
 
     @WifiState
     public int getWifiPreState() {
-        synchronized (mLockWifiState) {
-            return mWifiPreState;
-        }
-    }
-
-    private void setWifiPreState(int wifiPreState) {
-        synchronized (mLockWifiState) {
-            mWifiPreState = wifiPreState;
-        }
+        return mEngine.getWifiPreState();
     }
 
     /**
      * @see WifiSupport#isScanAlwaysAvailable(Context)
      */
     public boolean isScanAlwaysAvailable() {
-        if (!WifiSupport.isOverApi18()) {
-            return false;
-        }
-        return mWifiManager.isScanAlwaysAvailable();
+        return mEngine.isScanAlwaysAvailable();
     }
 
     /**
      * @see WifiManager#getConnectionInfo()
      */
     public WifiInfo getConnectionInfo() {
-        return mWifiManager.getConnectionInfo();
+        return mEngine.getConnectionInfo();
     }
 
     /**
      * @see WifiManager#getDhcpInfo()
      */
     public DhcpInfo getDhcpInfo() {
-        return mWifiManager.getDhcpInfo();
+        return mEngine.getDhcpInfo();
     }
 
     /**
      * 连接 Wi-Fi
      * @param password Wi-Fi 密码（如果需要）
+     * @param callback 连接完成时会在主线程中回调，每次尝试 30 秒内没有结果算作失败；设置了重试策略时，所有尝试都失败后才回调失败
      */
     public void connectWifi(@NonNull final Wifi wifi, @Nullable final String password, final WifiConnectCallback.Callback callback) {
-        synchronized (mLockWifiConnectCallback) {
-            if (wifi.isCurrent()) {
-                callback.onConnected(true);
-                return;
-            }
-            final WifiConfiguration wifiConfig;
-            final int networkId;
-            if (wifi.isSaved()) {
-                wifiConfig = wifi.configuration;
-                if (wifi.isConfigDisabled()) {
-                    WifiSupport.wifiPwdConfig(wifiConfig, wifi, password);
-                    networkId = mWifiManager.updateNetwork(wifiConfig);
-                } else {
-                    networkId = wifiConfig.networkId;
-                }
-            } else {
-                wifiConfig = new WifiConfiguration();
-                wifiConfig.SSID = "\"" + wifi.SSID + "\"";
-                WifiSupport.wifiPwdConfig(wifiConfig, wifi, password);
-                networkId = mWifiManager.addNetwork(wifiConfig);
-            }
-            mWifiConnectCallback = WifiConnectCallback.with(wifi.SSID, callback);
-            final boolean success = mWifiManager.enableNetwork(networkId, true);;
-            if (!success) {
-                mWifiConnectCallback = null;
-                onScanResultsAvailable(true);
-                callback.onConnected(false);
-            }
-        }
+        mEngine.connectWifi(wifi, null, password, callback);
+    }
+
+    /**
+     * 连接隐藏网络。未保存的隐藏网络扫描不到 SSID，需要用户输入；不提供 SSID 时直接回调失败
+     * @param SSID 隐藏网络的真实 SSID，不带引号
+     * @param password Wi-Fi 密码（如果需要）
+     * @param callback 同 {@link #connectWifi(Wifi, String, WifiConnectCallback.Callback)}
+     * @see Wifi#isHidden()
+     */
+    public void connectWifi(@NonNull final Wifi wifi, @NonNull final String SSID, @Nullable final String password,
+                            final WifiConnectCallback.Callback callback) {
+        mEngine.connectWifi(wifi, SSID, password, callback);
     }
 
     /**
@@ -373,149 +588,104 @@ public final class WifiHelper {
      * @return true 删除成功，或该 Wi-Fi 本就没有配置。
      */
     public boolean removeWifiConfig(@NonNull final Wifi wifi) {
-        final boolean success;
-        if (wifi.isSaved()) {
-            final int networkId = wifi.configuration.networkId;
-            success = mWifiManager.removeNetwork(networkId);
-        } else {
-            success = false;
-        }
-        if (success) {
-            onScanResultsAvailable(true);
-        }
-        return success;
-    }
-
-    /**
-     * @see WifiReceiver.Callback#onScanResultsAvailable(boolean)
-     */
-    private boolean onScanResultsAvailable(final boolean isUpdated) {
-        // Wi-Fi 列表已更新，或是 Wi-Fi 列表还未拿到，都要重新给 mWifiList 赋值
-        if (isUpdated || mWifiList.isEmpty()) {
-            synchronized (mLockCurWifiNetworkInfo) {
-                final NetworkInfo networkInfo = mCurWifiNetworkInfo;
-                GetWifiListAsyncTask.execute(mActivity, networkInfo, wifiList -> {
-                    synchronized (mLockWifiList) {
-                        // wifiList 没变，就不用回调了
-                        if (mWifiList.isEmpty() && wifiList.isEmpty()) {
-                            return;
-                        }
-                        mWifiList = wifiList;
-                        final int state;
-                        if (!WifiSupport.isLocationServiceEnabled(mActivity)) {
-                            state = WifiOperating.LOCATION_SERVICE_DISABLED;
-                        } else if (!WifiSupport.isLocationPermissionGranted(mActivity)) {
-                            state = WifiOperating.REQUIRE_LOCATION_PERMISSION;
-                        } else {
-                            state = WifiOperating.RESULT_SUCCESS;
-                        }
-                        // 回调 Wi-Fi 列表
-                        invokeWifiListCallback(state);
-                    }
-                });
-            }
-        }
-        return true;
+        return mEngine.removeWifiConfig(wifi);
     }
 
     /**
-     * @see WifiReceiver.Callback#onWifiStateChanged(int, int)
+     * 销毁此句柄，销毁后不能继续使用。<br/>
+     * 通过此句柄建立的订阅都会结束，之后不会再有任何回调；最后一个句柄销毁后，引擎暂停工作，只保留已发布的 Wi-Fi 列表
      */
-    private boolean onWifiStateChanged(@WifiState final int curState, @WifiState final int previousState) {
-        setWifiPreState(previousState);
-        // 回调 Wi-Fi 状态
-        invokeWifiStateCallback(curState);
-        if (curState == WifiManager.WIFI_STATE_DISABLED || curState == WifiManager.WIFI_STATE_UNKNOWN) {
-            // Wi-Fi 关闭后，如果 Wi-Fi 不允许关闭时扫描，则清空 Wi-Fi 列表
-            if (!isScanAlwaysAvailable()) {
-                synchronized (mLockWifiList) {
-                    mWifiList.clear();
-                    invokeWifiListCallback(WifiOperating.RESULT_SUCCESS);
-                }
-            }
-            final WifiSwitchCallback wifiSwitchOffCallback = getWifiSwitchOffCallback();
-            if (wifiSwitchOffCallback != null) {
-                final boolean success = curState != WifiManager.WIFI_STATE_UNKNOWN;
-                wifiSwitchOffCallback.onSwitchDone(success);
-            }
-        }
-        if (curState == WifiManager.WIFI_STATE_ENABLED || curState == WifiManager.WIFI_STATE_UNKNOWN) {
-            final WifiSwitchCallback wifiSwitchOnCallback = getWifiSwitchOnCallback();
-            if (wifiSwitchOnCallback != null) {
-                final boolean success = curState != WifiManager.WIFI_STATE_UNKNOWN;
-                wifiSwitchOnCallback.onSwitchDone(success);
-            }
+    public void destroy() {
+        mWifiWindow = null;
+        for (final WifiEventBus.Subscriber<?> subscriber : mSubscribers) {
+            subscriber.close();
         }
-        return true;
+        mSubscribers.clear();
+        mEngine.detach(this);
     }
 
     /**
-     * @see WifiReceiver.Callback#onWifiConnectionStateChanged(NetworkInfo)
-     */
-    private boolean onWifiConnectionStateChanged(@NonNull final NetworkInfo networkInfo) {
-        synchronized (mLockCurWifiNetworkInfo) {
-            mCurWifiNetworkInfo = networkInfo;
-        }
-        onScanResultsAvailable(true);
-
-        synchronized (mLockWifiConnectCallback) {
-            final WifiConnectCallback connectCallback = mWifiConnectCallback;
-            boolean called = false;
-            if (connectCallback != null) {
-                final String connectingSSID;
-                // 在 Android 9.0 以上，此处拿到的 NetworkInfo.getExtraInfo 可能为空，
-                // 为保险起见，增加一个从 WifiInfo 中获取 SSID 的方法。
-                if (!TextUtils.isEmpty(networkInfo.getExtraInfo())) {
-                    connectingSSID = WifiSupport.getRealSSID(networkInfo.getExtraInfo());
-                } else {
-                    connectingSSID = WifiSupport.getRealSSID(getConnectionInfo().getSSID());
-                }
-                if (TextUtils.equals(connectCallback.mTargetSSID, connectingSSID)) {
-                    final int connectionState = WifiConnection.from(networkInfo);
-                    if (WifiConnection.CONNECTED == connectionState) {
-                        // 连接成功
-                        called = true;
-                        connectCallback.invoke(true);
-                    }
-                    if (WifiConnection.DISCONNECTED == connectionState) {
-                        // 连接失败
-                        called = true;
-                        connectCallback.invoke(false);
-                    }
-                }
-            }
-            if (called) {
-                mWifiConnectCallback = null;
-            }
+     * 引擎暂停与恢复的统计
+     */
+    public static final class LifecycleStats {
+        private final boolean mPaused;
+        private final long mPauseCount;
+        private final long mPausedMillis;
+        private final long mSkippedRefreshCount;
+        private final long mCatchUpRefreshCount;
+
+        LifecycleStats(final boolean paused, final long pauseCount, final long pausedMillis,
+                       final long skippedRefreshCount, final long catchUpRefreshCount) {
+            mPaused = paused;
+            mPauseCount = pauseCount;
+            mPausedMillis = pausedMillis;
+            mSkippedRefreshCount = skippedRefreshCount;
+            mCatchUpRefreshCount = catchUpRefreshCount;
         }
-        return true;
-    }
 
-    /**
-     * 销毁此对象，销毁后不能继续使用。<br/>
-     * 内部会同步调用 {@link #unregister()}
-     */
-    public void destroy() {
-        unregister();
-        mActivity = null;
-    }
+        /**
+         * 当前是否暂停
+         */
+        public boolean isPaused() {
+            return mPaused;
+        }
 
-    private final WifiReceiver.Callback mWifiReceiverCallback = new WifiReceiver.Callback() {
-        @Override
-        public boolean onScanResultsAvailable(boolean isUpdated) {
-            return WifiHelper.this.onScanResultsAvailable(isUpdated);
+        /**
+         * 暂停过的次数
+         */
+        public long getPauseCount() {
+            return mPauseCount;
         }
 
-        @Override
-        public boolean onWifiStateChanged(int curState, int previousState) {
-            return WifiHelper.this.onWifiStateChanged(curState, previousState);
+        /**
+         * 暂停的总时长，包括正在进行的暂停，单位毫秒
+         */
+        public long getPausedMillis() {
+            return mPausedMillis;
+        }
+
+        /**
+         * 暂停期间没有执行的刷新次数，即省下的获取和处理扫描结果的次数
+         */
+        public long getSkippedRefreshCount() {
+            return mSkippedRefreshCount;
+        }
+
+        /**
+         * 恢复时补做的刷新次数
+         */
+        public long getCatchUpRefreshCount() {
+            return mCatchUpRefreshCount;
         }
 
         @Override
-        public boolean onWifiConnectionStateChanged(@NonNull NetworkInfo networkInfo) {
-            return WifiHelper.this.onWifiConnectionStateChanged(networkInfo);
+        public String toString() {
+            return "LifecycleStats{paused=" + mPaused + ", pauseCount=" + mPauseCount
+                    + ", pausedMillis=" + mPausedMillis + ", skippedRefreshCount=" + mSkippedRefreshCount
+                    + ", catchUpRefreshCount=" + mCatchUpRefreshCount + "}";
         }
-    };
+    }
+
+    /**
+     * 窗口的位置和回调，替换窗口时整体替换
+     */
+    private static final class WifiWindow {
+        private final int mOffset;
+        private final int mLimit;
+        @NonNull
+        private final WifiWindowCallback mCallback;
+
+        WifiWindow(final int offset, final int limit, @NonNull final WifiWindowCallback callback) {
+            mOffset = offset;
+            mLimit = limit;
+            mCallback = callback;
+        }
+
+        int getEnd() {
+            final long end = (long) mOffset + mLimit;
+            return (int) Math.min(Integer.MAX_VALUE, end);
+        }
+    }
 
     /**
      * Wi-Fi 开关回调
@@ -543,6 +713,36 @@ public final class WifiHelper {
         void onWifiListChanged(@WifiListState final int state, @NonNull final List<Wifi> wifiList);
     }
 
+    /**
+     * Wi-Fi 窗口回调
+     *
+     * @see #setWifiWindowCallback(int, int, WifiWindowCallback)
+     */
+    public interface WifiWindowCallback {
+
+        /**
+         * 当窗口内的 Wi-Fi 发生变化时调用
+         *
+         * @param state 获取 Wi-Fi 列表时发生的状态
+         * @param totalCount Wi-Fi 的总数
+         * @param window 窗口内的 Wi-Fi，已排好序
+         */
+        void onWifiWindowChanged(@WifiListState final int state, final int totalCount, @NonNull final List<Wifi> window);
+    }
+
+    /**
+     * 筛选 Wi-Fi 的条件
+     *
+     * @see #getWifiList(WifiPredicate, int)
+     */
+    public interface WifiPredicate {
+
+        /**
+         * @return true 保留此 Wi-Fi
+         */
+        boolean test(@NonNull final Wifi wifi);
+    }
+
     /**
      * Wi-Fi 状态回调
      */
@@ -564,19 +764,72 @@ public final class WifiHelper {
         private final String mTargetSSID;
         private Callback mCallback;
 
+        // ---- 以下字段只在事件循环线程中访问 ----
+
+        /** 本次尝试的连接超时，或退避中等待重试的定时 */
+        @Nullable
+        WifiTimer.Timeout mTimeout;
+        /** 要启用的网络配置 */
+        int mNetworkId = -1;
+        /** 第几次尝试，从 1 开始 */
+        int mAttempt = 1;
+        /** 本次尝试是否已经到了获取 IP 地址的阶段 */
+        boolean mObtainingIp = false;
+        private boolean mDone = false;
+
         private WifiConnectCallback(@NonNull final String SSID, @NonNull final Callback callback) {
             mTargetSSID = SSID;
             mCallback = callback;
         }
 
-        private boolean compareSSID(final String SSID) {
+        boolean compareSSID(final String SSID) {
             return TextUtils.equals(mTargetSSID, SSID);
         }
 
-        private void invoke(final boolean connected) {
+        String getTargetSSID() {
+            return mTargetSSID;
+        }
+
+        /**
+         * 结束本次尝试，取消超时
+         *
+         * @return false 已经结束过了
+         */
+        boolean finish() {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            if (mTimeout != null) {
+                mTimeout.cancel();
+            }
+            return true;
+        }
+
+        void deliver(final boolean connected) {
             mCallback.onConnected(connected);
         }
 
+        /**
+         * 只回调一次，之后的调用被忽略
+         */
+        void invoke(final boolean connected) {
+            if (finish()) {
+                deliver(connected);
+            }
+        }
+
+        /**
+         * 同一个目标和回调的下一次尝试
+         */
+        @NonNull
+        WifiConnectCallback retry() {
+            final WifiConnectCallback retry = new WifiConnectCallback(mTargetSSID, mCallback);
+            retry.mNetworkId = mNetworkId;
+            retry.mAttempt = mAttempt + 1;
+            return retry;
+        }
+
         public static WifiConnectCallback with(@NonNull final String SSID, @NonNull final Callback callback) {
             return new WifiConnectCallback(SSID, callback);
         }
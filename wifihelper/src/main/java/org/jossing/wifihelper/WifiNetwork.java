@@ -0,0 +1,112 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+/**
+ * 由 {@link android.net.ConnectivityManager.NetworkCallback} 合并出的当前 Wi-Fi 网络，发布后不再修改。<br/>
+ * 只在 Android 5.0 以上更新，以下始终是 {@link #DISCONNECTED}。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class WifiNetwork {
+
+    /** 没有可用的 Wi-Fi 网络 */
+    public static final WifiNetwork DISCONNECTED = new WifiNetwork(false, false, false, 0, 0, null);
+
+    private final boolean mConnected;
+    private final boolean mValidated;
+    private final boolean mMetered;
+    private final int mDownstreamKbps;
+    private final int mUpstreamKbps;
+    @Nullable
+    private final String mInterfaceName;
+
+    WifiNetwork(final boolean connected, final boolean validated, final boolean metered,
+                final int downstreamKbps, final int upstreamKbps, @Nullable final String interfaceName) {
+        mConnected = connected;
+        mValidated = validated;
+        mMetered = metered;
+        mDownstreamKbps = downstreamKbps;
+        mUpstreamKbps = upstreamKbps;
+        mInterfaceName = interfaceName;
+    }
+
+    /**
+     * 网络已经可用（onAvailable），与广播的 CONNECTED 相当
+     */
+    public boolean isConnected() {
+        return mConnected;
+    }
+
+    /**
+     * 系统已经验证过可以访问互联网，Android 6.0 以下始终为 false
+     */
+    public boolean isValidated() {
+        return mValidated;
+    }
+
+    /**
+     * 是否按流量计费
+     */
+    public boolean isMetered() {
+        return mMetered;
+    }
+
+    /**
+     * 链路的下行带宽估计，单位 Kbps，还不知道时为 0
+     */
+    public int getDownstreamKbps() {
+        return mDownstreamKbps;
+    }
+
+    /**
+     * 链路的上行带宽估计，单位 Kbps，还不知道时为 0
+     */
+    public int getUpstreamKbps() {
+        return mUpstreamKbps;
+    }
+
+    /**
+     * 网卡名，例如 wlan0，还没有收到 LinkProperties 时为 null
+     */
+    @Nullable
+    public String getInterfaceName() {
+        return mInterfaceName;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WifiNetwork)) {
+            return false;
+        }
+        final WifiNetwork that = (WifiNetwork) o;
+        return mConnected == that.mConnected && mValidated == that.mValidated && mMetered == that.mMetered
+                && mDownstreamKbps == that.mDownstreamKbps && mUpstreamKbps == that.mUpstreamKbps
+                && TextUtils.equals(mInterfaceName, that.mInterfaceName);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (mConnected ? 1 : 0);
+        result = 31 * result + (mValidated ? 1 : 0);
+        result = 31 * result + (mMetered ? 1 : 0);
+        result = 31 * result + mDownstreamKbps;
+        result = 31 * result + mUpstreamKbps;
+        result = 31 * result + (mInterfaceName != null ? mInterfaceName.hashCode() : 0);
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "WifiNetwork{connected=" + mConnected + ", validated=" + mValidated + ", metered=" + mMetered
+                + ", downstreamKbps=" + mDownstreamKbps + ", upstreamKbps=" + mUpstreamKbps
+                + ", interfaceName=" + mInterfaceName + "}";
+    }
+}
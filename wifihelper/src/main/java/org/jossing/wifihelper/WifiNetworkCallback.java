@@ -1,73 +1,127 @@
 package org.jossing.wifihelper;
 
-import android.app.Activity;
 import android.net.ConnectivityManager;
 import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
 import android.net.NetworkRequest;
+import android.os.Handler;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
-import android.util.Log;
-
-import java.util.Objects;
 
 /**
- * Wi-Fi 网络变化的相关回调。
- * 先留着吧。暂时不用这个回调，因为这里面拿到的 NetworkInfo 的状态全是 connected。。。
+ * 基于 {@link ConnectivityManager.NetworkCallback} 的 Wi-Fi 连接跟踪。<br/>
+ * 系统在网络变化时直接回调，不经过广播队列，比 NETWORK_STATE_CHANGED_ACTION 广播来得早，也不会成批到达。
+ * onAvailable、onCapabilitiesChanged、onLinkPropertiesChanged、onLost 合并成一个 {@link WifiNetwork}，
+ * 只有合并后的结果变化时才通知。<br/>
+ * 系统回调在 ConnectivityThread 中执行，这里只转交给传入的 Handler，合并和通知都在 Handler 的线程中进行。
  *
  * @author jossing
  * @date 2018/12/28
  */
-@Deprecated
 @RequiresApi(21)
-class WifiNetworkCallback extends ConnectivityManager.NetworkCallback {
-    private static final String TAG = "WifiNetworkCallback";
+final class WifiNetworkCallback extends ConnectivityManager.NetworkCallback {
 
-    private Activity mActivity;
+    @NonNull
+    private final Handler mHandler;
+    @NonNull
+    private final Listener mListener;
 
-    public WifiNetworkCallback(@NonNull final Activity activity) {
-        mActivity = Objects.requireNonNull(activity);
-    }
+    // ---- 以下字段只在 mHandler 的线程中访问 ----
 
-    @Override
-    public void onAvailable(Network network) {
+    /** 当前跟踪的 Wi-Fi 网络 */
+    @Nullable
+    private Network mNetwork;
+    @Nullable
+    private NetworkCapabilities mCapabilities;
+    @Nullable
+    private String mInterfaceName;
+    @NonNull
+    private WifiNetwork mWifiNetwork = WifiNetwork.DISCONNECTED;
 
-        Log.w(TAG, "onAvailable(" + WifiSupport.getConnectivityManager(mActivity).getNetworkInfo(network) + ")");
+    WifiNetworkCallback(@NonNull final Handler handler, @NonNull final Listener listener) {
+        mHandler = handler;
+        mListener = listener;
     }
 
-    @Override
-    public void onLosing(Network network, int maxMsToLive) {
-        Log.w(TAG, "onLosing(" + WifiSupport.getConnectivityManager(mActivity).getNetworkInfo(network) + ", " + maxMsToLive + ")");
+    @NonNull
+    static NetworkRequest getNetworkRequest() {
+        return new NetworkRequest.Builder()
+                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                .build();
     }
 
     @Override
-    public void onLost(Network network) {
-        Log.w(TAG, "onLost(" + WifiSupport.getConnectivityManager(mActivity).getNetworkInfo(network) + ")");
+    public void onAvailable(final Network network) {
+        mHandler.post(() -> {
+            if (!network.equals(mNetwork)) {
+                // 换了一个网络，之前的能力和链路信息都不再适用
+                mNetwork = network;
+                mCapabilities = null;
+                mInterfaceName = null;
+            }
+            update();
+        });
     }
 
     @Override
-    public void onUnavailable() {
-        Log.w(TAG, "onUnavailable()");
+    public void onCapabilitiesChanged(final Network network, final NetworkCapabilities networkCapabilities) {
+        mHandler.post(() -> {
+            if (network.equals(mNetwork)) {
+                mCapabilities = networkCapabilities;
+                update();
+            }
+        });
     }
 
     @Override
-    public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
-        Log.w(TAG, "onCapabilitiesChanged(" + WifiSupport.getConnectivityManager(mActivity).getNetworkInfo(network) + ", " + networkCapabilities.toString() + ")");
+    public void onLinkPropertiesChanged(final Network network, final LinkProperties linkProperties) {
+        mHandler.post(() -> {
+            if (network.equals(mNetwork)) {
+                mInterfaceName = linkProperties.getInterfaceName();
+                update();
+            }
+        });
     }
 
     @Override
-    public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
-        Log.w(TAG, "onLinkPropertiesChanged(" + WifiSupport.getConnectivityManager(mActivity).getNetworkInfo(network) + ", " + linkProperties.toString() + ")");
+    public void onLost(final Network network) {
+        mHandler.post(() -> {
+            if (network.equals(mNetwork)) {
+                mNetwork = null;
+                mCapabilities = null;
+                mInterfaceName = null;
+                update();
+            }
+        });
     }
 
-    public void destroy() {
-        mActivity = null;
+    private void update() {
+        final WifiNetwork wifiNetwork;
+        if (mNetwork == null) {
+            wifiNetwork = WifiNetwork.DISCONNECTED;
+        } else if (mCapabilities == null) {
+            // 能力还没有回调，先按计费网络处理
+            wifiNetwork = new WifiNetwork(true, false, true, 0, 0, mInterfaceName);
+        } else {
+            wifiNetwork = new WifiNetwork(true,
+                    mCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED),
+                    !mCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+                    mCapabilities.getLinkDownstreamBandwidthKbps(),
+                    mCapabilities.getLinkUpstreamBandwidthKbps(),
+                    mInterfaceName);
+        }
+        if (!wifiNetwork.equals(mWifiNetwork)) {
+            mWifiNetwork = wifiNetwork;
+            mListener.onWifiNetworkChanged(wifiNetwork);
+        }
     }
 
-    public static NetworkRequest getNetworkRequest() {
-        return new NetworkRequest.Builder()
-                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
-                .build();
+    interface Listener {
+        /**
+         * 在构造时传入的 Handler 的线程中调用
+         */
+        void onWifiNetworkChanged(@NonNull final WifiNetwork wifiNetwork);
     }
 }
@@ -0,0 +1,440 @@
+package org.jossing.wifihelper;
+
+import android.net.wifi.ScanResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import org.jossing.wifihelper.annotation.PipelinePhase;
+import org.jossing.wifihelper.enumerate.ScanPipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 扫描结果的处理流水线：source → filter → merge → enrich → rank → publish。<br/>
+ * 每个阶段由若干个有名字的环节组成，可以插入自定义的过滤、补充信息和排序环节，也可以移除或替换内置的环节：
+ * <pre>
+ * WifiPipeline pipeline = new WifiPipeline.Builder()
+ *         .addFilter("corporate", scanResult -> scanResult.SSID.startsWith("CORP-"))
+ *         .addEnricher("distance", wifi -> wifi.setExtra("distance", estimateDistance(wifi)))
+ *         .addStage(ScanPipeline.PHASE_ENRICH, "floor", batch -> ...)
+ *         .build();
+ * wifiHelper.setWifiPipeline(pipeline);
+ * </pre>
+ * 每个环节都记录执行次数和耗时（纳秒），见 {@link #getStageStats()}。
+ * 自定义环节抛出的 {@link RuntimeException} 只记录在该环节的统计中，不会中断流水线，本次刷新照常发布。<br/>
+ * 流水线本身是不可变的，各环节应当是无状态的，或者自己保证线程安全。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#setWifiPipeline(WifiPipeline)
+ * @see ScanBatch
+ */
+public final class WifiPipeline {
+
+    private static final String TAG = "WifiPipeline";
+
+    /** 获取扫描结果、已保存的配置和连接信息，没有定位权限时不获取 */
+    public static final String STAGE_SCAN = "scan";
+    /** 按 {@link WifiHelper#setScanResultAging(ScanResultAging)} 淘汰过期的扫描结果 */
+    public static final String STAGE_AGING = "aging";
+    /** 按 {@link WifiHelper#setScanRules(ScanRules)} 丢弃被屏蔽或不在允许范围内的扫描结果 */
+    public static final String STAGE_RULES = "rules";
+    /** 同名 Wi-Fi 合并，隐藏网络按 BSSID 合并 */
+    public static final String STAGE_MERGE = "merge";
+    /** 按触发刷新的网络状态更新当前 Wi-Fi 的连接状态 */
+    public static final String STAGE_CONNECTION = "connection";
+    /** 按 {@link WifiHelper#setOuiRegistry(OuiRegistry)} 填充厂商名 */
+    public static final String STAGE_VENDOR = "vendor";
+    /**
+     * 排好前 {@link ScanBatch#getSortLimit()} 个 Wi-Fi，隐藏网络全部排序。<br/>
+     * 移除或替换后，rank 阶段产生的顺序就是最终发布的顺序，不会再按 {@link Wifi#getSortKey()} 重排
+     */
+    public static final String STAGE_RANK = "rank";
+    /** 把结果交给 {@link WifiHelper} */
+    public static final String STAGE_PUBLISH = "publish";
+
+    @NonNull
+    private final StageEntry[] mStages;
+    private final int mParallelThreshold;
+    /** rank 阶段只有内置的排序环节 */
+    private final boolean mDefaultRank;
+
+    private WifiPipeline(@NonNull final Builder builder) {
+        final List<StageEntry> stages = builder.mStages;
+        mParallelThreshold = builder.mParallelThreshold;
+        mStages = new StageEntry[stages.size()];
+        int rankCount = 0;
+        boolean defaultRank = false;
+        for (int i = 0; i < mStages.length; i++) {
+            final StageEntry entry = stages.get(i);
+            mStages[i] = new StageEntry(entry.mPhase, entry.mName, entry.mStage, entry.mBuiltIn);
+            if (entry.mPhase == ScanPipeline.PHASE_RANK) {
+                rankCount++;
+                defaultRank = entry.mStage == ScanStages.RANK;
+            }
+        }
+        mDefaultRank = rankCount == 1 && defaultRank;
+    }
+
+    /**
+     * rank 阶段是否只有内置的排序环节。<br/>
+     * 内置的排序只排好前一部分，其余的可以在读取时再按 {@link Wifi#getSortKey()} 补排；
+     * 自定义的排序没办法补排，需要一次排好全部 Wi-Fi。
+     */
+    boolean isDefaultRank() {
+        return mDefaultRank;
+    }
+
+    /**
+     * 依次执行 publish 之前的所有环节
+     */
+    @WorkerThread
+    void process(@NonNull final ScanBatch batch) {
+        batch.mParallelThreshold = mParallelThreshold;
+        for (final StageEntry entry : mStages) {
+            if (entry.mPhase != ScanPipeline.PHASE_PUBLISH) {
+                entry.run(batch);
+            }
+        }
+    }
+
+    /**
+     * 依次执行 publish 阶段的环节，在 Wi-Fi 引擎的事件循环线程中调用
+     */
+    void publish(@NonNull final ScanBatch batch) {
+        for (final StageEntry entry : mStages) {
+            if (entry.mPhase == ScanPipeline.PHASE_PUBLISH) {
+                entry.run(batch);
+            }
+        }
+    }
+
+    /**
+     * 各环节的耗时统计，按执行顺序排列
+     */
+    @NonNull
+    public List<StageStats> getStageStats() {
+        final List<StageStats> stats = new ArrayList<>(mStages.length);
+        for (final StageEntry entry : mStages) {
+            stats.add(entry.snapshot());
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * 清零所有环节的耗时统计
+     */
+    public void resetStageStats() {
+        for (final StageEntry entry : mStages) {
+            entry.reset();
+        }
+    }
+
+    /**
+     * 流水线中的一个环节。除 publish 阶段在 Wi-Fi 引擎的事件循环线程中执行外，都在后台线程中执行。
+     */
+    public interface Stage {
+        void process(@NonNull final ScanBatch batch);
+    }
+
+    /**
+     * 过滤原始的扫描结果，在合并之前执行，被过滤掉的扫描结果不会生成 Wi-Fi
+     */
+    public interface ScanFilter {
+        /**
+         * @return false 丢弃该扫描结果
+         */
+        boolean accept(@NonNull final ScanResult scanResult);
+    }
+
+    /**
+     * 为单个 Wi-Fi 补充信息，例如厂商、信道重叠、距离估算，结果可以用 {@link Wifi#setExtra(String, Object)} 保存。<br/>
+     * Wi-Fi 较多时会在多个线程中同时执行，实现必须是线程安全的，并且只能修改传入的 Wi-Fi。
+     * 抛出异常时本环节中尚未处理的 Wi-Fi 不再补充信息，异常记入该环节的统计。
+     *
+     * @see Builder#addEnricher(String, WifiEnricher)
+     */
+    public interface WifiEnricher {
+        void enrich(@NonNull final Wifi wifi);
+    }
+
+    /**
+     * 一个环节的耗时统计
+     */
+    public static final class StageStats {
+        @PipelinePhase
+        private final int mPhase;
+        @NonNull
+        private final String mName;
+        private final long mCount;
+        private final long mTotalNanos;
+        private final long mMaxNanos;
+        private final long mLastNanos;
+        private final long mFailureCount;
+
+        StageStats(@PipelinePhase final int phase, @NonNull final String name,
+                   final long count, final long totalNanos, final long maxNanos, final long lastNanos,
+                   final long failureCount) {
+            mPhase = phase;
+            mName = name;
+            mCount = count;
+            mTotalNanos = totalNanos;
+            mMaxNanos = maxNanos;
+            mLastNanos = lastNanos;
+            mFailureCount = failureCount;
+        }
+
+        @PipelinePhase
+        public int getPhase() {
+            return mPhase;
+        }
+
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * 执行次数
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * 最近一次执行的耗时
+         */
+        public long getLastNanos() {
+            return mLastNanos;
+        }
+
+        public long getAverageNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        /**
+         * 抛出异常的次数，也计入 {@link #getCount()}。内置的环节总是 0
+         */
+        public long getFailureCount() {
+            return mFailureCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return mName + ": count=" + mCount + ", avg=" + getAverageNanos() + "ns, max=" + mMaxNanos
+                    + "ns, last=" + mLastNanos + "ns, failures=" + mFailureCount;
+        }
+    }
+
+    private static final class StageEntry {
+        @PipelinePhase
+        private final int mPhase;
+        @NonNull
+        private final String mName;
+        @NonNull
+        private final Stage mStage;
+        /** 内置的环节，异常说明库本身有问题，不拦截 */
+        private final boolean mBuiltIn;
+
+        private long mCount = 0;
+        private long mTotalNanos = 0;
+        private long mMaxNanos = 0;
+        private long mLastNanos = 0;
+        private long mFailureCount = 0;
+
+        StageEntry(@PipelinePhase final int phase, @NonNull final String name, @NonNull final Stage stage,
+                   final boolean builtIn) {
+            mPhase = phase;
+            mName = name;
+            mStage = stage;
+            mBuiltIn = builtIn;
+        }
+
+        void run(@NonNull final ScanBatch batch) {
+            final long start = System.nanoTime();
+            if (mBuiltIn) {
+                mStage.process(batch);
+                record(System.nanoTime() - start, false);
+                return;
+            }
+            boolean failed = false;
+            try {
+                mStage.process(batch);
+            } catch (RuntimeException e) {
+                // 不能让自定义环节的异常杀死后台线程，之后的环节和发布照常执行
+                Log.e(TAG, "run -> 环节 " + mName + " 异常", e);
+                failed = true;
+            }
+            record(System.nanoTime() - start, failed);
+        }
+
+        private synchronized void record(final long nanos, final boolean failed) {
+            if (failed) {
+                mFailureCount++;
+            }
+            mCount++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+            mLastNanos = nanos;
+        }
+
+        @NonNull
+        synchronized StageStats snapshot() {
+            return new StageStats(mPhase, mName, mCount, mTotalNanos, mMaxNanos, mLastNanos, mFailureCount);
+        }
+
+        synchronized void reset() {
+            mCount = 0;
+            mTotalNanos = 0;
+            mMaxNanos = 0;
+            mLastNanos = 0;
+            mFailureCount = 0;
+        }
+    }
+
+    /**
+     * 新建的 Builder 已经包含所有内置环节
+     */
+    public static final class Builder {
+        private final List<StageEntry> mStages = new ArrayList<>();
+        private int mParallelThreshold = ParallelEnricher.DEFAULT_THRESHOLD;
+
+        public Builder() {
+            addBuiltInStage(ScanPipeline.PHASE_SOURCE, STAGE_SCAN, ScanStages.SCAN);
+            addBuiltInStage(ScanPipeline.PHASE_SOURCE, STAGE_AGING, ScanStages.AGING);
+            addBuiltInStage(ScanPipeline.PHASE_FILTER, STAGE_RULES, ScanStages.RULES);
+            addBuiltInStage(ScanPipeline.PHASE_MERGE, STAGE_MERGE, ScanStages.MERGE);
+            addBuiltInStage(ScanPipeline.PHASE_ENRICH, STAGE_CONNECTION, ScanStages.CONNECTION);
+            addBuiltInStage(ScanPipeline.PHASE_ENRICH, STAGE_VENDOR, ScanStages.VENDOR);
+            addBuiltInStage(ScanPipeline.PHASE_RANK, STAGE_RANK, ScanStages.RANK);
+            addBuiltInStage(ScanPipeline.PHASE_PUBLISH, STAGE_PUBLISH, ScanStages.PUBLISH);
+        }
+
+        /**
+         * 在 phase 阶段的末尾加入一个环节
+         *
+         * @param name 环节的名字，不能与已有的环节重复
+         */
+        public Builder addStage(@PipelinePhase final int phase, @NonNull final String name, @NonNull final Stage stage) {
+            return addStage(phase, name, stage, false);
+        }
+
+        private void addBuiltInStage(@PipelinePhase final int phase, @NonNull final String name, @NonNull final Stage stage) {
+            addStage(phase, name, stage, true);
+        }
+
+        private Builder addStage(@PipelinePhase final int phase, @NonNull final String name, @NonNull final Stage stage,
+                                 final boolean builtIn) {
+            checkName(name);
+            int index = mStages.size();
+            while (index > 0 && mStages.get(index - 1).mPhase > phase) {
+                index--;
+            }
+            mStages.add(index, new StageEntry(phase, name, stage, builtIn));
+            return this;
+        }
+
+        /**
+         * 在名为 before 的环节之前加入一个环节，新环节属于同一个阶段
+         */
+        public Builder addStageBefore(@NonNull final String before, @NonNull final String name, @NonNull final Stage stage) {
+            checkName(name);
+            final int index = indexOf(before);
+            if (index < 0) {
+                throw new IllegalArgumentException("no such stage: " + before);
+            }
+            mStages.add(index, new StageEntry(mStages.get(index).mPhase, name, stage, false));
+            return this;
+        }
+
+        /**
+         * 加入一个过滤原始扫描结果的环节
+         */
+        public Builder addFilter(@NonNull final String name, @NonNull final ScanFilter filter) {
+            return addStage(ScanPipeline.PHASE_FILTER, name, batch -> {
+                final List<ScanResult> scanResults = batch.getScanResults();
+                final List<ScanResult> accepted = new ArrayList<>(scanResults.size());
+                for (final ScanResult scanResult : scanResults) {
+                    if (filter.accept(scanResult)) {
+                        accepted.add(scanResult);
+                    }
+                }
+                batch.setScanResults(accepted);
+            });
+        }
+
+        /**
+         * 在 enrich 阶段的末尾加入一个逐个处理 Wi-Fi 的环节，对 Wi-Fi 列表和隐藏网络都生效。
+         * Wi-Fi 个数达到 {@link #parallelThreshold(int)} 时在有界的线程池中并行执行。
+         */
+        public Builder addEnricher(@NonNull final String name, @NonNull final WifiEnricher enricher) {
+            return addStage(ScanPipeline.PHASE_ENRICH, name, batch -> {
+                ParallelEnricher.enrich(batch.getWifiList(), enricher, batch.mParallelThreshold);
+                ParallelEnricher.enrich(batch.getHiddenWifiList(), enricher, batch.mParallelThreshold);
+            });
+        }
+
+        /**
+         * Wi-Fi 个数达到多少时并行执行 {@link WifiEnricher}，默认 256。
+         * 传 {@link Integer#MAX_VALUE} 总是顺序执行。
+         */
+        public Builder parallelThreshold(final int threshold) {
+            if (threshold <= 0) {
+                throw new IllegalArgumentException("must be positive: " + threshold);
+            }
+            mParallelThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * 移除一个环节，可以是内置的环节。例如移除 {@link #STAGE_RANK} 后再加入自己的排序环节。<br/>
+         * {@link #STAGE_SCAN} 和 {@link #STAGE_PUBLISH} 不能移除，否则不会有扫描结果，也不会发布。
+         *
+         * @return 是否存在该环节
+         * @throws IllegalArgumentException 移除 {@link #STAGE_SCAN} 或 {@link #STAGE_PUBLISH}
+         */
+        public boolean removeStage(@NonNull final String name) {
+            if (STAGE_SCAN.equals(name) || STAGE_PUBLISH.equals(name)) {
+                throw new IllegalArgumentException("can't remove stage: " + name);
+            }
+            final int index = indexOf(name);
+            if (index < 0) {
+                return false;
+            }
+            mStages.remove(index);
+            return true;
+        }
+
+        @NonNull
+        public WifiPipeline build() {
+            return new WifiPipeline(this);
+        }
+
+        private int indexOf(@NonNull final String name) {
+            for (int i = 0; i < mStages.size(); i++) {
+                if (mStages.get(i).mName.equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void checkName(@NonNull final String name) {
+            if (indexOf(name) >= 0) {
+                throw new IllegalArgumentException("duplicate stage: " + name);
+            }
+        }
+    }
+}
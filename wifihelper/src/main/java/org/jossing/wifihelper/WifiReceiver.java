@@ -50,7 +50,7 @@ final class WifiReceiver extends BroadcastReceiver {
                 break;
             case WifiManager.NETWORK_STATE_CHANGED_ACTION:
                 final NetworkInfo networkInfo = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
-                if ("WIFI".equalsIgnoreCase(networkInfo.getTypeName())) {
+                if (networkInfo != null && "WIFI".equalsIgnoreCase(networkInfo.getTypeName())) {
                     onWifiConnectionStateChanged(networkInfo);
                 }
                 break;
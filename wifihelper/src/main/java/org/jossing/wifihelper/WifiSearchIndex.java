@@ -0,0 +1,346 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SSID 的搜索索引，支持忽略大小写的前缀查询和子串查询。
+ * <ul>
+ *     <li>前缀查询使用前缀树（trie）</li>
+ *     <li>子串查询使用三元组（trigram）倒排表求交集，再逐个校验</li>
+ * </ul>
+ * 每次有新的 Wi-Fi 列表时，只对新增和消失的 SSID 修改索引，不会整体重建。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiSearchIndex {
+
+    private static final int GRAM = 3;
+
+    /** SSID 到内部编号的映射 */
+    private final Map<String, Integer> mIds = new HashMap<>();
+    /** 以编号为下标，小写的 SSID */
+    private String[] mLowerSSIDs = new String[16];
+    /** 以编号为下标，当前列表中对应的 Wi-Fi */
+    private Wifi[] mWifis = new Wifi[16];
+    /** 以编号为下标，最后一次出现在列表中的批次 */
+    private int[] mGenerations = new int[16];
+    /** 以编号为下标，在最近一次列表中的位置，只在 {@link #mFullyOrdered} 时有意义 */
+    private int[] mPositions = new int[16];
+    /** 最近一次列表已经是最终顺序，结果按位置排列，不再按 {@link Wifi#getSortKey()} 排序 */
+    private boolean mFullyOrdered = false;
+    /** 已回收、可复用的编号 */
+    private int[] mFreeIds = new int[16];
+    private int mFreeCount = 0;
+    private int mNextId = 0;
+    private int mGeneration = 0;
+
+    /** 三元组倒排表 */
+    private final Map<Long, BitSet> mPostings = new HashMap<>();
+    /** 前缀树的根节点 */
+    private final Node mRoot = new Node();
+
+    /**
+     * 用新发布的 Wi-Fi 列表更新索引
+     */
+    synchronized void update(@NonNull final PublishedWifiList published) {
+        final List<Wifi> wifiList = published.unordered();
+        final int generation = ++mGeneration;
+        mFullyOrdered = published.isFullyOrdered();
+        for (int i = 0; i < wifiList.size(); i++) {
+            final Wifi wifi = wifiList.get(i);
+            final Integer id = mIds.get(wifi.SSID);
+            final int wifiId = id != null ? id : add(wifi.SSID);
+            mWifis[wifiId] = wifi;
+            mGenerations[wifiId] = generation;
+            mPositions[wifiId] = i;
+        }
+        if (mIds.size() == wifiList.size()) {
+            return;
+        }
+        final Iterator<Map.Entry<String, Integer>> iterator = mIds.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final int id = iterator.next().getValue();
+            if (mGenerations[id] != generation) {
+                iterator.remove();
+                remove(id);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return mIds.size();
+    }
+
+    /**
+     * 查询 SSID 以 prefix 开头（忽略大小写）的 Wi-Fi，按排序顺序返回
+     */
+    @NonNull
+    synchronized List<Wifi> searchPrefix(@NonNull final String prefix) {
+        final String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        Node node = mRoot;
+        for (int i = 0; i < lowerPrefix.length() && node != null; i++) {
+            node = node.child(lowerPrefix.charAt(i));
+        }
+        final List<Wifi> result = new ArrayList<>();
+        if (node != null) {
+            collect(node, result);
+        }
+        sort(result);
+        return result;
+    }
+
+    /**
+     * 查询 SSID 中包含 query（忽略大小写）的 Wi-Fi，按排序顺序返回
+     */
+    @NonNull
+    synchronized List<Wifi> searchSubstring(@NonNull final String query) {
+        final String lowerQuery = query.toLowerCase(Locale.ROOT);
+        final List<Wifi> result = new ArrayList<>();
+        if (lowerQuery.length() < GRAM) {
+            // 太短的查询无法使用三元组，直接遍历小写 SSID
+            for (final int id : mIds.values()) {
+                if (mLowerSSIDs[id].contains(lowerQuery)) {
+                    result.add(mWifis[id]);
+                }
+            }
+        } else {
+            final BitSet candidates = intersectPostings(lowerQuery);
+            if (candidates != null) {
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    // 三元组都命中不代表一定包含，还需要校验一次
+                    if (mLowerSSIDs[id].contains(lowerQuery)) {
+                        result.add(mWifis[id]);
+                    }
+                }
+            }
+        }
+        sort(result);
+        return result;
+    }
+
+    /**
+     * 按发布的顺序排列查询结果
+     */
+    private void sort(@NonNull final List<Wifi> result) {
+        if (!mFullyOrdered) {
+            WifiSorter.sort(result);
+            return;
+        }
+        // 位置都在 [0, 列表大小) 之内，相减不会溢出
+        Collections.sort(result, (a, b) -> mPositions[mIds.get(a.SSID)] - mPositions[mIds.get(b.SSID)]);
+    }
+
+    private BitSet intersectPostings(@NonNull final String lowerQuery) {
+        BitSet candidates = null;
+        for (int i = 0; i + GRAM <= lowerQuery.length(); i++) {
+            final BitSet posting = mPostings.get(trigramOf(lowerQuery, i));
+            if (posting == null) {
+                return null;
+            }
+            if (candidates == null) {
+                candidates = (BitSet) posting.clone();
+            } else {
+                candidates.and(posting);
+            }
+            if (candidates.isEmpty()) {
+                return null;
+            }
+        }
+        return candidates;
+    }
+
+    private int add(@NonNull final String SSID) {
+        final int id = mFreeCount > 0 ? mFreeIds[--mFreeCount] : mNextId++;
+        ensureCapacity(id + 1);
+        final String lowerSSID = SSID.toLowerCase(Locale.ROOT);
+        mIds.put(SSID, id);
+        mLowerSSIDs[id] = lowerSSID;
+        for (int i = 0; i + GRAM <= lowerSSID.length(); i++) {
+            final Long trigram = trigramOf(lowerSSID, i);
+            BitSet posting = mPostings.get(trigram);
+            if (posting == null) {
+                posting = new BitSet();
+                mPostings.put(trigram, posting);
+            }
+            posting.set(id);
+        }
+        Node node = mRoot;
+        node.mSize++;
+        for (int i = 0; i < lowerSSID.length(); i++) {
+            node = node.getOrCreateChild(lowerSSID.charAt(i));
+            node.mSize++;
+        }
+        node.addTerminal(id);
+        return id;
+    }
+
+    private void remove(final int id) {
+        final String lowerSSID = mLowerSSIDs[id];
+        for (int i = 0; i + GRAM <= lowerSSID.length(); i++) {
+            final Long trigram = trigramOf(lowerSSID, i);
+            final BitSet posting = mPostings.get(trigram);
+            if (posting != null) {
+                posting.clear(id);
+                if (posting.isEmpty()) {
+                    mPostings.remove(trigram);
+                }
+            }
+        }
+        Node node = mRoot;
+        node.mSize--;
+        for (int i = 0; i < lowerSSID.length(); i++) {
+            final Node child = node.child(lowerSSID.charAt(i));
+            if (--child.mSize == 0) {
+                // 子树已空，直接剪掉
+                node.removeChild(lowerSSID.charAt(i));
+                node = null;
+                break;
+            }
+            node = child;
+        }
+        if (node != null) {
+            node.removeTerminal(id);
+        }
+        mLowerSSIDs[id] = null;
+        mWifis[id] = null;
+        if (mFreeCount == mFreeIds.length) {
+            mFreeIds = grow(mFreeIds, mFreeCount * 2);
+        }
+        mFreeIds[mFreeCount++] = id;
+    }
+
+    private void collect(@NonNull final Node node, @NonNull final List<Wifi> result) {
+        for (int i = 0; i < node.mTerminalCount; i++) {
+            result.add(mWifis[node.mTerminals[i]]);
+        }
+        for (int i = 0; i < node.mChildCount; i++) {
+            collect(node.mChildren[i], result);
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= mLowerSSIDs.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity, mLowerSSIDs.length * 2);
+        final String[] lowerSSIDs = new String[newCapacity];
+        System.arraycopy(mLowerSSIDs, 0, lowerSSIDs, 0, mLowerSSIDs.length);
+        mLowerSSIDs = lowerSSIDs;
+        final Wifi[] wifis = new Wifi[newCapacity];
+        System.arraycopy(mWifis, 0, wifis, 0, mWifis.length);
+        mWifis = wifis;
+        mGenerations = grow(mGenerations, newCapacity);
+        mPositions = grow(mPositions, newCapacity);
+    }
+
+    @NonNull
+    private static int[] grow(@NonNull final int[] array, final int capacity) {
+        final int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static Long trigramOf(@NonNull final String value, final int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    /**
+     * 前缀树的节点。子节点按字符有序存放，便于二分查找。
+     */
+    private static final class Node {
+        private static final char[] EMPTY_KEYS = new char[0];
+        private static final Node[] EMPTY_CHILDREN = new Node[0];
+        private static final int[] EMPTY_TERMINALS = new int[0];
+
+        private char[] mKeys = EMPTY_KEYS;
+        private Node[] mChildren = EMPTY_CHILDREN;
+        private int mChildCount = 0;
+        /** 在此节点结束的 SSID 编号。不同大小写的 SSID 会落在同一个节点上 */
+        private int[] mTerminals = EMPTY_TERMINALS;
+        private int mTerminalCount = 0;
+        /** 此子树中 SSID 的数量 */
+        private int mSize = 0;
+
+        private int indexOf(final char key) {
+            int low = 0;
+            int high = mChildCount - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (mKeys[mid] < key) {
+                    low = mid + 1;
+                } else if (mKeys[mid] > key) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Node child(final char key) {
+            final int index = indexOf(key);
+            return index >= 0 ? mChildren[index] : null;
+        }
+
+        @NonNull
+        Node getOrCreateChild(final char key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                return mChildren[index];
+            }
+            index = -(index + 1);
+            if (mChildCount == mKeys.length) {
+                final int capacity = Math.max(2, mChildCount * 2);
+                final char[] keys = new char[capacity];
+                System.arraycopy(mKeys, 0, keys, 0, mChildCount);
+                mKeys = keys;
+                final Node[] children = new Node[capacity];
+                System.arraycopy(mChildren, 0, children, 0, mChildCount);
+                mChildren = children;
+            }
+            System.arraycopy(mKeys, index, mKeys, index + 1, mChildCount - index);
+            System.arraycopy(mChildren, index, mChildren, index + 1, mChildCount - index);
+            final Node child = new Node();
+            mKeys[index] = key;
+            mChildren[index] = child;
+            mChildCount++;
+            return child;
+        }
+
+        void removeChild(final char key) {
+            final int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(mKeys, index + 1, mKeys, index, mChildCount - index - 1);
+            System.arraycopy(mChildren, index + 1, mChildren, index, mChildCount - index - 1);
+            mChildren[--mChildCount] = null;
+        }
+
+        void addTerminal(final int id) {
+            if (mTerminalCount == mTerminals.length) {
+                mTerminals = grow(mTerminals, Math.max(1, mTerminalCount * 2));
+            }
+            mTerminals[mTerminalCount++] = id;
+        }
+
+        void removeTerminal(final int id) {
+            for (int i = 0; i < mTerminalCount; i++) {
+                if (mTerminals[i] == id) {
+                    mTerminals[i] = mTerminals[--mTerminalCount];
+                    return;
+                }
+            }
+        }
+    }
+}
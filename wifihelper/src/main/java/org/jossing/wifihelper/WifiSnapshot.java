@@ -0,0 +1,340 @@
+package org.jossing.wifihelper;
+
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import org.jossing.wifihelper.annotation.ConnectionState;
+import org.jossing.wifihelper.enumerate.WifiConnection;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 以列存储（struct-of-arrays）方式保存的 Wi-Fi 列表快照。<br/>
+ * 适用于需要长期保留大量 Wi-Fi（例如上千个 AP）的场景：
+ * 各项属性存放在并行的基本类型数组中，BSSID 以 long 保存，SSID 和 capabilities 以字典下标保存。
+ * <p>
+ * 只有真正读取的行才会通过 {@link #get(int)} 还原为 {@link Wifi} 对象。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class WifiSnapshot {
+
+    static final int FLAG_24GHZ = 1;
+    static final int FLAG_5GHZ = 1 << 1;
+    static final int FLAG_SAVED = 1 << 2;
+    static final int FLAG_CURRENT = 1 << 3;
+    static final int FLAG_CONFIG_DISABLED = 1 << 4;
+
+    private final int mSize;
+
+    /** SSID 和 capabilities 共用的字典 */
+    @NonNull
+    private final String[] mDictionary;
+    @NonNull
+    private final int[] mSSIDs;
+    @NonNull
+    private final int[] mCapabilities;
+    @NonNull
+    private final long[] mBSSIDs;
+    @NonNull
+    private final byte[] mLevels;
+    @NonNull
+    private final short[] mFrequencies;
+    /** @see Wifi#getChannelWidthMask() */
+    @NonNull
+    private final byte[] mChannelWidths;
+    @NonNull
+    private final byte[] mFlags;
+
+    /** 只有已保存的行才有配置信息，以行号为 key */
+    @NonNull
+    private final SparseArray<WifiConfiguration> mConfigurations;
+
+    /** 持有 {@link WifiInfo} 的那一行，没有则为 -1 */
+    private final int mWifiInfoRow;
+    @Nullable
+    private final WifiInfo mWifiInfo;
+    @ConnectionState
+    private final int mConnectionState;
+
+    /** 已还原的行，首次读取时才分配 */
+    @Nullable
+    private Wifi[] mMaterialized;
+
+    private WifiSnapshot(@NonNull final List<Wifi> wifiList) {
+        mSize = wifiList.size();
+        mSSIDs = new int[mSize];
+        mCapabilities = new int[mSize];
+        mBSSIDs = new long[mSize];
+        mLevels = new byte[mSize];
+        mFrequencies = new short[mSize];
+        mChannelWidths = new byte[mSize];
+        mFlags = new byte[mSize];
+        mConfigurations = new SparseArray<>();
+        final Map<String, Integer> dictionary = new HashMap<>();
+        int wifiInfoRow = -1;
+        WifiInfo wifiInfo = null;
+        int connectionState = WifiConnection.UNKNOWN;
+        for (int row = 0; row < mSize; row++) {
+            final Wifi wifi = wifiList.get(row);
+            mSSIDs[row] = idOf(dictionary, wifi.SSID);
+            mCapabilities[row] = idOf(dictionary, wifi.capabilities);
+            mBSSIDs[row] = WifiSupport.bssidToLong(wifi.getBSSID());
+            mLevels[row] = (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, wifi.getLevel()));
+            mFrequencies[row] = (short) wifi.getFrequency();
+            mChannelWidths[row] = (byte) wifi.getChannelWidthMask();
+            mFlags[row] = (byte) flagsOf(wifi);
+            if (wifi.configuration != null) {
+                mConfigurations.put(row, wifi.configuration);
+            }
+            if (wifi.wifiInfo != null && wifiInfoRow < 0) {
+                wifiInfoRow = row;
+                wifiInfo = wifi.wifiInfo;
+                connectionState = wifi.getConnectionState();
+            }
+        }
+        mDictionary = new String[dictionary.size()];
+        for (final Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            mDictionary[entry.getValue()] = entry.getKey();
+        }
+        mWifiInfoRow = wifiInfoRow;
+        mWifiInfo = wifiInfo;
+        mConnectionState = connectionState;
+    }
+
+    /**
+     * 由已排好序的 Wi-Fi 列表生成快照，行号与列表下标一一对应
+     */
+    @NonNull
+    public static WifiSnapshot of(@NonNull final List<Wifi> wifiList) {
+        return new WifiSnapshot(wifiList);
+    }
+
+    private static int idOf(@NonNull final Map<String, Integer> dictionary, @Nullable final String value) {
+        final String key = value == null ? "" : value;
+        final Integer id = dictionary.get(key);
+        if (id != null) {
+            return id;
+        }
+        final int newId = dictionary.size();
+        dictionary.put(key, newId);
+        return newId;
+    }
+
+    static int flagsOf(@NonNull final Wifi wifi) {
+        int flags = 0;
+        if (wifi.is24GHz()) {
+            flags |= FLAG_24GHZ;
+        }
+        if (wifi.is5GHz()) {
+            flags |= FLAG_5GHZ;
+        }
+        if (wifi.isSaved()) {
+            flags |= FLAG_SAVED;
+        }
+        if (wifi.isCurrent()) {
+            flags |= FLAG_CURRENT;
+        }
+        if (wifi.isConfigDisabled()) {
+            flags |= FLAG_CONFIG_DISABLED;
+        }
+        return flags;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @see Wifi#SSID
+     */
+    @NonNull
+    public String getSSID(final int row) {
+        return mDictionary[mSSIDs[row]];
+    }
+
+    /**
+     * @see Wifi#getBSSID()
+     */
+    @Nullable
+    public String getBSSID(final int row) {
+        return WifiSupport.longToBssid(mBSSIDs[row]);
+    }
+
+    /**
+     * @see WifiSupport#bssidToLong(String)
+     */
+    public long getBSSIDValue(final int row) {
+        return mBSSIDs[row];
+    }
+
+    /**
+     * @see Wifi#capabilities
+     */
+    @NonNull
+    public String getCapabilities(final int row) {
+        return mDictionary[mCapabilities[row]];
+    }
+
+    /**
+     * @see Wifi#getLevel()
+     */
+    public int getLevel(final int row) {
+        return mLevels[row];
+    }
+
+    /**
+     * @see Wifi#getFrequency()
+     */
+    public int getFrequency(final int row) {
+        return mFrequencies[row];
+    }
+
+    /**
+     * @see Wifi#is24GHz()
+     */
+    public boolean is24GHz(final int row) {
+        return (mFlags[row] & FLAG_24GHZ) != 0;
+    }
+
+    /**
+     * @see Wifi#is5GHz()
+     */
+    public boolean is5GHz(final int row) {
+        return (mFlags[row] & FLAG_5GHZ) != 0;
+    }
+
+    /**
+     * @see Wifi#isSaved()
+     */
+    public boolean isSaved(final int row) {
+        return (mFlags[row] & FLAG_SAVED) != 0;
+    }
+
+    /**
+     * @see Wifi#isCurrent()
+     */
+    public boolean isCurrent(final int row) {
+        return (mFlags[row] & FLAG_CURRENT) != 0;
+    }
+
+    /**
+     * @see Wifi#isConfigDisabled()
+     */
+    public boolean isConfigDisabled(final int row) {
+        return (mFlags[row] & FLAG_CONFIG_DISABLED) != 0;
+    }
+
+    /**
+     * @see Wifi#isNeedPassword()
+     */
+    public boolean isNeedPassword(final int row) {
+        return WifiSupport.isNeedPassword(getCapabilities(row));
+    }
+
+    /**
+     * @see Wifi#countChannelWidths()
+     */
+    public int countChannelWidths(final int row) {
+        return Integer.bitCount(getChannelWidthMask(row));
+    }
+
+    /**
+     * @see Wifi#getChannelBandWidth(int)
+     */
+    public int getChannelBandWidth(final int row, final int index) {
+        int mask = getChannelWidthMask(row);
+        for (int i = 0; mask != 0; i++) {
+            final int bit = Integer.numberOfTrailingZeros(mask);
+            if (i == index) {
+                return bit - 1;
+            }
+            mask &= mask - 1;
+        }
+        return Wifi.UNSPECIFIED;
+    }
+
+    int getDictionarySize() {
+        return mDictionary.length;
+    }
+
+    @NonNull
+    String getDictionaryValue(final int id) {
+        return mDictionary[id];
+    }
+
+    int getSSIDId(final int row) {
+        return mSSIDs[row];
+    }
+
+    int getCapabilitiesId(final int row) {
+        return mCapabilities[row];
+    }
+
+    /**
+     * @see Wifi#getChannelWidthMask()
+     */
+    int getChannelWidthMask(final int row) {
+        return mChannelWidths[row] & 0xFF;
+    }
+
+    int getFlags(final int row) {
+        return mFlags[row];
+    }
+
+    /**
+     * 还原指定行的 {@link Wifi} 对象。同一行多次读取返回同一个对象。
+     */
+    @NonNull
+    public synchronized Wifi get(final int row) {
+        if (row < 0 || row >= mSize) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + mSize);
+        }
+        if (mMaterialized == null) {
+            mMaterialized = new Wifi[mSize];
+        }
+        Wifi wifi = mMaterialized[row];
+        if (wifi == null) {
+            final boolean hasWifiInfo = row == mWifiInfoRow;
+            wifi = new Wifi(getSSID(row), getBSSID(row), getCapabilities(row),
+                    getLevel(row), getFrequency(row), is24GHz(row), is5GHz(row), getChannelWidthMask(row),
+                    mConfigurations.get(row),
+                    hasWifiInfo ? mWifiInfo : null,
+                    hasWifiInfo ? mConnectionState : WifiConnection.UNKNOWN);
+            mMaterialized[row] = wifi;
+        }
+        return wifi;
+    }
+
+    /**
+     * 返回一个只读的 {@link List} 视图，元素在读取时才会被还原
+     */
+    @NonNull
+    public List<Wifi> asList() {
+        return new WifiListView();
+    }
+
+    private final class WifiListView extends AbstractList<Wifi> implements RandomAccess {
+        @Override
+        public Wifi get(final int index) {
+            return WifiSnapshot.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+}
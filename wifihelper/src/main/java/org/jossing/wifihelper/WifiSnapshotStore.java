@@ -0,0 +1,204 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.jossing.wifihelper.enumerate.WifiConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将最近一次处理好的 Wi-Fi 列表以紧凑的二进制格式持久化，供下次冷启动时立即显示。
+ * <p>
+ * 文件格式（大端序）：
+ * <pre>
+ *  int     魔数 {@link #MAGIC}
+ *  int     版本号 {@link #VERSION}
+ *  long    列表生成的时间（{@link System#currentTimeMillis()}）
+ *  int     字典大小 D
+ *  D 个    short 字节数 + UTF-8 字节
+ *  int     行数 N
+ *  N 行    int SSID 下标, int capabilities 下标, long BSSID, byte level, short frequency, byte 带宽掩码, byte 标志位
+ * </pre>
+ * 读写都通过内存映射完成。写入时先写临时文件，再重命名替换，保证文件总是完整的。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiSnapshotStore {
+    private static final String TAG = "WifiSnapshotStore";
+
+    private static final int MAGIC = 0x57465350;
+    private static final int VERSION = 1;
+    private static final int ROW_BYTES = 4 + 4 + 8 + 1 + 2 + 1 + 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @NonNull
+    private final File mFile;
+    @NonNull
+    private final File mTempFile;
+
+    WifiSnapshotStore(@NonNull final File file) {
+        mFile = file;
+        mTempFile = new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * 从文件中还原的 Wi-Fi 列表
+     */
+    static final class Restored {
+        /** 已按保存时的顺序排好序 */
+        @NonNull
+        final List<Wifi> wifiList;
+        /** 列表生成的时间 */
+        final long timestamp;
+
+        private Restored(@NonNull final List<Wifi> wifiList, final long timestamp) {
+            this.wifiList = wifiList;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * 读取上一次保存的列表。<br/>
+     * 还原出的 Wi-Fi 不含配置与连接信息（{@link Wifi#configuration}、{@link Wifi#wifiInfo} 为 null），
+     * 但排序键与保存时一致，因此列表顺序不变。
+     *
+     * @return 文件不存在或已损坏时返回 null
+     */
+    @Nullable
+    synchronized Restored load() {
+        if (!mFile.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "r");
+            final FileChannel channel = file.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("unsupported snapshot file");
+            }
+            final long timestamp = buffer.getLong();
+            // 每个字典项至少有 2 字节的长度，先校验个数再分配，损坏的文件不会造成超大的数组
+            final int dictionarySize = buffer.getInt();
+            if (dictionarySize < 0 || dictionarySize * 2L > buffer.remaining()) {
+                throw new IOException("bad dictionary size: " + dictionarySize);
+            }
+            final String[] dictionary = new String[dictionarySize];
+            for (int i = 0; i < dictionary.length; i++) {
+                final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(bytes);
+                dictionary[i] = WifiSupport.intern(new String(bytes, UTF_8));
+            }
+            final int count = buffer.getInt();
+            if (count < 0 || (long) count * ROW_BYTES > buffer.remaining()) {
+                throw new IOException("truncated snapshot file");
+            }
+            final List<Wifi> wifiList = new ArrayList<>(count);
+            for (int row = 0; row < count; row++) {
+                final String SSID = dictionary[buffer.getInt()];
+                final String capabilities = dictionary[buffer.getInt()];
+                final String BSSID = WifiSupport.intern(WifiSupport.longToBssid(buffer.getLong()));
+                final int level = buffer.get();
+                final int frequency = buffer.getShort();
+                final int channelWidthMask = buffer.get() & 0xFF;
+                final int flags = buffer.get();
+                final Wifi wifi = new Wifi(SSID, BSSID, capabilities, level, frequency,
+                        (flags & WifiSnapshot.FLAG_24GHZ) != 0, (flags & WifiSnapshot.FLAG_5GHZ) != 0,
+                        channelWidthMask, null, null, WifiConnection.UNKNOWN);
+                wifi.restoreSortKey(WifiSorter.sortKeyOf((flags & WifiSnapshot.FLAG_CURRENT) != 0,
+                        (flags & WifiSnapshot.FLAG_SAVED) != 0,
+                        (flags & WifiSnapshot.FLAG_CONFIG_DISABLED) != 0, level));
+                wifiList.add(wifi);
+            }
+            return new Restored(wifiList, timestamp);
+        } catch (IOException | RuntimeException e) {
+            // 损坏的文件可能引起各种运行时异常，一律删除，不能让它杀死事件循环线程
+            Log.w(TAG, "load -> 快照文件无效，已删除", e);
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    /**
+     * 保存列表。先写入临时文件，完成后再替换正式文件。
+     *
+     * @param timestamp 列表生成的时间
+     */
+    synchronized void save(@NonNull final WifiSnapshot snapshot, final long timestamp) {
+        final File parent = mFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            Log.w(TAG, "save -> 无法创建目录：" + parent);
+            return;
+        }
+        final int count = snapshot.size();
+        final int dictionarySize = snapshot.getDictionarySize();
+        final byte[][] dictionaryBytes = new byte[dictionarySize][];
+        long size = 4 + 4 + 8 + 4 + 4 + (long) count * ROW_BYTES;
+        for (int i = 0; i < dictionarySize; i++) {
+            final byte[] bytes = snapshot.getDictionaryValue(i).getBytes(UTF_8);
+            dictionaryBytes[i] = bytes.length > 0xFFFF ? new byte[0] : bytes;
+            size += 2 + dictionaryBytes[i].length;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mTempFile, "rw");
+            file.setLength(size);
+            final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(timestamp);
+            buffer.putInt(dictionarySize);
+            for (final byte[] bytes : dictionaryBytes) {
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+            buffer.putInt(count);
+            for (int row = 0; row < count; row++) {
+                buffer.putInt(snapshot.getSSIDId(row));
+                buffer.putInt(snapshot.getCapabilitiesId(row));
+                buffer.putLong(snapshot.getBSSIDValue(row));
+                buffer.put((byte) snapshot.getLevel(row));
+                buffer.putShort((short) snapshot.getFrequency(row));
+                buffer.put((byte) snapshot.getChannelWidthMask(row));
+                buffer.put((byte) snapshot.getFlags(row));
+            }
+            buffer.force();
+        } catch (IOException e) {
+            Log.w(TAG, "save -> 写入快照失败", e);
+            closeQuietly(file);
+            //noinspection ResultOfMethodCallIgnored
+            mTempFile.delete();
+            return;
+        }
+        closeQuietly(file);
+        if (!mTempFile.renameTo(mFile)) {
+            Log.w(TAG, "save -> 替换快照文件失败");
+            //noinspection ResultOfMethodCallIgnored
+            mTempFile.delete();
+        }
+    }
+
+    private static void closeQuietly(@Nullable final RandomAccessFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
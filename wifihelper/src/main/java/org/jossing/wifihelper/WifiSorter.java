@@ -0,0 +1,163 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基于 {@link Wifi#getSortKey()} 的排序工具。<br/>
+ * 排序键是一个打包好的 long，排序时只比较基本类型，不再反复调用 {@link Wifi#compareTo(Wifi)}。
+ * <p>
+ * 排序键的位布局（从高到低）：
+ * <pre>
+ *  bit 62      已连接
+ *  bit 61      已保存
+ *  bit 60      配置未过期
+ *  bit 52..59  量化后的信号强度（level + 128，限制在 0..255）
+ *  bit 0..31   排序时填入的原始下标，用于保持稳定排序，同时用来找回对应的 Wifi
+ * </pre>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiSorter {
+
+    private static final int SHIFT_CURRENT = 62;
+    private static final int SHIFT_SAVED = 61;
+    private static final int SHIFT_CONFIG_ENABLED = 60;
+    private static final int SHIFT_LEVEL = 52;
+
+    private static final int LEVEL_OFFSET = 128;
+    private static final int LEVEL_MAX = 0xFF;
+
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    private WifiSorter() {}
+
+    /**
+     * 计算排序键，值越大排得越靠前
+     */
+    static long sortKeyOf(final boolean current, final boolean saved, final boolean configDisabled, final int level) {
+        long key = 0;
+        if (current) {
+            key |= 1L << SHIFT_CURRENT;
+        }
+        if (saved) {
+            key |= 1L << SHIFT_SAVED;
+        }
+        if (!configDisabled) {
+            key |= 1L << SHIFT_CONFIG_ENABLED;
+        }
+        final int quantizedLevel = Math.max(0, Math.min(LEVEL_MAX, level + LEVEL_OFFSET));
+        key |= (long) quantizedLevel << SHIFT_LEVEL;
+        return key;
+    }
+
+    /**
+     * 将下标填入排序键的低位。下标越小，填入的值越大，保证相同排序键时维持原有顺序。
+     */
+    private static long withIndex(final long sortKey, final int index) {
+        return sortKey | (INDEX_MASK - index);
+    }
+
+    private static int indexOf(final long packedKey) {
+        return (int) (INDEX_MASK - (packedKey & INDEX_MASK));
+    }
+
+    /**
+     * 对整个列表排序，结果与 {@link java.util.Collections#sort(List)} 一致（稳定排序）
+     */
+    static void sort(@NonNull final List<Wifi> wifiList) {
+        final int size = wifiList.size();
+        if (size < 2) {
+            return;
+        }
+        final Wifi[] origin = wifiList.toArray(new Wifi[size]);
+        final long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = withIndex(origin[i].getSortKey(), i);
+        }
+        Arrays.sort(keys);
+        // 升序排列后，从尾部开始取即为所需的顺序
+        for (int i = 0; i < size; i++) {
+            wifiList.set(i, origin[indexOf(keys[size - 1 - i])]);
+        }
+    }
+
+    /**
+     * 部分排序：只保证前 topK 个元素有序，复杂度为 O(n log k)。<br/>
+     * 其余元素按原有的相对顺序排在后面。
+     *
+     * @param topK 需要排好序的元素个数，大于等于列表大小时等同于 {@link #sort(List)}
+     */
+    static void sortTopK(@NonNull final List<Wifi> wifiList, final int topK) {
+        final int size = wifiList.size();
+        if (topK >= size) {
+            sort(wifiList);
+            return;
+        }
+        if (topK <= 0) {
+            return;
+        }
+        final Wifi[] origin = wifiList.toArray(new Wifi[size]);
+        // 以小顶堆保存当前最大的 topK 个排序键
+        final long[] heap = new long[topK];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            final long key = withIndex(origin[i].getSortKey(), i);
+            if (heapSize < topK) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap);
+        final boolean[] selected = new boolean[size];
+        for (int i = 0; i < topK; i++) {
+            final int index = indexOf(heap[topK - 1 - i]);
+            selected[index] = true;
+            wifiList.set(i, origin[index]);
+        }
+        int position = topK;
+        for (int i = 0; i < size; i++) {
+            if (!selected[i]) {
+                wifiList.set(position++, origin[i]);
+            }
+        }
+    }
+
+    private static void siftUp(@NonNull final long[] heap, int index) {
+        final long key = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(@NonNull final long[] heap, final int heapSize) {
+        final long key = heap[0];
+        int index = 0;
+        final int half = heapSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            final int right = child + 1;
+            if (right < heapSize && heap[right] < heap[child]) {
+                child = right;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+}
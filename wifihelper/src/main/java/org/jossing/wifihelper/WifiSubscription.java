@@ -0,0 +1,19 @@
+package org.jossing.wifihelper;
+
+/**
+ * 一个订阅，取消后不再收到事件
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see WifiHelper#subscribeWifiList
+ * @see WifiHelper#subscribeWifiState
+ */
+public interface WifiSubscription {
+
+    /**
+     * 取消订阅。已经开始执行的回调不受影响，排队中的事件不再投递
+     */
+    void cancel();
+
+    boolean isCancelled();
+}
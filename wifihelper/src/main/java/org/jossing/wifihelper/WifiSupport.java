@@ -10,21 +10,13 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
-import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
-import android.support.v4.util.ArrayMap;
 import android.text.TextUtils;
-import android.util.Log;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
 
 /**
  * 封装了与 Wi-Fi 相关的一些换算的支持类
@@ -65,9 +57,54 @@ public final class WifiSupport {
      */
     public static final String DES_CHANNEL_WIDTH_80MHZ_PLUS_MHZ = "Double 80MHz";
 
+    /**
+     * 无效的 BSSID
+     *
+     * @see #bssidToLong(String)
+     */
+    public static final long INVALID_BSSID = -1L;
+
+
+    /**
+     * SSID、BSSID、capabilities 等字符串的驻留池。<br/>
+     * 只用于减少重复的字符串，不保证相等的字符串总是同一个实例：较早的扫描结果仍被持有时，它们的字符串可能已经被淘汰。
+     */
+    private static final StringPool sStringPool = new StringPool(16384);
 
     private WifiSupport() {}
 
+    /**
+     * 返回字符串的驻留实例。相等的字符串通常返回同一个对象，但不能据此只用 == 比较
+     *
+     * @see StringPool#intern(String)
+     */
+    @Nullable
+    static String intern(@Nullable final String value) {
+        return sStringPool.intern(value);
+    }
+
+    /**
+     * {@link java.util.Objects#requireNonNull(Object, String)} 在 API 19 才加入
+     */
+    @NonNull
+    static <T> T checkNotNull(@Nullable final T value, @NonNull final String name) {
+        if (value == null) {
+            throw new NullPointerException(name + " == null");
+        }
+        return value;
+    }
+
+    /**
+     * 比较驻留过的字符串：同一个实例时直接返回，否则按内容比较
+     */
+    static boolean equalStrings(@Nullable final String a, @Nullable final String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    static boolean isOverApi17() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1;
+    }
+
     static boolean isOverApi18() {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
     }
@@ -165,90 +202,81 @@ public final class WifiSupport {
     }
 
     /**
-     * 获取 Wi-Fi 列表
+     * 将用 int 存储的 ip 地址格式化为字符串
      */
-    @NonNull
-    static List<Wifi> getWifiList(@NonNull final Context context) {
-        // 首先检查有权限没有
-        if (!isLocationServiceEnabled(context) || !isLocationPermissionGranted(context)) {
-            return new ArrayList<>();
-        }
-        final WifiManager wifiManager = getWifiManager(context);
-        final List<ScanResult> scanResults = wifiManager.getScanResults();
-        final Map<String, WifiConfiguration> wifiConfigurationMap = getConfigurationNetworks(wifiManager);
-        final WifiInfo wifiInfo = wifiManager.getConnectionInfo();
-        final List<Wifi> wifiList = new ArrayList<>();
-        if (scanResults == null) {
-            return wifiList;
-        }
-        // 同名 Wi-Fi 进行合并，同时把没有名字的 Wi-Fi 去掉
-        final Map<String, Wifi> wifiMap = new ArrayMap<>();
-        for (final ScanResult scanResult : scanResults) {
-            if (TextUtils.isEmpty(scanResult.SSID)) {
-                continue;
-            }
-            final Wifi wifiAdded = wifiMap.get(scanResult.SSID);
-            if (wifiAdded == null) {
-                wifiMap.put(scanResult.SSID, Wifi.from(scanResult)
-                        .configuration(wifiConfigurationMap.get(scanResult.SSID))
-                        .wifiInfo(wifiInfo)
-                        .create());
-                continue;
-            }
-            final boolean success = wifiAdded.merge(scanResult);
-            if (!success) {
-                Log.w(TAG, "getWifiList -> 忽略：" + scanResult);
-            }
+    public static String getIpAddressString(final int ipAddress) {
+        try {
+            return String.valueOf(ipAddress & 0xFF) + "." +
+                    (ipAddress >> 8 & 0xFF) + "." +
+                    (ipAddress >> 16 & 0xFF) + "." +
+                    (ipAddress >> 24 & 0xFF);
+        } catch (Exception e) {
+            return "0.0.0.0";
         }
-        wifiList.addAll(wifiMap.values());
-        Collections.sort(wifiList);
-        return wifiList;
     }
 
     /**
-     * 使用 SSID 为 key，将已配置的的网络列表包装在 Map 中返回
+     * 将 "aa:bb:cc:dd:ee:ff" 形式的 BSSID 转换为 long，便于紧凑存储
      *
-     * @see WifiManager#getConfiguredNetworks()
+     * @return BSSID 为空或格式不正确时返回 {@link #INVALID_BSSID}
      */
-    @NonNull
-    private static Map<String, WifiConfiguration> getConfigurationNetworks(@NonNull final WifiManager wifiManager) {
-        final Map<String, WifiConfiguration> wifiConfigurationMap = new ArrayMap<>();
-        final List<WifiConfiguration> configuredNetworks = wifiManager.getConfiguredNetworks();
-        if (configuredNetworks == null) {
-            return wifiConfigurationMap;
+    public static long bssidToLong(@Nullable final String BSSID) {
+        if (BSSID == null || BSSID.length() != 17) {
+            return INVALID_BSSID;
         }
-        for (final WifiConfiguration configuration : configuredNetworks) {
-            wifiConfigurationMap.put(getRealSSID(configuration.SSID), configuration);
+        long value = 0;
+        for (int i = 0; i < 17; i++) {
+            final char c = BSSID.charAt(i);
+            if (i % 3 == 2) {
+                if (c != ':') {
+                    return INVALID_BSSID;
+                }
+                continue;
+            }
+            final int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return INVALID_BSSID;
+            }
+            value = (value << 4) | digit;
         }
-        return wifiConfigurationMap;
+        return value;
     }
 
     /**
-     * 将用 int 存储的 ip 地址格式化为字符串
+     * {@link #bssidToLong(String)} 的逆运算
+     *
+     * @return bssid 为 {@link #INVALID_BSSID} 时返回 null
      */
-    public static String getIpAddressString(final int ipAddress) {
-        try {
-            return String.valueOf(ipAddress & 0xFF) + "." +
-                    (ipAddress >> 8 & 0xFF) + "." +
-                    (ipAddress >> 16 & 0xFF) + "." +
-                    (ipAddress >> 24 & 0xFF);
-        } catch (Exception e) {
-            return "0.0.0.0";
+    @Nullable
+    public static String longToBssid(final long bssid) {
+        if (bssid == INVALID_BSSID) {
+            return null;
+        }
+        final char[] chars = new char[17];
+        for (int i = 0; i < 6; i++) {
+            final int octet = (int) (bssid >>> ((5 - i) * 8)) & 0xFF;
+            chars[i * 3] = Character.forDigit(octet >>> 4, 16);
+            chars[i * 3 + 1] = Character.forDigit(octet & 0x0F, 16);
+            if (i < 5) {
+                chars[i * 3 + 2] = ':';
+            }
         }
+        return new String(chars);
     }
 
     /**
-     * 鉴于 {@link WifiConfiguration} 和 {@link NetworkInfo} 对 SSID 的存储特征，可以使用此方法提取不带引号的 SSID
+     * 鉴于 {@link WifiConfiguration} 和 {@link NetworkInfo} 对 SSID 的存储特征，可以使用此方法提取不带引号的 SSID。<br/>
+     * 返回的是驻留后的字符串，与扫描结果中相同的 SSID 通常是同一个实例。
      */
     @NonNull
     public static String getRealSSID(@NonNull final String SSID) {
         if (TextUtils.isEmpty(SSID)) {
             return "";
         }
-        if (SSID.startsWith("\"") && SSID.endsWith("\"")) {
-            return SSID.substring(1, SSID.length() - 1);
+        if (SSID.length() >= 2 && SSID.startsWith("\"") && SSID.endsWith("\"")) {
+            return intern(SSID.substring(1, SSID.length() - 1));
         }
-        return SSID;
+        return intern(SSID);
     }
 
     /**
@@ -0,0 +1,246 @@
+package org.jossing.wifihelper;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * 库内共用的时间轮定时器，所有超时和延时都挂在这里，只在构造时传入的 Handler 的线程中使用，不需要加锁。
+ * <ul>
+ *     <li>每个超时按到期的格子挂在时间轮的某一格的双向链表上，添加和取消都是 O(1) 的</li>
+ *     <li>只用一个 Handler 消息驱动，每走一格只处理这一格上的超时；没有待执行的超时时不再走动，不会空转唤醒</li>
+ *     <li>时间取自 {@link WifiClock}，测试中换成 {@link WifiClock.Manual} 就可以确定地推进时间</li>
+ * </ul>
+ * 到期时间精确到一格，超时最多晚一格执行。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class WifiTimer {
+    private static final String TAG = "WifiTimer";
+
+    static final long DEFAULT_TICK_MILLIS = 100;
+    /** 转一圈 51.2 秒，更远的超时在格子中等待整圈 */
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    @NonNull
+    private final Handler mHandler;
+    private final long mTickMillis;
+    /** 每一格是一个双向链表的表头 */
+    private final Timeout[] mWheel = new Timeout[WHEEL_SIZE];
+    @NonNull
+    private WifiClock mClock;
+    /** 第 0 格对应的时钟时间 */
+    private long mStartMillis;
+    /** 已经处理到的格子（绝对值） */
+    private long mCurrentTick = 0;
+    /** 还没有到期、也没有取消的超时个数 */
+    private int mPending = 0;
+    /** 是否已经投递了下一格的消息 */
+    private boolean mTicking = false;
+
+    private final Runnable mTick = this::onTick;
+    /** {@link WifiClock.Manual} 前进时，在 Handler 的线程中处理到期的超时 */
+    private final Runnable mClockListener = new Runnable() {
+        @Override
+        public void run() {
+            mHandler.post(WifiTimer.this::expire);
+        }
+    };
+
+    WifiTimer(@NonNull final Handler handler, @NonNull final WifiClock clock, final long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis: " + tickMillis);
+        }
+        mHandler = handler;
+        mTickMillis = tickMillis;
+        mClock = clock;
+        mStartMillis = clock.elapsedRealtime();
+        addClockListener(clock);
+    }
+
+    /**
+     * 换一个时钟，已有的超时保持剩余的时间不变
+     */
+    void setClock(@NonNull final WifiClock clock) {
+        if (clock == mClock) {
+            return;
+        }
+        removeClockListener(mClock);
+        // 当前的格子对应新时钟的当前时间
+        mStartMillis = clock.elapsedRealtime() - mCurrentTick * mTickMillis;
+        mClock = clock;
+        addClockListener(clock);
+    }
+
+    @NonNull
+    WifiClock getClock() {
+        return mClock;
+    }
+
+    /**
+     * @param delayMillis 多久之后执行，不足一格按一格算
+     */
+    @NonNull
+    Timeout schedule(final long delayMillis, @NonNull final Runnable task) {
+        final long deadlineMillis = mClock.elapsedRealtime() + Math.max(0, delayMillis) - mStartMillis;
+        // 向上取整，不会提前执行
+        final long deadlineTick = Math.max((deadlineMillis + mTickMillis - 1) / mTickMillis, mCurrentTick + 1);
+        final Timeout timeout = new Timeout(this, deadlineTick, task);
+        link(timeout);
+        mPending++;
+        scheduleTick();
+        return timeout;
+    }
+
+    int size() {
+        return mPending;
+    }
+
+    private void onTick() {
+        mTicking = false;
+        expire();
+        if (mPending > 0) {
+            scheduleTick();
+        }
+    }
+
+    private void scheduleTick() {
+        if (!mTicking) {
+            mTicking = true;
+            mHandler.postDelayed(mTick, mTickMillis);
+        }
+    }
+
+    /**
+     * 执行所有已经到期的超时
+     */
+    void expire() {
+        final long targetTick = (mClock.elapsedRealtime() - mStartMillis) / mTickMillis;
+        if (targetTick <= mCurrentTick) {
+            return;
+        }
+        // 落后超过一圈时，每一格只需要看一次
+        final long steps = Math.min(targetTick - mCurrentTick, WHEEL_SIZE);
+        Timeout expiredHead = null;
+        Timeout expiredTail = null;
+        for (long i = 1; i <= steps; i++) {
+            Timeout timeout = mWheel[(int) ((mCurrentTick + i) & WHEEL_MASK)];
+            while (timeout != null) {
+                final Timeout next = timeout.mNext;
+                if (timeout.mDeadlineTick <= targetTick) {
+                    unlink(timeout);
+                    mPending--;
+                    if (expiredTail == null) {
+                        expiredHead = timeout;
+                    } else {
+                        expiredTail.mNext = timeout;
+                    }
+                    expiredTail = timeout;
+                }
+                timeout = next;
+            }
+        }
+        // 先走到目标格子，超时中再添加的超时不会落在已经处理过的格子上
+        mCurrentTick = targetTick;
+        Timeout timeout = expiredHead;
+        while (timeout != null) {
+            final Timeout next = timeout.mNext;
+            timeout.mNext = null;
+            // 可能被同一批中先执行的超时取消
+            if (!timeout.mCancelled) {
+                timeout.mExpired = true;
+                try {
+                    timeout.mTask.run();
+                } catch (RuntimeException e) {
+                    // 不能让一个超时的异常影响之后的超时
+                    Log.e(TAG, "expire -> 超时任务异常", e);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void link(@NonNull final Timeout timeout) {
+        final int index = (int) (timeout.mDeadlineTick & WHEEL_MASK);
+        final Timeout head = mWheel[index];
+        timeout.mPrev = null;
+        timeout.mNext = head;
+        if (head != null) {
+            head.mPrev = timeout;
+        }
+        mWheel[index] = timeout;
+        timeout.mLinked = true;
+    }
+
+    private void unlink(@NonNull final Timeout timeout) {
+        if (timeout.mPrev != null) {
+            timeout.mPrev.mNext = timeout.mNext;
+        } else {
+            mWheel[(int) (timeout.mDeadlineTick & WHEEL_MASK)] = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrev = timeout.mPrev;
+        }
+        timeout.mPrev = null;
+        timeout.mNext = null;
+        timeout.mLinked = false;
+    }
+
+    private void addClockListener(@NonNull final WifiClock clock) {
+        if (clock instanceof WifiClock.Manual) {
+            ((WifiClock.Manual) clock).addListener(mClockListener);
+        }
+    }
+
+    private void removeClockListener(@NonNull final WifiClock clock) {
+        if (clock instanceof WifiClock.Manual) {
+            ((WifiClock.Manual) clock).removeListener(mClockListener);
+        }
+    }
+
+    /**
+     * 一个待执行的超时，只在定时器的线程中使用
+     */
+    static final class Timeout {
+        @NonNull
+        private final WifiTimer mTimer;
+        private final long mDeadlineTick;
+        @NonNull
+        private final Runnable mTask;
+        @Nullable
+        private Timeout mPrev;
+        @Nullable
+        private Timeout mNext;
+        private boolean mLinked = false;
+        private boolean mExpired = false;
+        private boolean mCancelled = false;
+
+        private Timeout(@NonNull final WifiTimer timer, final long deadlineTick, @NonNull final Runnable task) {
+            mTimer = timer;
+            mDeadlineTick = deadlineTick;
+            mTask = task;
+        }
+
+        /**
+         * @return true 取消成功；false 已经执行过或已经取消过
+         */
+        boolean cancel() {
+            if (mExpired || mCancelled) {
+                return false;
+            }
+            mCancelled = true;
+            if (mLinked) {
+                mTimer.unlink(this);
+                mTimer.mPending--;
+            }
+            return true;
+        }
+
+        boolean isExpired() {
+            return mExpired;
+        }
+    }
+}
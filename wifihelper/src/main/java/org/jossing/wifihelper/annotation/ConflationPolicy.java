@@ -0,0 +1,16 @@
+package org.jossing.wifihelper.annotation;
+
+import android.support.annotation.IntDef;
+
+import org.jossing.wifihelper.enumerate.Conflation;
+
+/**
+ * @author jossing
+ * @date 2026/10/19
+ */
+@IntDef({
+        Conflation.ALL,
+        Conflation.LATEST,
+})
+public @interface ConflationPolicy {
+}
@@ -0,0 +1,19 @@
+package org.jossing.wifihelper.annotation;
+
+import android.support.annotation.IntDef;
+
+import org.jossing.wifihelper.enumerate.ConnectFailure;
+
+/**
+ * @author jossing
+ * @date 2026/10/19
+ */
+@IntDef({
+        ConnectFailure.AUTH,
+        ConnectFailure.TIMEOUT,
+        ConnectFailure.DHCP,
+        ConnectFailure.ASSOCIATION,
+        ConnectFailure.REJECTED,
+})
+public @interface ConnectFailureReason {
+}
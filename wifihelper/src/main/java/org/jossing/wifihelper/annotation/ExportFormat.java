@@ -0,0 +1,17 @@
+package org.jossing.wifihelper.annotation;
+
+import android.support.annotation.IntDef;
+
+import org.jossing.wifihelper.enumerate.ScanExport;
+
+/**
+ * @author jossing
+ * @date 2026/10/19
+ */
+@IntDef({
+        ScanExport.FORMAT_CSV,
+        ScanExport.FORMAT_JSON_LINES,
+        ScanExport.FORMAT_BINARY,
+})
+public @interface ExportFormat {
+}
@@ -0,0 +1,17 @@
+package org.jossing.wifihelper.annotation;
+
+import android.support.annotation.IntDef;
+
+import org.jossing.wifihelper.enumerate.Overflow;
+
+/**
+ * @author jossing
+ * @date 2026/10/19
+ */
+@IntDef({
+        Overflow.DROP_OLDEST,
+        Overflow.LATEST,
+        Overflow.BUFFER,
+})
+public @interface OverflowStrategy {
+}
@@ -0,0 +1,20 @@
+package org.jossing.wifihelper.annotation;
+
+import android.support.annotation.IntDef;
+
+import org.jossing.wifihelper.enumerate.ScanPipeline;
+
+/**
+ * @author jossing
+ * @date 2026/10/19
+ */
+@IntDef({
+        ScanPipeline.PHASE_SOURCE,
+        ScanPipeline.PHASE_FILTER,
+        ScanPipeline.PHASE_MERGE,
+        ScanPipeline.PHASE_ENRICH,
+        ScanPipeline.PHASE_RANK,
+        ScanPipeline.PHASE_PUBLISH,
+})
+public @interface PipelinePhase {
+}
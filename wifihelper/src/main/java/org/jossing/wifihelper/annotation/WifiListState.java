@@ -12,6 +12,7 @@ import org.jossing.wifihelper.enumerate.WifiOperating;
         WifiOperating.RESULT_SUCCESS,
         WifiOperating.REQUIRE_LOCATION_PERMISSION,
         WifiOperating.LOCATION_SERVICE_DISABLED,
+        WifiOperating.RESULT_CACHED,
 })
 public @interface WifiListState {
 }
@@ -0,0 +1,18 @@
+package org.jossing.wifihelper.enumerate;
+
+/**
+ * 订阅者处理不过来时，如何合并积压的事件
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see org.jossing.wifihelper.WifiHelper#subscribeWifiList
+ */
+public final class Conflation {
+
+    private Conflation() {}
+
+    /** 每个事件都投递，按发布的顺序，积压的事件会一直排队 */
+    public static final int ALL = 0;
+    /** 只投递最新的事件，还没来得及投递的旧事件直接丢弃 */
+    public static final int LATEST = 1;
+}
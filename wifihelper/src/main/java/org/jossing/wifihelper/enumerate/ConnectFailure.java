@@ -0,0 +1,26 @@
+package org.jossing.wifihelper.enumerate;
+
+/**
+ * 连接指定 Wi-Fi 失败的原因
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ConnectFailure {
+
+    private ConnectFailure() {}
+
+    /** 认证失败，系统已把配置置为 {@link android.net.wifi.WifiConfiguration.Status#DISABLED}，通常是密码错误 */
+    public static final int AUTH = 0;
+    /** 在超时时间内没有结果 */
+    public static final int TIMEOUT = 1;
+    /** 已经关联上，但获取 IP 地址失败 */
+    public static final int DHCP = 2;
+    /** 还没到获取 IP 地址就断开了，例如关联被拒绝、信号太弱 */
+    public static final int ASSOCIATION = 3;
+    /** 系统拒绝了添加配置或启用网络的请求，或者连接过程中配置被移除 */
+    public static final int REJECTED = 4;
+
+    /** 原因的个数 */
+    public static final int COUNT = 5;
+}
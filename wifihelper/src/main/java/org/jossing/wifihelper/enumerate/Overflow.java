@@ -0,0 +1,19 @@
+package org.jossing.wifihelper.enumerate;
+
+/**
+ * {@link org.jossing.wifihelper.WifiFlow} 的订阅者请求量不足、缓冲区已满时，如何处理新的事件
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class Overflow {
+
+    private Overflow() {}
+
+    /** 丢弃缓冲区中最旧的事件，保留最近的 n 个 */
+    public static final int DROP_OLDEST = 0;
+    /** 只保留最新的一个事件，缓冲区大小不起作用 */
+    public static final int LATEST = 1;
+    /** 缓冲 n 个事件，超出后以 {@link IllegalStateException} 结束订阅 */
+    public static final int BUFFER = 2;
+}
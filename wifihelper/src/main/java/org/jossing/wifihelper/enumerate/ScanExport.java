@@ -0,0 +1,20 @@
+package org.jossing.wifihelper.enumerate;
+
+/**
+ * 导出扫描数据的格式
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see org.jossing.wifihelper.history.ScanExporter
+ */
+public final class ScanExport {
+
+    private ScanExport() {}
+
+    /** 逗号分隔，首行为列名 */
+    public static final int FORMAT_CSV = 0;
+    /** 每行一个 JSON 对象 */
+    public static final int FORMAT_JSON_LINES = 1;
+    /** SSID 字典 + 压缩编码的记录 */
+    public static final int FORMAT_BINARY = 2;
+}
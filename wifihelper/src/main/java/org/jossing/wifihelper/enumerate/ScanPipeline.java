@@ -0,0 +1,26 @@
+package org.jossing.wifihelper.enumerate;
+
+/**
+ * 扫描处理流水线的阶段，同一阶段内的环节按加入的顺序执行
+ *
+ * @author jossing
+ * @date 2026/10/19
+ * @see org.jossing.wifihelper.WifiPipeline
+ */
+public final class ScanPipeline {
+
+    private ScanPipeline() {}
+
+    /** 获取扫描结果、已保存的配置和连接信息 */
+    public static final int PHASE_SOURCE = 0;
+    /** 过滤原始的扫描结果 */
+    public static final int PHASE_FILTER = 1;
+    /** 把扫描结果合并为 Wi-Fi */
+    public static final int PHASE_MERGE = 2;
+    /** 为 Wi-Fi 补充额外的信息 */
+    public static final int PHASE_ENRICH = 3;
+    /** 排序 */
+    public static final int PHASE_RANK = 4;
+    /** 在 Wi-Fi 引擎的事件循环线程中发布结果 */
+    public static final int PHASE_PUBLISH = 5;
+}
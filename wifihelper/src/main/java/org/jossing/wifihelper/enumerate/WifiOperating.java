@@ -30,4 +30,8 @@ public final class WifiOperating {
      * 由于 Wi-Fi 没有开启引发的错误
      */
     public final static int WIFI_NOT_ENABLED = 4;
+    /**
+     * 使用的是上一次保存的 Wi-Fi 列表，新的结果还未拿到
+     */
+    public final static int RESULT_CACHED = 5;
 }
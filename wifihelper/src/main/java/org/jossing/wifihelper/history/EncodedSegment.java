@@ -0,0 +1,337 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压缩后的扫描历史文件，只读。格式见 {@link ScanHistoryCodec}。<br/>
+ * 解码是流式的：游标只持有当前块各列的读取位置和每个 BSSID 上一次的值，不会还原整个文件。
+ * <p>
+ * 块目录中每块的首末时间戳就是稀疏的时间索引；按 BSSID 查询时，首次查询会扫描各块的 BSSID 列，
+ * 建立 BSSID 到块的倒排索引，之后只需解码包含该 BSSID 的块。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class EncodedSegment implements HistoryPart {
+
+    private final long mSequence;
+    @NonNull
+    private final File mFile;
+    @NonNull
+    private final MappedByteBuffer mBuffer;
+    private final int mCount;
+
+    @NonNull
+    private final long[] mBSSIDs;
+    @NonNull
+    private final long[] mBlockFirstTimestamps;
+    @NonNull
+    private final long[] mBlockLastTimestamps;
+    @NonNull
+    private final int[] mBlockOffsets;
+
+    /** BSSID 到文件内编号，首次按 BSSID 查询时才建立 */
+    @Nullable
+    private Map<Long, Integer> mBSSIDIds;
+    /** 每个 BSSID 出现在哪些块中，首次按 BSSID 查询时才建立 */
+    @Nullable
+    private BitSet[] mPostings;
+
+    private EncodedSegment(@NonNull final File file, @NonNull final MappedByteBuffer buffer) throws IOException {
+        mFile = file;
+        mBuffer = buffer;
+        final int size = buffer.capacity();
+        if (size < ScanHistoryCodec.HEADER_BYTES + ScanHistoryCodec.TRAILER_BYTES
+                || buffer.getInt(0) != ScanHistoryCodec.MAGIC
+                || buffer.getInt(4) != ScanHistoryCodec.VERSION
+                || buffer.getInt(size - 4) != ScanHistoryCodec.MAGIC) {
+            throw new IOException("not an encoded history file: " + file);
+        }
+        mSequence = buffer.getLong(8);
+        mCount = buffer.getInt(size - 8);
+        final long directoryOffset = buffer.getLong(size - ScanHistoryCodec.TRAILER_BYTES);
+        if (directoryOffset < ScanHistoryCodec.HEADER_BYTES || directoryOffset > size - ScanHistoryCodec.TRAILER_BYTES) {
+            throw new IOException("bad directory offset: " + file);
+        }
+        final ByteBuffer directory = buffer.duplicate();
+        directory.position((int) directoryOffset);
+        try {
+            mBSSIDs = new long[directory.getInt()];
+            for (int i = 0; i < mBSSIDs.length; i++) {
+                mBSSIDs[i] = directory.getLong();
+            }
+            final int blockCount = directory.getInt();
+            mBlockFirstTimestamps = new long[blockCount];
+            mBlockLastTimestamps = new long[blockCount];
+            mBlockOffsets = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                mBlockFirstTimestamps[i] = directory.getLong();
+                mBlockLastTimestamps[i] = directory.getLong();
+                mBlockOffsets[i] = directory.getInt();
+                // 块内的记录条数以块头为准
+                directory.getInt();
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("bad directory: " + file, e);
+        }
+    }
+
+    @NonNull
+    @WorkerThread
+    static EncodedSegment open(@NonNull final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            return new EncodedSegment(file, buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Override
+    public long sequence() {
+        return mSequence;
+    }
+
+    @NonNull
+    @Override
+    public File file() {
+        return mFile;
+    }
+
+    @Override
+    public int count() {
+        return mCount;
+    }
+
+    @Override
+    public long firstTimestamp() {
+        return mBlockFirstTimestamps.length == 0 ? Long.MAX_VALUE : mBlockFirstTimestamps[0];
+    }
+
+    @Override
+    public long lastTimestamp() {
+        return mBlockLastTimestamps.length == 0 ? Long.MIN_VALUE : mBlockLastTimestamps[mBlockLastTimestamps.length - 1];
+    }
+
+    int blockCount() {
+        return mBlockOffsets.length;
+    }
+
+    long blockFirstTimestamp(final int block) {
+        return mBlockFirstTimestamps[block];
+    }
+
+    long blockLastTimestamp(final int block) {
+        return mBlockLastTimestamps[block];
+    }
+
+    /**
+     * 文件中出现过的所有 BSSID，下标即文件内编号
+     */
+    @NonNull
+    long[] getBSSIDs() {
+        return mBSSIDs;
+    }
+
+    /**
+     * 第一个可能包含不早于 timestamp 的记录的块
+     */
+    int lowerBlock(final long timestamp) {
+        int low = 0;
+        int high = mBlockLastTimestamps.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mBlockLastTimestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一个所有记录都不早于 timestamp 的块
+     */
+    int upperBlock(final long timestamp) {
+        int low = 0;
+        int high = mBlockFirstTimestamps.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mBlockFirstTimestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * BSSID 在文件内的编号，文件中没有该 BSSID 时返回 -1
+     */
+    synchronized int idOf(final long BSSID) {
+        if (mBSSIDIds == null) {
+            final Map<Long, Integer> ids = new HashMap<>(mBSSIDs.length * 2);
+            for (int i = 0; i < mBSSIDs.length; i++) {
+                ids.put(mBSSIDs[i], i);
+            }
+            mBSSIDIds = ids;
+        }
+        final Integer id = mBSSIDIds.get(BSSID);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 包含指定 BSSID 的块
+     *
+     * @param id {@link #idOf(long)} 的返回值
+     */
+    @NonNull
+    synchronized BitSet blocksOf(final int id) {
+        if (mPostings == null) {
+            mPostings = buildPostings();
+        }
+        return mPostings[id];
+    }
+
+    /**
+     * 只读取各块的 BSSID 列，建立倒排索引。内存占用为 BSSID 个数 × 块个数 个比特。
+     */
+    @NonNull
+    private BitSet[] buildPostings() {
+        final BitSet[] postings = new BitSet[mBSSIDs.length];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = new BitSet(mBlockOffsets.length);
+        }
+        final ByteBuffer keyColumn = mBuffer.duplicate();
+        for (int block = 0; block < mBlockOffsets.length; block++) {
+            final int offset = mBlockOffsets[block];
+            final int count = mBuffer.getInt(offset);
+            keyColumn.limit(mBuffer.capacity());
+            keyColumn.position(offset + ScanHistoryCodec.BLOCK_HEADER_BYTES + mBuffer.getInt(offset + 12));
+            for (int i = 0; i < count; i++) {
+                postings[ScanHistoryCodec.readVarInt(keyColumn) >>> ScanHistoryCodec.CHANGED_BITS].set(block);
+            }
+        }
+        return postings;
+    }
+
+    @NonNull
+    @Override
+    public RecordCursor cursor() {
+        return cursor(0, mBlockOffsets.length, null);
+    }
+
+    /**
+     * 只遍历 [fromBlock, toBlock) 范围内的块
+     *
+     * @param blocks 不为 null 时，只遍历其中置位的块
+     */
+    @NonNull
+    RecordCursor cursor(final int fromBlock, final int toBlock, @Nullable final BitSet blocks) {
+        return new BlockCursor(fromBlock, toBlock, blocks);
+    }
+
+    private final class BlockCursor implements RecordCursor {
+        private final int mToBlock;
+        @Nullable
+        private final BitSet mBlocks;
+        private int mNextBlock;
+
+        /** 当前块剩余的记录条数 */
+        private int mRemaining = 0;
+        private long mTimestamp;
+        private final ByteBuffer mTimestampColumn = mBuffer.duplicate();
+        private final ByteBuffer mKeyColumn = mBuffer.duplicate();
+        private final ByteBuffer mLevelColumn = mBuffer.duplicate();
+        private final ByteBuffer mExtraColumn = mBuffer.duplicate();
+
+        /** 当前块内每个 BSSID 上一次的值 */
+        private final int[] mLastLevels = new int[mBSSIDs.length];
+        private final int[] mLastSsidIds = new int[mBSSIDs.length];
+        private final int[] mLastFrequencies = new int[mBSSIDs.length];
+        private final int[] mLastFlags = new int[mBSSIDs.length];
+
+        BlockCursor(final int fromBlock, final int toBlock, @Nullable final BitSet blocks) {
+            mNextBlock = Math.max(0, fromBlock);
+            mToBlock = Math.min(toBlock, mBlockOffsets.length);
+            mBlocks = blocks;
+        }
+
+        private boolean openNextBlock() {
+            while (mNextBlock < mToBlock) {
+                if (mBlocks != null) {
+                    mNextBlock = mBlocks.nextSetBit(mNextBlock);
+                    if (mNextBlock < 0 || mNextBlock >= mToBlock) {
+                        mNextBlock = mToBlock;
+                        return false;
+                    }
+                }
+                final int offset = mBlockOffsets[mNextBlock++];
+                final int count = mBuffer.getInt(offset);
+                if (count <= 0) {
+                    continue;
+                }
+                mTimestamp = mBuffer.getLong(offset + 4);
+                int position = offset + ScanHistoryCodec.BLOCK_HEADER_BYTES;
+                position = seek(mTimestampColumn, position, mBuffer.getInt(offset + 12));
+                position = seek(mKeyColumn, position, mBuffer.getInt(offset + 16));
+                position = seek(mLevelColumn, position, mBuffer.getInt(offset + 20));
+                seek(mExtraColumn, position, mBuffer.getInt(offset + 24));
+                Arrays.fill(mLastLevels, 0);
+                Arrays.fill(mLastSsidIds, 0);
+                Arrays.fill(mLastFrequencies, 0);
+                Arrays.fill(mLastFlags, 0);
+                mRemaining = count;
+                return true;
+            }
+            return false;
+        }
+
+        private int seek(@NonNull final ByteBuffer column, final int position, final int length) {
+            column.limit(position + length);
+            column.position(position);
+            return position + length;
+        }
+
+        @Override
+        public boolean next(@NonNull final ScanRecord record) {
+            if (mRemaining == 0 && !openNextBlock()) {
+                return false;
+            }
+            mRemaining--;
+            mTimestamp += ScanHistoryCodec.unzigzag(ScanHistoryCodec.readVarLong(mTimestampColumn));
+            final int key = ScanHistoryCodec.readVarInt(mKeyColumn);
+            final int id = key >>> ScanHistoryCodec.CHANGED_BITS;
+            final int level = mLastLevels[id] + ScanHistoryCodec.unzigzag(ScanHistoryCodec.readVarInt(mLevelColumn));
+            if ((key & ScanHistoryCodec.CHANGED_SSID) != 0) {
+                mLastSsidIds[id] += ScanHistoryCodec.unzigzag(ScanHistoryCodec.readVarInt(mExtraColumn));
+            }
+            if ((key & ScanHistoryCodec.CHANGED_FREQUENCY) != 0) {
+                mLastFrequencies[id] += ScanHistoryCodec.unzigzag(ScanHistoryCodec.readVarInt(mExtraColumn));
+            }
+            if ((key & ScanHistoryCodec.CHANGED_FLAGS) != 0) {
+                mLastFlags[id] = ScanHistoryCodec.readVarInt(mExtraColumn);
+            }
+            mLastLevels[id] = level;
+            record.set(mTimestamp, mBSSIDs[id], mLastSsidIds[id], level, mLastFrequencies[id], mLastFlags[id]);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+/**
+ * 扫描历史中的一个文件：未压缩的段文件（{@link Segment}）或压缩后的文件（{@link EncodedSegment}）。<br/>
+ * 同一序号的记录在压缩前后保持相同的顺序。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+interface HistoryPart {
+
+    long sequence();
+
+    @NonNull
+    File file();
+
+    /**
+     * 记录条数。对于正在写入的段文件，是调用时已写入的条数
+     */
+    int count();
+
+    long firstTimestamp();
+
+    long lastTimestamp();
+
+    /**
+     * 按写入顺序遍历当前已有的记录
+     */
+    @NonNull
+    RecordCursor cursor();
+}
@@ -0,0 +1,63 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+
+/**
+ * 信号强度的统计结果，统计过程中只占用固定大小的内存
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class LevelStats {
+
+    private long mCount = 0;
+    private long mSum = 0;
+    private int mMin = Integer.MAX_VALUE;
+    private int mMax = Integer.MIN_VALUE;
+
+    void add(final int level) {
+        mCount++;
+        mSum += level;
+        if (level < mMin) {
+            mMin = level;
+        }
+        if (level > mMax) {
+            mMax = level;
+        }
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * 没有记录时返回 {@link Integer#MAX_VALUE}
+     */
+    public int getMin() {
+        return mMin;
+    }
+
+    /**
+     * 没有记录时返回 {@link Integer#MIN_VALUE}
+     */
+    public int getMax() {
+        return mMax;
+    }
+
+    /**
+     * 没有记录时返回 {@link Double#NaN}
+     */
+    public double getAverage() {
+        return mCount == 0 ? Double.NaN : (double) mSum / mCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "LevelStats{count=" + mCount +
+                ", min=" + mMin +
+                ", max=" + mMax +
+                ", average=" + getAverage() +
+                "}";
+    }
+}
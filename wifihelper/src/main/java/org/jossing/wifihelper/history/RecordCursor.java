@@ -0,0 +1,19 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+
+/**
+ * 逐条读取扫描历史的游标，不会一次性读出全部记录
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+interface RecordCursor {
+
+    /**
+     * 将下一条记录读入 record
+     *
+     * @return false 没有更多记录了
+     */
+    boolean next(@NonNull final ScanRecord record);
+}
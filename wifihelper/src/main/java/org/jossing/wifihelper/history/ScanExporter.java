@@ -0,0 +1,449 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import org.jossing.wifihelper.WifiSnapshot;
+import org.jossing.wifihelper.WifiSupport;
+import org.jossing.wifihelper.annotation.ExportFormat;
+import org.jossing.wifihelper.enumerate.ScanExport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 将 Wi-Fi 列表快照或扫描历史导出为 CSV、JSON Lines 或二进制格式。<br/>
+ * 导出是流式的：记录逐条编码进一块复用的缓冲区，写满后直接写入 channel，
+ * 导出上百万条记录也只占用固定大小的内存，不会为每条记录创建字符串。
+ * <p>
+ * 快照的列：timestamp、ssid、bssid、capabilities、level、frequency、band、channel_widths、
+ * saved、current、config_disabled、need_password。<br/>
+ * 扫描历史不保存 capabilities 和信道带宽，其余列与快照相同。
+ * <p>
+ * 二进制格式：
+ * <pre>
+ *  int     魔数 {@link #MAGIC}
+ *  int     版本号 {@link #VERSION}
+ *  int     SSID 个数，每个为 short 字节数 + UTF-8 字节，下标即 SSID 编号
+ *  ...     {@link ScanHistoryCodec} 格式的压缩记录
+ * </pre>
+ * 每次调用 export 方法都会写出一份完整的文档（CSV 的列名行、二进制的头部），channel 由调用方负责关闭。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanExporter {
+
+    public static final int MAGIC = 0x57534858;
+    public static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    /** 单个字符编码后最多占用的字节数：JSON 转义 \\u00XX 为 6 个字节 */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final String[] SNAPSHOT_COLUMNS = {
+            "timestamp", "ssid", "bssid", "capabilities", "level", "frequency", "band", "channel_widths",
+            "saved", "current", "config_disabled", "need_password",
+    };
+    private static final String[] HISTORY_COLUMNS = {
+            "timestamp", "ssid", "bssid", "level", "frequency", "band",
+            "saved", "current", "config_disabled", "need_password",
+    };
+
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f',
+    };
+
+    @NonNull
+    private final WritableByteChannel mChannel;
+    @ExportFormat
+    private final int mFormat;
+    @NonNull
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_BYTES);
+    /** 写数字用的临时空间 */
+    private final byte[] mDigits = new byte[20];
+    /** 当前行是否还没有写入任何字段 */
+    private boolean mFirstField;
+
+    public ScanExporter(@NonNull final WritableByteChannel channel, @ExportFormat final int format) {
+        mChannel = channel;
+        mFormat = format;
+    }
+
+    /**
+     * 导出 Wi-Fi 列表快照
+     *
+     * @param timestamp 快照的时间（{@link System#currentTimeMillis()}），写入每一行
+     * @return 导出的行数
+     */
+    @WorkerThread
+    public long exportSnapshot(@NonNull final WifiSnapshot snapshot, final long timestamp) throws IOException {
+        final int size = snapshot.size();
+        if (mFormat == ScanExport.FORMAT_BINARY) {
+            final SsidDictionary dictionary = new SsidDictionary();
+            final int[] ssidIds = new int[size];
+            for (int row = 0; row < size; row++) {
+                ssidIds[row] = dictionary.getOrAdd(snapshot.getSSID(row));
+            }
+            writeBinaryHeader(dictionary, dictionary.size());
+            final ScanHistoryCodec.Encoder encoder = new ScanHistoryCodec.Encoder(mChannel, 0);
+            for (int row = 0; row < size; row++) {
+                encoder.add(timestamp, snapshot.getBSSIDValue(row), ssidIds[row],
+                        snapshot.getLevel(row), snapshot.getFrequency(row), flagsOf(snapshot, row));
+            }
+            encoder.finish();
+            return size;
+        }
+        writeHeader(SNAPSHOT_COLUMNS);
+        for (int row = 0; row < size; row++) {
+            beginRow();
+            writeField("timestamp", timestamp);
+            writeField("ssid", snapshot.getSSID(row));
+            writeBssidField("bssid", snapshot.getBSSIDValue(row));
+            writeField("capabilities", snapshot.getCapabilities(row));
+            writeField("level", snapshot.getLevel(row));
+            writeField("frequency", snapshot.getFrequency(row));
+            writeBandField("band", snapshot.is24GHz(row), snapshot.is5GHz(row));
+            beginAsciiField("channel_widths");
+            final int channelWidths = snapshot.countChannelWidths(row);
+            for (int i = 0; i < channelWidths; i++) {
+                writeAscii("[");
+                writeAscii(WifiSupport.getChannelBandWidthDescription(snapshot.getChannelBandWidth(row, i)));
+                writeAscii("]");
+            }
+            endAsciiField();
+            writeField("saved", snapshot.isSaved(row));
+            writeField("current", snapshot.isCurrent(row));
+            writeField("config_disabled", snapshot.isConfigDisabled(row));
+            writeField("need_password", snapshot.isNeedPassword(row));
+            endRow();
+        }
+        flush();
+        return size;
+    }
+
+    /**
+     * 导出满足条件的扫描历史
+     *
+     * @return 导出的记录条数
+     */
+    @WorkerThread
+    public long exportHistory(@NonNull final ScanHistoryStore store, @NonNull final ScanHistoryQuery query) throws IOException {
+        final ScanHistoryCursor cursor = store.query(query);
+        final SsidDictionary dictionary = store.getDictionary();
+        long count = 0;
+        if (mFormat == ScanExport.FORMAT_BINARY) {
+            // 游标能读到的记录引用的 SSID 都已经在字典中了
+            writeBinaryHeader(dictionary, dictionary.size());
+            final ScanHistoryCodec.Encoder encoder = new ScanHistoryCodec.Encoder(mChannel, 0);
+            while (cursor.moveToNext()) {
+                final ScanRecord record = cursor.getRecord();
+                encoder.add(record.getTimestamp(), record.getBSSID(), record.getSsidId(),
+                        record.getLevel(), record.getFrequency(), record.getFlags());
+                count++;
+            }
+            encoder.finish();
+            return count;
+        }
+        writeHeader(HISTORY_COLUMNS);
+        while (cursor.moveToNext()) {
+            final ScanRecord record = cursor.getRecord();
+            beginRow();
+            writeField("timestamp", record.getTimestamp());
+            writeField("ssid", cursor.getSSID());
+            writeBssidField("bssid", record.getBSSID());
+            writeField("level", record.getLevel());
+            writeField("frequency", record.getFrequency());
+            writeBandField("band", record.hasFlag(ScanRecord.FLAG_24GHZ), record.hasFlag(ScanRecord.FLAG_5GHZ));
+            writeField("saved", record.hasFlag(ScanRecord.FLAG_SAVED));
+            writeField("current", record.hasFlag(ScanRecord.FLAG_CURRENT));
+            writeField("config_disabled", record.hasFlag(ScanRecord.FLAG_CONFIG_DISABLED));
+            writeField("need_password", record.hasFlag(ScanRecord.FLAG_NEED_PASSWORD));
+            endRow();
+            count++;
+        }
+        flush();
+        return count;
+    }
+
+    private static int flagsOf(@NonNull final WifiSnapshot snapshot, final int row) {
+        int flags = 0;
+        if (snapshot.is24GHz(row)) {
+            flags |= ScanRecord.FLAG_24GHZ;
+        }
+        if (snapshot.is5GHz(row)) {
+            flags |= ScanRecord.FLAG_5GHZ;
+        }
+        if (snapshot.isSaved(row)) {
+            flags |= ScanRecord.FLAG_SAVED;
+        }
+        if (snapshot.isCurrent(row)) {
+            flags |= ScanRecord.FLAG_CURRENT;
+        }
+        if (snapshot.isConfigDisabled(row)) {
+            flags |= ScanRecord.FLAG_CONFIG_DISABLED;
+        }
+        if (snapshot.isNeedPassword(row)) {
+            flags |= ScanRecord.FLAG_NEED_PASSWORD;
+        }
+        return flags;
+    }
+
+    private void writeBinaryHeader(@NonNull final SsidDictionary dictionary, final int size) throws IOException {
+        ensure(12);
+        mBuffer.putInt(MAGIC).putInt(VERSION).putInt(size);
+        for (int id = 0; id < size; id++) {
+            final String SSID = dictionary.getSSID(id);
+            final String value = SSID == null ? "" : SSID;
+            final int length = utf8Length(value);
+            ensure(2);
+            mBuffer.putShort((short) length);
+            writeUtf8(value, ESCAPE_NONE);
+        }
+        // 之后的数据由编码器直接写入 channel
+        flush();
+    }
+
+    // ---------------- 文本格式 ----------------
+
+    private static final int ESCAPE_NONE = 0;
+    private static final int ESCAPE_CSV = 1;
+    private static final int ESCAPE_JSON = 2;
+
+    private void writeHeader(@NonNull final String[] columns) throws IOException {
+        if (mFormat != ScanExport.FORMAT_CSV) {
+            return;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writeAscii(",");
+            }
+            writeAscii(columns[i]);
+        }
+        writeAscii("\n");
+    }
+
+    private void beginRow() throws IOException {
+        mFirstField = true;
+        if (mFormat == ScanExport.FORMAT_JSON_LINES) {
+            writeAscii("{");
+        }
+    }
+
+    private void endRow() throws IOException {
+        writeAscii(mFormat == ScanExport.FORMAT_JSON_LINES ? "}\n" : "\n");
+    }
+
+    private void beginField(@NonNull final String name) throws IOException {
+        if (!mFirstField) {
+            writeAscii(",");
+        }
+        mFirstField = false;
+        if (mFormat == ScanExport.FORMAT_JSON_LINES) {
+            writeAscii("\"");
+            writeAscii(name);
+            writeAscii("\":");
+        }
+    }
+
+    private void writeField(@NonNull final String name, final long value) throws IOException {
+        beginField(name);
+        writeLong(value);
+    }
+
+    private void writeField(@NonNull final String name, final boolean value) throws IOException {
+        beginField(name);
+        writeAscii(value ? "true" : "false");
+    }
+
+    private void writeField(@NonNull final String name, @Nullable final String value) throws IOException {
+        beginField(name);
+        if (mFormat == ScanExport.FORMAT_JSON_LINES) {
+            if (value == null) {
+                writeAscii("null");
+                return;
+            }
+            writeAscii("\"");
+            writeUtf8(value, ESCAPE_JSON);
+            writeAscii("\"");
+            return;
+        }
+        if (value == null) {
+            return;
+        }
+        if (needsCsvQuote(value)) {
+            writeAscii("\"");
+            writeUtf8(value, ESCAPE_CSV);
+            writeAscii("\"");
+        } else {
+            writeUtf8(value, ESCAPE_NONE);
+        }
+    }
+
+    /**
+     * 开始一个只由 ASCII 常量拼成、不需要转义的字符串字段
+     */
+    private void beginAsciiField(@NonNull final String name) throws IOException {
+        beginField(name);
+        if (mFormat == ScanExport.FORMAT_JSON_LINES) {
+            writeAscii("\"");
+        }
+    }
+
+    private void endAsciiField() throws IOException {
+        if (mFormat == ScanExport.FORMAT_JSON_LINES) {
+            writeAscii("\"");
+        }
+    }
+
+    private void writeBandField(@NonNull final String name, final boolean is24GHz, final boolean is5GHz) throws IOException {
+        beginAsciiField(name);
+        if (is24GHz) {
+            writeAscii("2.4GHz");
+        }
+        if (is5GHz) {
+            writeAscii(is24GHz ? "|5GHz" : "5GHz");
+        }
+        endAsciiField();
+    }
+
+    /**
+     * 以 xx:xx:xx:xx:xx:xx 的形式写入 BSSID，无效的 BSSID 写为空
+     *
+     * @see WifiSupport#longToBssid(long)
+     */
+    private void writeBssidField(@NonNull final String name, final long BSSID) throws IOException {
+        if (BSSID == WifiSupport.INVALID_BSSID) {
+            writeField(name, (String) null);
+            return;
+        }
+        beginAsciiField(name);
+        ensure(17);
+        for (int shift = 40; shift >= 0; shift -= 8) {
+            final int b = (int) (BSSID >>> shift) & 0xFF;
+            mBuffer.put(HEX[b >>> 4]).put(HEX[b & 0xF]);
+            if (shift > 0) {
+                mBuffer.put((byte) ':');
+            }
+        }
+        endAsciiField();
+    }
+
+    private static boolean needsCsvQuote(@NonNull final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------- 缓冲区 ----------------
+
+    private void writeAscii(@NonNull final String value) throws IOException {
+        final int length = value.length();
+        if (mBuffer.remaining() < length) {
+            flush();
+        }
+        for (int i = 0; i < length; i++) {
+            mBuffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(mDigits.length + 1);
+        if (value == Long.MIN_VALUE) {
+            writeAscii(String.valueOf(Long.MIN_VALUE));
+            return;
+        }
+        if (value < 0) {
+            mBuffer.put((byte) '-');
+            value = -value;
+        }
+        int position = mDigits.length;
+        do {
+            mDigits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        mBuffer.put(mDigits, position, mDigits.length - position);
+    }
+
+    /**
+     * 以 UTF-8 写入字符串，并按格式转义
+     */
+    private void writeUtf8(@NonNull final String value, final int escape) throws IOException {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (mBuffer.remaining() < MAX_CHAR_BYTES) {
+                flush();
+            }
+            final char c = value.charAt(i);
+            if (escape == ESCAPE_CSV && c == '"') {
+                mBuffer.put((byte) '"').put((byte) '"');
+            } else if (escape == ESCAPE_JSON && (c == '"' || c == '\\')) {
+                mBuffer.put((byte) '\\').put((byte) c);
+            } else if (escape == ESCAPE_JSON && c < 0x20) {
+                mBuffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(HEX[c >>> 4]).put(HEX[c & 0xF]);
+            } else if (c < 0x80) {
+                mBuffer.put((byte) c);
+            } else if (c < 0x800) {
+                mBuffer.put((byte) (0xC0 | c >>> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                mBuffer.put((byte) (0xF0 | codePoint >>> 18))
+                        .put((byte) (0x80 | codePoint >>> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >>> 6 & 0x3F))
+                        .put((byte) (0x80 | codePoint & 0x3F));
+            } else if ((Character.isHighSurrogate(c) || Character.isLowSurrogate(c))) {
+                // 不成对的代理字符，与 String#getBytes 一样写为 '?'
+                mBuffer.put((byte) '?');
+            } else {
+                mBuffer.put((byte) (0xE0 | c >>> 12))
+                        .put((byte) (0x80 | c >>> 6 & 0x3F))
+                        .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * 字符串以 UTF-8 编码（不转义）后的字节数，与 {@link #writeUtf8(String, int)} 一致
+     */
+    private static int utf8Length(@NonNull final String value) {
+        final int length = value.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if ((Character.isHighSurrogate(c) || Character.isLowSurrogate(c))) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (mBuffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+}
@@ -0,0 +1,377 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 扫描历史的压缩编码。<br/>
+ * 同一个 AP 每隔几秒就会被扫描到一次，信号强度每次只变化几 dB，因此原始记录的重复度很高。
+ * 压缩后的文件按块（每块最多 {@link #BLOCK_RECORDS} 条记录）分列存放：
+ * <ul>
+ *     <li>BSSID 在文件内编号，编号表存放在文件尾部</li>
+ *     <li>SSID 使用 {@link SsidDictionary} 中的编号，只在与该 BSSID 上一次的值不同时才写入</li>
+ *     <li>时间戳保存与上一条记录的差值</li>
+ *     <li>信号强度保存与该 BSSID 上一次的值的差值（zigzag + varint）</li>
+ *     <li>频率和标志位只在与该 BSSID 上一次的值不同时才写入</li>
+ * </ul>
+ * 文件格式：
+ * <pre>
+ *  int     魔数 {@link #MAGIC}
+ *  int     版本号 {@link #VERSION}
+ *  long    原段文件的序号
+ *  ...     若干个块
+ *  int     BSSID 个数，long[] BSSID
+ *  int     块个数，每块：long 首条时间戳、long 末条时间戳、int 偏移、int 记录条数
+ *  long    以上目录的偏移
+ *  int     记录总条数
+ *  int     魔数 {@link #MAGIC}
+ * </pre>
+ * 每块的格式：
+ * <pre>
+ *  int     记录条数
+ *  long    首条记录的时间戳
+ *  int[4]  各列的字节数
+ *  列      时间戳差值
+ *  列      BSSID 编号 &lt;&lt; 3 | 变化标志（SSID、频率、标志位）
+ *  列      信号强度差值
+ *  列      变化了的 SSID 编号差值、频率差值、标志位
+ * </pre>
+ * 块与块之间互不依赖，可以从任意一块开始解码。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class ScanHistoryCodec {
+
+    static final String SUFFIX = ".hst";
+
+    static final int MAGIC = 0x57534843;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int TRAILER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 4 + 8 + 4 * 4;
+    static final int BLOCK_RECORDS = 4096;
+
+    static final int CHANGED_SSID = 1;
+    static final int CHANGED_FREQUENCY = 1 << 1;
+    static final int CHANGED_FLAGS = 1 << 2;
+    static final int CHANGED_BITS = 3;
+
+    private ScanHistoryCodec() {
+        throw new UnsupportedOperationException("Can not be instantiated.");
+    }
+
+    static int zigzag(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 读取一个 varint，buffer 的位置随之前进
+     */
+    static int readVarInt(@NonNull final ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 35);
+        return result;
+    }
+
+    static long readVarLong(@NonNull final ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 70);
+        return result;
+    }
+
+    /**
+     * 将 source 中的记录压缩写入 dir 下同序号的文件。先写临时文件，完成后再改名，不会留下写了一半的压缩文件。
+     */
+    @NonNull
+    @WorkerThread
+    static File encode(@NonNull final HistoryPart source, @NonNull final File dir) throws IOException {
+        final File target = new File(dir, fileNameOf(source.sequence()));
+        final File temp = new File(dir, target.getName() + ".tmp");
+        final RandomAccessFile file = new RandomAccessFile(temp, "rw");
+        try {
+            file.setLength(0);
+            final FileChannel channel = file.getChannel();
+            final Encoder encoder = new Encoder(channel, source.sequence());
+            final RecordCursor cursor = source.cursor();
+            final ScanRecord record = new ScanRecord();
+            while (cursor.next(record)) {
+                encoder.add(record.getTimestamp(), record.getBSSID(), record.getSsidId(),
+                        record.getLevel(), record.getFrequency(), record.getFlags());
+            }
+            encoder.finish();
+            channel.force(true);
+        } finally {
+            file.close();
+        }
+        if (!temp.renameTo(target)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("cannot rename " + temp + " to " + target);
+        }
+        return target;
+    }
+
+    @NonNull
+    static String fileNameOf(final long sequence) {
+        return Segment.fileNameOf(sequence).replace(Segment.SUFFIX, SUFFIX);
+    }
+
+    static long sequenceOf(@NonNull final String fileName) {
+        if (!fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        return Segment.sequenceOf(fileName.substring(0, fileName.length() - SUFFIX.length()) + Segment.SUFFIX);
+    }
+
+    /**
+     * 流式的编码器：每攒够一块就顺序写入 channel，内存中最多只有一块的数据。
+     * 不需要 channel 支持随机写入，也不负责关闭 channel。
+     */
+    static final class Encoder {
+        @NonNull
+        private final WritableByteChannel mChannel;
+        private long mOffset = 0;
+
+        private final Map<Long, Integer> mBSSIDIds = new HashMap<>();
+        private long[] mBSSIDs = new long[64];
+
+        /** 块目录 */
+        private long[] mBlockFirstTimestamps = new long[16];
+        private long[] mBlockLastTimestamps = new long[16];
+        private int[] mBlockOffsets = new int[16];
+        private int[] mBlockCounts = new int[16];
+        private int mBlockCount = 0;
+        private int mTotalCount = 0;
+
+        /** 当前块 */
+        private final ByteColumn mTimestampColumn = new ByteColumn();
+        private final ByteColumn mKeyColumn = new ByteColumn();
+        private final ByteColumn mLevelColumn = new ByteColumn();
+        private final ByteColumn mExtraColumn = new ByteColumn();
+        private int mCount = 0;
+        private long mFirstTimestamp;
+        private long mLastTimestamp;
+
+        /** 当前块内每个 BSSID 上一次的值，以 BSSID 编号为下标 */
+        private int[] mLastLevels = new int[64];
+        private int[] mLastSsidIds = new int[64];
+        private int[] mLastFrequencies = new int[64];
+        private int[] mLastFlags = new int[64];
+
+        Encoder(@NonNull final WritableByteChannel channel, final long sequence) throws IOException {
+            mChannel = channel;
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(sequence).flip();
+            write(header);
+        }
+
+        void add(final long timestamp, final long BSSID, final int ssidId,
+                 final int level, final int frequency, final int flags) throws IOException {
+            if (mCount == BLOCK_RECORDS) {
+                flushBlock();
+            }
+            final int id = idOf(BSSID);
+            if (mCount == 0) {
+                mFirstTimestamp = timestamp;
+                mLastTimestamp = timestamp;
+            }
+            mTimestampColumn.writeVarLong(zigzag(timestamp - mLastTimestamp));
+            mLastTimestamp = timestamp;
+            int changed = 0;
+            if (ssidId != mLastSsidIds[id]) {
+                changed |= CHANGED_SSID;
+            }
+            if (frequency != mLastFrequencies[id]) {
+                changed |= CHANGED_FREQUENCY;
+            }
+            if (flags != mLastFlags[id]) {
+                changed |= CHANGED_FLAGS;
+            }
+            mKeyColumn.writeVarInt(id << CHANGED_BITS | changed);
+            mLevelColumn.writeVarInt(zigzag(level - mLastLevels[id]));
+            if ((changed & CHANGED_SSID) != 0) {
+                mExtraColumn.writeVarInt(zigzag(ssidId - mLastSsidIds[id]));
+            }
+            if ((changed & CHANGED_FREQUENCY) != 0) {
+                mExtraColumn.writeVarInt(zigzag(frequency - mLastFrequencies[id]));
+            }
+            if ((changed & CHANGED_FLAGS) != 0) {
+                mExtraColumn.writeVarInt(flags);
+            }
+            mLastLevels[id] = level;
+            mLastSsidIds[id] = ssidId;
+            mLastFrequencies[id] = frequency;
+            mLastFlags[id] = flags;
+            mCount++;
+            mTotalCount++;
+        }
+
+        private int idOf(final long BSSID) {
+            final Integer id = mBSSIDIds.get(BSSID);
+            if (id != null) {
+                return id;
+            }
+            final int newId = mBSSIDIds.size();
+            if (newId == mBSSIDs.length) {
+                final int capacity = newId * 2;
+                mBSSIDs = Arrays.copyOf(mBSSIDs, capacity);
+                mLastLevels = Arrays.copyOf(mLastLevels, capacity);
+                mLastSsidIds = Arrays.copyOf(mLastSsidIds, capacity);
+                mLastFrequencies = Arrays.copyOf(mLastFrequencies, capacity);
+                mLastFlags = Arrays.copyOf(mLastFlags, capacity);
+            }
+            mBSSIDs[newId] = BSSID;
+            mBSSIDIds.put(BSSID, newId);
+            return newId;
+        }
+
+        private void flushBlock() throws IOException {
+            if (mCount == 0) {
+                return;
+            }
+            if (mBlockCount == mBlockOffsets.length) {
+                final int capacity = mBlockCount * 2;
+                mBlockFirstTimestamps = Arrays.copyOf(mBlockFirstTimestamps, capacity);
+                mBlockLastTimestamps = Arrays.copyOf(mBlockLastTimestamps, capacity);
+                mBlockOffsets = Arrays.copyOf(mBlockOffsets, capacity);
+                mBlockCounts = Arrays.copyOf(mBlockCounts, capacity);
+            }
+            mBlockFirstTimestamps[mBlockCount] = mFirstTimestamp;
+            mBlockLastTimestamps[mBlockCount] = mLastTimestamp;
+            mBlockOffsets[mBlockCount] = (int) mOffset;
+            mBlockCounts[mBlockCount] = mCount;
+            mBlockCount++;
+
+            final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            header.putInt(mCount).putLong(mFirstTimestamp)
+                    .putInt(mTimestampColumn.size()).putInt(mKeyColumn.size())
+                    .putInt(mLevelColumn.size()).putInt(mExtraColumn.size())
+                    .flip();
+            write(header);
+            mTimestampColumn.writeTo(this);
+            mKeyColumn.writeTo(this);
+            mLevelColumn.writeTo(this);
+            mExtraColumn.writeTo(this);
+
+            // 每块独立解码，状态清零
+            mCount = 0;
+            final int size = mBSSIDIds.size();
+            Arrays.fill(mLastLevels, 0, size, 0);
+            Arrays.fill(mLastSsidIds, 0, size, 0);
+            Arrays.fill(mLastFrequencies, 0, size, 0);
+            Arrays.fill(mLastFlags, 0, size, 0);
+        }
+
+        /**
+         * 写入 BSSID 编号表和块目录
+         */
+        void finish() throws IOException {
+            flushBlock();
+            final int bssidCount = mBSSIDIds.size();
+            final ByteBuffer directory = ByteBuffer.allocate(4 + bssidCount * 8 + 4 + mBlockCount * 24 + TRAILER_BYTES);
+            directory.putInt(bssidCount);
+            for (int i = 0; i < bssidCount; i++) {
+                directory.putLong(mBSSIDs[i]);
+            }
+            directory.putInt(mBlockCount);
+            for (int i = 0; i < mBlockCount; i++) {
+                directory.putLong(mBlockFirstTimestamps[i]).putLong(mBlockLastTimestamps[i])
+                        .putInt(mBlockOffsets[i]).putInt(mBlockCounts[i]);
+            }
+            directory.putLong(mOffset).putInt(mTotalCount).putInt(MAGIC).flip();
+            write(directory);
+        }
+
+        /**
+         * 已写入的字节数
+         */
+        long size() {
+            return mOffset;
+        }
+
+        private void write(@NonNull final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                mOffset += mChannel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * 可增长的字节数组，用于攒一列的数据
+     */
+    private static final class ByteColumn {
+        private byte[] mBytes = new byte[BLOCK_RECORDS];
+        private int mSize = 0;
+
+        int size() {
+            return mSize;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        private void ensureCapacity(final int extra) {
+            if (mSize + extra > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mSize + extra));
+            }
+        }
+
+        /**
+         * 写入 encoder 并清空
+         */
+        void writeTo(@NonNull final Encoder encoder) throws IOException {
+            encoder.write(ByteBuffer.wrap(mBytes, 0, mSize));
+            mSize = 0;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 扫描历史的查询结果，逐条读取：
+ * <pre>
+ *  final ScanHistoryCursor cursor = store.query(query);
+ *  while (cursor.moveToNext()) {
+ *      final ScanRecord record = cursor.getRecord();
+ *  }
+ * </pre>
+ * 每个文件先按时间范围和 BSSID 定位到相关的记录或块，再逐条判断其余条件。<br/>
+ * {@link #getRecord()} 返回的对象会被复用，需要保留时请调用 {@link ScanRecord#copy()}。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanHistoryCursor {
+
+    @NonNull
+    private final List<HistoryPart> mParts;
+    @NonNull
+    private final ScanHistoryQuery mQuery;
+    @NonNull
+    private final SsidDictionary mDictionary;
+    /** SSID 条件对应的编号，没有 SSID 条件时为 {@link SsidDictionary#NO_ID} */
+    private final int mSsidId;
+    private final boolean mEmpty;
+
+    private int mNextPart = 0;
+    @Nullable
+    private RecordCursor mCursor;
+    private final ScanRecord mRecord = new ScanRecord();
+
+    ScanHistoryCursor(@NonNull final List<HistoryPart> parts, @NonNull final ScanHistoryQuery query,
+                      @NonNull final SsidDictionary dictionary) {
+        mParts = parts;
+        mQuery = query;
+        mDictionary = dictionary;
+        mSsidId = query.mSSID == null ? SsidDictionary.NO_ID : dictionary.getId(query.mSSID);
+        // 字典中没有的 SSID 一定没有记录
+        mEmpty = query.mSSID != null && mSsidId == SsidDictionary.NO_ID;
+    }
+
+    /**
+     * 移动到下一条满足条件的记录
+     *
+     * @return false 没有更多记录了
+     */
+    @WorkerThread
+    public boolean moveToNext() {
+        if (mEmpty) {
+            return false;
+        }
+        while (true) {
+            if (mCursor == null && (mCursor = openNextPart()) == null) {
+                return false;
+            }
+            while (mCursor.next(mRecord)) {
+                final long timestamp = mRecord.getTimestamp();
+                if (timestamp >= mQuery.mTo) {
+                    // 同一文件中的记录按时间递增，之后的记录都不满足
+                    break;
+                }
+                if (timestamp < mQuery.mFrom) {
+                    continue;
+                }
+                if (mQuery.mSSID != null && mRecord.getSsidId() != mSsidId) {
+                    continue;
+                }
+                if (mQuery.matches(mRecord)) {
+                    return true;
+                }
+            }
+            mCursor = null;
+        }
+    }
+
+    /**
+     * 当前记录
+     */
+    @NonNull
+    public ScanRecord getRecord() {
+        return mRecord;
+    }
+
+    /**
+     * 当前记录的 SSID
+     */
+    @Nullable
+    public String getSSID() {
+        return mDictionary.getSSID(mRecord.getSsidId());
+    }
+
+    /**
+     * 打开下一个可能有满足条件的记录的文件，返回定位好的游标
+     */
+    @Nullable
+    private RecordCursor openNextPart() {
+        while (mNextPart < mParts.size()) {
+            final HistoryPart part = mParts.get(mNextPart++);
+            if (part.count() == 0 || part.lastTimestamp() < mQuery.mFrom || part.firstTimestamp() >= mQuery.mTo) {
+                continue;
+            }
+            if (part instanceof EncodedSegment) {
+                final EncodedSegment encoded = (EncodedSegment) part;
+                BitSet blocks = null;
+                if (mQuery.hasBSSID()) {
+                    final int id = encoded.idOf(mQuery.mBSSID);
+                    if (id < 0) {
+                        continue;
+                    }
+                    blocks = encoded.blocksOf(id);
+                }
+                return encoded.cursor(encoded.lowerBlock(mQuery.mFrom), encoded.upperBlock(mQuery.mTo), blocks);
+            }
+            if (part instanceof Segment) {
+                final Segment segment = (Segment) part;
+                return segment.cursor(segment.lowerBound(mQuery.mFrom));
+            }
+            return part.cursor();
+        }
+        return null;
+    }
+}
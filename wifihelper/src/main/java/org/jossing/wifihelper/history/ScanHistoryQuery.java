@@ -0,0 +1,102 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.jossing.wifihelper.Wifi;
+import org.jossing.wifihelper.WifiSupport;
+
+/**
+ * 扫描历史的查询条件。各条件之间是“且”的关系，未设置的条件不做限制。<br/>
+ * 时间范围和 BSSID 会用于跳过不相关的文件和块，其余条件在解码时逐条判断。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanHistoryQuery {
+
+    long mFrom = Long.MIN_VALUE;
+    long mTo = Long.MAX_VALUE;
+    long mBSSID = WifiSupport.INVALID_BSSID;
+    @Nullable
+    String mSSID;
+    int mBandFlags = 0;
+    int mMinLevel = Integer.MIN_VALUE;
+    int mMaxLevel = Integer.MAX_VALUE;
+
+    /**
+     * 只查询 [from, to) 时间范围内的记录（{@link System#currentTimeMillis()}）
+     */
+    public ScanHistoryQuery timeRange(final long from, final long to) {
+        mFrom = from;
+        mTo = to;
+        return this;
+    }
+
+    /**
+     * 只查询指定 BSSID 的记录
+     */
+    public ScanHistoryQuery bssid(@NonNull final String BSSID) {
+        mBSSID = WifiSupport.bssidToLong(BSSID);
+        if (mBSSID == WifiSupport.INVALID_BSSID) {
+            throw new IllegalArgumentException("invalid BSSID: " + BSSID);
+        }
+        return this;
+    }
+
+    /**
+     * 只查询指定 SSID 的记录
+     */
+    public ScanHistoryQuery ssid(@NonNull final String SSID) {
+        mSSID = SSID;
+        return this;
+    }
+
+    /**
+     * 只查询与 wifi 相同 BSSID 的记录
+     */
+    public ScanHistoryQuery wifi(@NonNull final Wifi wifi) {
+        final String BSSID = wifi.getBSSID();
+        if (BSSID == null) {
+            return ssid(wifi.SSID);
+        }
+        return bssid(BSSID);
+    }
+
+    /**
+     * 只查询指定频段的记录
+     *
+     * @param bandFlags {@link ScanRecord#FLAG_24GHZ}、{@link ScanRecord#FLAG_5GHZ} 或两者的组合
+     */
+    public ScanHistoryQuery band(final int bandFlags) {
+        mBandFlags = bandFlags;
+        return this;
+    }
+
+    /**
+     * 只查询信号强度在 [minLevel, maxLevel] 范围内的记录
+     */
+    public ScanHistoryQuery levelRange(final int minLevel, final int maxLevel) {
+        mMinLevel = minLevel;
+        mMaxLevel = maxLevel;
+        return this;
+    }
+
+    boolean hasBSSID() {
+        return mBSSID != WifiSupport.INVALID_BSSID;
+    }
+
+    /**
+     * 判断解码出的记录是否满足 BSSID、频段和信号强度条件。时间范围和 SSID 由调用方判断。
+     */
+    boolean matches(@NonNull final ScanRecord record) {
+        if (hasBSSID() && record.getBSSID() != mBSSID) {
+            return false;
+        }
+        if (mBandFlags != 0 && (record.getFlags() & mBandFlags) == 0) {
+            return false;
+        }
+        final int level = record.getLevel();
+        return level >= mMinLevel && level <= mMaxLevel;
+    }
+}
@@ -0,0 +1,499 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import org.jossing.wifihelper.Wifi;
+import org.jossing.wifihelper.WifiSupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只追加的扫描历史存储。<br/>
+ * 每次处理好的扫描结果会被转换为定长记录（{@link ScanRecord}），通过内存映射写入段文件（{@link Segment}）。
+ * <ul>
+ *     <li>段文件写满后自动切换到新的段文件，写满的段文件会被压缩（{@link ScanHistoryCodec}）</li>
+ *     <li>所有段文件的总大小超过上限时，删除最旧的段文件</li>
+ *     <li>打开时会跳过最后一个段文件尾部写了一半的记录</li>
+ *     <li>{@link #append(long, List)} 只把数据放入队列，写入在专门的线程中完成，不会阻塞调用方</li>
+ * </ul>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanHistoryStore {
+    private static final String TAG = "ScanHistoryStore";
+
+    static final String DICTIONARY_FILE_NAME = "ssid.dict";
+
+    /** 放在队列末尾，写线程取到后写完剩下的数据就退出 */
+    private static final Batch CLOSE = new Batch(0, Collections.<Wifi>emptyList());
+
+    @NonNull
+    private final File mDir;
+    @NonNull
+    private final Options mOptions;
+    @NonNull
+    private final SsidDictionary mDictionary;
+
+    /** 所有段文件和压缩文件，按序号从旧到新排列。写线程修改，查询时复制一份使用 */
+    private final List<HistoryPart> mParts = new ArrayList<>();
+    /** 当前正在写入的段文件，只在写线程中访问 */
+    private Segment mActiveSegment;
+
+    private final BlockingQueue<Batch> mQueue;
+    private final Thread mWriterThread;
+    private final AtomicLong mDroppedBatches = new AtomicLong();
+    private volatile boolean mClosed = false;
+
+    private ScanHistoryStore(@NonNull final File dir, @NonNull final Options options) throws IOException {
+        mDir = dir;
+        mOptions = options;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create directory: " + dir);
+        }
+        mDictionary = new SsidDictionary(new File(dir, DICTIONARY_FILE_NAME));
+        loadSegments();
+        mQueue = new ArrayBlockingQueue<>(options.mQueueCapacity);
+        mWriterThread = new Thread(this::runWriter, "WifiHelper-ScanHistory");
+        mWriterThread.setDaemon(true);
+        mWriterThread.start();
+    }
+
+    /**
+     * 打开（或创建）指定目录下的扫描历史。会读取已有的段文件，请不要在主线程中调用。
+     */
+    @NonNull
+    @WorkerThread
+    public static ScanHistoryStore open(@NonNull final File dir, @NonNull final Options options) throws IOException {
+        return new ScanHistoryStore(dir, options);
+    }
+
+    private void loadSegments() {
+        final File[] files = mDir.listFiles();
+        final List<Long> sequences = new ArrayList<>();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                if (name.endsWith(".tmp")) {
+                    // 上次压缩到一半留下的临时文件
+                    deleteFile(file);
+                    continue;
+                }
+                long sequence = Segment.sequenceOf(name);
+                if (sequence < 0) {
+                    sequence = ScanHistoryCodec.sequenceOf(name);
+                }
+                if (sequence >= 0 && !sequences.contains(sequence)) {
+                    sequences.add(sequence);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        for (int i = 0; i < sequences.size(); i++) {
+            final long sequence = sequences.get(i);
+            final File segmentFile = new File(mDir, Segment.fileNameOf(sequence));
+            final File encodedFile = new File(mDir, ScanHistoryCodec.fileNameOf(sequence));
+            if (encodedFile.exists()) {
+                try {
+                    mParts.add(EncodedSegment.open(encodedFile));
+                    // 压缩完成后还没来得及删除的段文件
+                    deleteFile(segmentFile);
+                    continue;
+                } catch (IOException e) {
+                    Log.w(TAG, "loadSegments -> 忽略无效的压缩文件：" + encodedFile, e);
+                    deleteFile(encodedFile);
+                }
+            }
+            if (!segmentFile.exists()) {
+                continue;
+            }
+            final boolean last = i == sequences.size() - 1;
+            try {
+                mParts.add(Segment.open(segmentFile, sequence, last));
+            } catch (IOException e) {
+                Log.w(TAG, "loadSegments -> 忽略无效的段文件：" + segmentFile, e);
+            }
+        }
+        if (!mParts.isEmpty()) {
+            final HistoryPart last = mParts.get(mParts.size() - 1);
+            if (last instanceof Segment && !((Segment) last).isFull()) {
+                mActiveSegment = (Segment) last;
+            }
+        }
+    }
+
+    /**
+     * 记录一次处理好的扫描结果。<br/>
+     * 此方法只会把数据复制到队列中，不做任何 IO；队列已满时丢弃这一批并返回 false。
+     *
+     * @param timestamp 扫描的时间（{@link System#currentTimeMillis()}）
+     */
+    public boolean append(final long timestamp, @NonNull final List<Wifi> wifiList) {
+        if (mClosed || wifiList.isEmpty()) {
+            return false;
+        }
+        final Batch batch = new Batch(timestamp, wifiList);
+        if (!mQueue.offer(batch)) {
+            mDroppedBatches.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 因队列已满而被丢弃的批次数量
+     */
+    public long getDroppedBatchCount() {
+        return mDroppedBatches.get();
+    }
+
+    /**
+     * 所有段文件中的记录总数
+     */
+    public long getRecordCount() {
+        long count = 0;
+        for (final HistoryPart part : getParts()) {
+            count += part.count();
+        }
+        return count;
+    }
+
+    /**
+     * 所有历史文件占用的磁盘空间（字节）
+     */
+    public long getTotalBytes() {
+        long bytes = 0;
+        for (final HistoryPart part : getParts()) {
+            bytes += part.file().length();
+        }
+        return bytes;
+    }
+
+    @NonNull
+    public SsidDictionary getDictionary() {
+        return mDictionary;
+    }
+
+    @NonNull
+    File getDir() {
+        return mDir;
+    }
+
+    /**
+     * 查询扫描历史。只会读到调用时已经写入的记录。
+     */
+    @NonNull
+    public ScanHistoryCursor query(@NonNull final ScanHistoryQuery query) {
+        return new ScanHistoryCursor(getParts(), query, mDictionary);
+    }
+
+    /**
+     * 统计满足条件的记录的信号强度，例如某个 AP 在某个时间段内的平均信号强度
+     */
+    @NonNull
+    @WorkerThread
+    public LevelStats getLevelStats(@NonNull final ScanHistoryQuery query) {
+        final LevelStats stats = new LevelStats();
+        final ScanHistoryCursor cursor = query(query);
+        while (cursor.moveToNext()) {
+            stats.add(cursor.getRecord().getLevel());
+        }
+        return stats;
+    }
+
+    /**
+     * 满足条件的记录中出现过的所有 SSID，例如最近一小时内扫描到的 SSID。<br/>
+     * 以 SSID 编号去重，占用的内存只与字典大小有关。
+     */
+    @NonNull
+    @WorkerThread
+    public List<String> getDistinctSSIDs(@NonNull final ScanHistoryQuery query) {
+        final BitSet seen = new BitSet(mDictionary.size());
+        final ScanHistoryCursor cursor = query(query);
+        while (cursor.moveToNext()) {
+            seen.set(cursor.getRecord().getSsidId());
+        }
+        final List<String> SSIDs = new ArrayList<>(seen.cardinality());
+        for (int id = seen.nextSetBit(0); id >= 0; id = seen.nextSetBit(id + 1)) {
+            final String SSID = mDictionary.getSSID(id);
+            if (SSID != null) {
+                SSIDs.add(SSID);
+            }
+        }
+        return SSIDs;
+    }
+
+    /**
+     * 当前所有历史文件的副本，按从旧到新排列
+     */
+    @NonNull
+    List<HistoryPart> getParts() {
+        synchronized (mParts) {
+            return new ArrayList<>(mParts);
+        }
+    }
+
+    /**
+     * 关闭存储。队列中尚未写入的数据会在写线程退出前写完。<br/>
+     * 不中断写线程：中断会让写线程之后的 {@link java.nio.channels.FileChannel} 读写抛出
+     * {@link java.nio.channels.ClosedByInterruptException}，丢掉还没写入的数据。
+     * 而是在队列末尾放入关闭标记，队列已满时等待写线程腾出位置。
+     */
+    public void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                mQueue.put(CLOSE);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        try {
+            if (mOptions.mCompactSealedSegments) {
+                compactSealedSegments();
+            }
+            while (true) {
+                final Batch batch;
+                try {
+                    batch = mQueue.take();
+                } catch (InterruptedException e) {
+                    // 只有关闭标记能让写线程退出
+                    continue;
+                }
+                if (batch == CLOSE) {
+                    break;
+                }
+                write(batch);
+            }
+            // 写完与 close() 同时加入的数据
+            Batch batch;
+            while ((batch = mQueue.poll()) != null) {
+                write(batch);
+            }
+            if (mActiveSegment != null) {
+                mActiveSegment.force();
+            }
+        } finally {
+            mDictionary.close();
+        }
+    }
+
+    private void write(@NonNull final Batch batch) {
+        try {
+            final int size = batch.mBSSIDs.length;
+            final int[] ssidIds = new int[size];
+            final int dictionarySize = mDictionary.size();
+            for (int i = 0; i < size; i++) {
+                ssidIds[i] = mDictionary.getOrAdd(batch.mSSIDs[i]);
+            }
+            if (mDictionary.size() != dictionarySize) {
+                // 记录引用的 SSID 必须先落盘
+                mDictionary.sync();
+            }
+            for (int i = 0; i < size; i++) {
+                final Segment segment = getWritableSegment();
+                // 同一段文件中的时间戳必须是递增的，系统时间被调回时沿用上一条的时间
+                final long timestamp = Math.max(batch.mTimestamp, segment.count() == 0 ? Long.MIN_VALUE : segment.lastTimestamp());
+                segment.append(timestamp, batch.mBSSIDs[i], ssidIds[i],
+                        batch.mLevels[i], batch.mFrequencies[i], batch.mFlags[i]);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "write -> 写入扫描历史失败", e);
+        }
+    }
+
+    @NonNull
+    private Segment getWritableSegment() throws IOException {
+        if (mActiveSegment != null && !mActiveSegment.isFull()) {
+            return mActiveSegment;
+        }
+        final Segment previous = mActiveSegment;
+        final long sequence;
+        synchronized (mParts) {
+            sequence = mParts.isEmpty() ? 0 : mParts.get(mParts.size() - 1).sequence() + 1;
+        }
+        final Segment segment = Segment.create(mDir, sequence, mOptions.mSegmentBytes);
+        synchronized (mParts) {
+            mParts.add(segment);
+        }
+        mActiveSegment = segment;
+        if (previous != null) {
+            previous.force();
+            if (mOptions.mCompactSealedSegments) {
+                compact(previous);
+            }
+        }
+        trimToSize();
+        return segment;
+    }
+
+    /**
+     * 压缩所有已写满的段文件，用于处理上次退出前没来得及压缩的段文件
+     */
+    private void compactSealedSegments() {
+        for (final HistoryPart part : getParts()) {
+            if (part instanceof Segment && part != mActiveSegment) {
+                compact((Segment) part);
+            }
+        }
+    }
+
+    /**
+     * 将写满的段文件压缩，并用压缩文件替换它。压缩失败时保留原段文件。
+     */
+    private void compact(@NonNull final Segment segment) {
+        final EncodedSegment encoded;
+        try {
+            encoded = EncodedSegment.open(ScanHistoryCodec.encode(segment, mDir));
+        } catch (IOException e) {
+            Log.w(TAG, "compact -> 压缩段文件失败：" + segment.file, e);
+            return;
+        }
+        synchronized (mParts) {
+            final int index = mParts.indexOf(segment);
+            if (index < 0) {
+                // 已被删除
+                deleteFile(encoded.file());
+                return;
+            }
+            mParts.set(index, encoded);
+        }
+        // 正在读取的游标仍持有原来的映射，删除文件不影响它们
+        deleteFile(segment.file);
+    }
+
+    /**
+     * 总大小超过上限时，从最旧的段文件开始删除。正在写入的段文件不会被删除。
+     */
+    private void trimToSize() {
+        final List<HistoryPart> removed = new ArrayList<>();
+        synchronized (mParts) {
+            long total = 0;
+            for (final HistoryPart part : mParts) {
+                total += part.file().length();
+            }
+            while (total > mOptions.mMaxTotalBytes && mParts.size() > 1) {
+                final HistoryPart oldest = mParts.remove(0);
+                total -= oldest.file().length();
+                removed.add(oldest);
+            }
+        }
+        for (final HistoryPart part : removed) {
+            deleteFile(part.file());
+        }
+    }
+
+    private static void deleteFile(@NonNull final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "deleteFile -> 删除文件失败：" + file);
+        }
+    }
+
+    /**
+     * 一次扫描结果的副本，在调用方线程中生成，之后只在写线程中读取
+     */
+    private static final class Batch {
+        private final long mTimestamp;
+        private final String[] mSSIDs;
+        private final long[] mBSSIDs;
+        private final int[] mLevels;
+        private final int[] mFrequencies;
+        private final int[] mFlags;
+
+        Batch(final long timestamp, @NonNull final List<Wifi> wifiList) {
+            final int size = wifiList.size();
+            mTimestamp = timestamp;
+            mSSIDs = new String[size];
+            mBSSIDs = new long[size];
+            mLevels = new int[size];
+            mFrequencies = new int[size];
+            mFlags = new int[size];
+            for (int i = 0; i < size; i++) {
+                final Wifi wifi = wifiList.get(i);
+                mSSIDs[i] = wifi.SSID;
+                mBSSIDs[i] = WifiSupport.bssidToLong(wifi.getBSSID());
+                mLevels[i] = wifi.getLevel();
+                mFrequencies[i] = wifi.getFrequency();
+                mFlags[i] = ScanRecord.flagsOf(wifi);
+            }
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Batch{timestamp=" + mTimestamp + ", BSSIDs=" + Arrays.toString(mBSSIDs) + "}";
+        }
+    }
+
+    /**
+     * 扫描历史的配置
+     */
+    public static final class Options {
+        private int mSegmentBytes = 4 * 1024 * 1024;
+        private long mMaxTotalBytes = 256L * 1024 * 1024;
+        private int mQueueCapacity = 64;
+        private boolean mCompactSealedSegments = true;
+
+        /**
+         * 单个段文件的大小，默认 4MB
+         */
+        public Options segmentBytes(final int segmentBytes) {
+            if (segmentBytes < ScanRecord.BYTES * 2) {
+                throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+            }
+            mSegmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * 所有段文件的总大小上限，默认 256MB
+         */
+        public Options maxTotalBytes(final long maxTotalBytes) {
+            mMaxTotalBytes = maxTotalBytes;
+            return this;
+        }
+
+        /**
+         * 等待写入的批次上限，超出后新的批次会被丢弃，默认 64
+         */
+        public Options queueCapacity(final int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+            }
+            mQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 是否压缩写满的段文件，默认压缩
+         *
+         * @see ScanHistoryCodec
+         */
+        public Options compactSealedSegments(final boolean compact) {
+            mCompactSealedSegments = compact;
+            return this;
+        }
+    }
+}
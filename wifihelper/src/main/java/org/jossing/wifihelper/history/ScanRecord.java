@@ -0,0 +1,196 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+
+import org.jossing.wifihelper.Wifi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 扫描历史中的一条记录：某一时刻某个 AP 的信号情况。<br/>
+ * 此类是可复用的，遍历历史时同一个实例会被反复填充，需要保留时请调用 {@link #copy()}。
+ * <p>
+ * 在段文件中，每条记录固定占用 {@link #BYTES} 个字节：
+ * <pre>
+ *  0   long    时间戳（{@link System#currentTimeMillis()}）
+ *  8   long    BSSID
+ *  16  int     SSID 在 {@link SsidDictionary} 中的编号
+ *  20  short   信号强度
+ *  22  short   频率
+ *  24  short   标志位
+ *  26  short   保留
+ *  28  int     校验值，用于识别写了一半的记录
+ * </pre>
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class ScanRecord {
+
+    public static final int BYTES = 32;
+
+    public static final int FLAG_24GHZ = 1;
+    public static final int FLAG_5GHZ = 1 << 1;
+    public static final int FLAG_SAVED = 1 << 2;
+    public static final int FLAG_CURRENT = 1 << 3;
+    public static final int FLAG_CONFIG_DISABLED = 1 << 4;
+    public static final int FLAG_NEED_PASSWORD = 1 << 5;
+
+    private long mTimestamp;
+    private long mBSSID;
+    private int mSsidId;
+    private int mLevel;
+    private int mFrequency;
+    private int mFlags;
+
+    public ScanRecord() {}
+
+    public ScanRecord(final long timestamp, final long BSSID, final int ssidId,
+                      final int level, final int frequency, final int flags) {
+        set(timestamp, BSSID, ssidId, level, frequency, flags);
+    }
+
+    void set(final long timestamp, final long BSSID, final int ssidId,
+             final int level, final int frequency, final int flags) {
+        mTimestamp = timestamp;
+        mBSSID = BSSID;
+        mSsidId = ssidId;
+        mLevel = level;
+        mFrequency = frequency;
+        mFlags = flags;
+    }
+
+    /**
+     * 由 {@link Wifi} 的状态计算标志位
+     */
+    public static int flagsOf(@NonNull final Wifi wifi) {
+        int flags = 0;
+        if (wifi.is24GHz()) {
+            flags |= FLAG_24GHZ;
+        }
+        if (wifi.is5GHz()) {
+            flags |= FLAG_5GHZ;
+        }
+        if (wifi.isSaved()) {
+            flags |= FLAG_SAVED;
+        }
+        if (wifi.isCurrent()) {
+            flags |= FLAG_CURRENT;
+        }
+        if (wifi.isConfigDisabled()) {
+            flags |= FLAG_CONFIG_DISABLED;
+        }
+        if (wifi.isNeedPassword()) {
+            flags |= FLAG_NEED_PASSWORD;
+        }
+        return flags;
+    }
+
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    /**
+     * @see org.jossing.wifihelper.WifiSupport#bssidToLong(String)
+     */
+    public long getBSSID() {
+        return mBSSID;
+    }
+
+    /**
+     * @see SsidDictionary#getSSID(int)
+     */
+    public int getSsidId() {
+        return mSsidId;
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public int getFrequency() {
+        return mFrequency;
+    }
+
+    public int getFlags() {
+        return mFlags;
+    }
+
+    public boolean hasFlag(final int flag) {
+        return (mFlags & flag) != 0;
+    }
+
+    @NonNull
+    public ScanRecord copy() {
+        return new ScanRecord(mTimestamp, mBSSID, mSsidId, mLevel, mFrequency, mFlags);
+    }
+
+    /**
+     * 将记录写入 buffer 的 position 处，不改变 buffer 的位置
+     */
+    static void write(@NonNull final ByteBuffer buffer, final int position,
+                      final long timestamp, final long BSSID, final int ssidId,
+                      final int level, final int frequency, final int flags) {
+        buffer.putLong(position, timestamp);
+        buffer.putLong(position + 8, BSSID);
+        buffer.putInt(position + 16, ssidId);
+        buffer.putShort(position + 20, (short) level);
+        buffer.putShort(position + 22, (short) frequency);
+        buffer.putShort(position + 24, (short) flags);
+        buffer.putShort(position + 26, (short) 0);
+        // 校验值最后写入，之前的字段没写完时校验一定不通过
+        buffer.putInt(position + 28, checksum(timestamp, BSSID, ssidId, level, frequency, flags));
+    }
+
+    /**
+     * 从 buffer 的 position 处读取记录，不改变 buffer 的位置
+     *
+     * @return false 该位置没有完整的记录
+     */
+    boolean read(@NonNull final ByteBuffer buffer, final int position) {
+        final long timestamp = buffer.getLong(position);
+        final long BSSID = buffer.getLong(position + 8);
+        final int ssidId = buffer.getInt(position + 16);
+        final int level = buffer.getShort(position + 20);
+        final int frequency = buffer.getShort(position + 22) & 0xFFFF;
+        final int flags = buffer.getShort(position + 24) & 0xFFFF;
+        if (buffer.getInt(position + 28) != checksum(timestamp, BSSID, ssidId, level, frequency, flags)) {
+            return false;
+        }
+        set(timestamp, BSSID, ssidId, level, frequency, flags);
+        return true;
+    }
+
+    /**
+     * 只读取时间戳，不做校验
+     */
+    static long readTimestamp(@NonNull final ByteBuffer buffer, final int position) {
+        return buffer.getLong(position);
+    }
+
+    private static int checksum(final long timestamp, final long BSSID, final int ssidId,
+                                final int level, final int frequency, final int flags) {
+        long h = timestamp * 0x9E3779B97F4A7C15L;
+        h ^= BSSID + 0x632BE59BD9B4E019L + (h << 6) + (h >>> 2);
+        h ^= ((long) ssidId << 32 | (level & 0xFFFF) << 16 | (frequency & 0xFFFF)) + (h << 6) + (h >>> 2);
+        h ^= flags + (h << 6) + (h >>> 2);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        final int result = (int) (h ^ (h >>> 32));
+        // 全零的空白位置永远不能通过校验
+        return result == 0 ? 1 : result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ScanRecord{timestamp=" + mTimestamp +
+                ", BSSID=" + Long.toHexString(mBSSID) +
+                ", ssidId=" + mSsidId +
+                ", level=" + mLevel +
+                ", frequency=" + mFrequency +
+                ", flags=0x" + Integer.toHexString(mFlags) +
+                "}";
+    }
+}
@@ -0,0 +1,260 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+/**
+ * 扫描历史的一个段文件。段文件大小固定，由一个头部和若干条定长记录组成：
+ * <pre>
+ *  int     魔数 {@link #MAGIC}
+ *  int     版本号 {@link #VERSION}
+ *  long    段的序号
+ *  ...     补齐到 {@link ScanRecord#BYTES} 字节
+ *  N 条    {@link ScanRecord}
+ * </pre>
+ * 文件通过内存映射读写。尾部的空白或写了一半的记录由校验值识别，打开时会被忽略。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class Segment implements HistoryPart {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x57534547;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = ScanRecord.BYTES;
+
+    final long sequence;
+    @NonNull
+    final File file;
+    /** 可容纳的记录条数 */
+    final int capacity;
+    @NonNull
+    private final MappedByteBuffer mBuffer;
+    /** 已写入的记录条数，写线程更新，读线程可见 */
+    private volatile int mCount;
+    private volatile long mFirstTimestamp = Long.MAX_VALUE;
+    private volatile long mLastTimestamp = Long.MIN_VALUE;
+
+    private Segment(final long sequence, @NonNull final File file, @NonNull final MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.capacity = (buffer.capacity() - HEADER_BYTES) / ScanRecord.BYTES;
+        mBuffer = buffer;
+    }
+
+    @NonNull
+    static String fileNameOf(final long sequence) {
+        return String.format(Locale.ROOT, "%016d%s", sequence, SUFFIX);
+    }
+
+    /**
+     * 由文件名解析序号，不是段文件时返回 -1
+     */
+    static long sequenceOf(@NonNull final String fileName) {
+        if (!fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 创建新的段文件
+     */
+    @NonNull
+    @WorkerThread
+    static Segment create(@NonNull final File dir, final long sequence, final int segmentBytes) throws IOException {
+        final File file = new File(dir, fileNameOf(sequence));
+        final MappedByteBuffer buffer = map(file, segmentBytes, true);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, sequence);
+        return new Segment(sequence, file, buffer);
+    }
+
+    /**
+     * 打开已有的段文件，并找到最后一条完整的记录
+     */
+    @NonNull
+    @WorkerThread
+    static Segment open(@NonNull final File file, final long sequence, final boolean writable) throws IOException {
+        final MappedByteBuffer buffer = map(file, file.length(), writable);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a segment file: " + file);
+        }
+        final Segment segment = new Segment(sequence, file, buffer);
+        segment.recover();
+        return segment;
+    }
+
+    @NonNull
+    private static MappedByteBuffer map(@NonNull final File file, final long size, final boolean writable) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, writable ? "rw" : "r");
+        try {
+            if (writable && randomAccessFile.length() < size) {
+                randomAccessFile.setLength(size);
+            }
+            return randomAccessFile.getChannel().map(
+                    writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            // 映射建立后即可关闭文件，映射依然有效
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * 从头扫描，第一条校验失败的位置就是尾部。
+     * 之后的空间会被清零，避免残留的旧数据在之后被误认为有效记录。
+     */
+    private void recover() {
+        final ScanRecord record = new ScanRecord();
+        int count = 0;
+        long previous = Long.MIN_VALUE;
+        while (count < capacity) {
+            final int position = positionOf(count);
+            if (!record.read(mBuffer, position) || record.getTimestamp() < previous) {
+                break;
+            }
+            previous = record.getTimestamp();
+            if (count == 0) {
+                mFirstTimestamp = previous;
+            }
+            count++;
+        }
+        mCount = count;
+        mLastTimestamp = previous;
+        if (!mBuffer.isReadOnly() && count < capacity) {
+            final int end = positionOf(capacity);
+            for (int position = positionOf(count); position < end; position += 8) {
+                if (mBuffer.getLong(position) != 0) {
+                    mBuffer.putLong(position, 0);
+                }
+            }
+        }
+    }
+
+    static int positionOf(final int index) {
+        return HEADER_BYTES + index * ScanRecord.BYTES;
+    }
+
+    @Override
+    public long sequence() {
+        return sequence;
+    }
+
+    @NonNull
+    @Override
+    public File file() {
+        return file;
+    }
+
+    @Override
+    public int count() {
+        return mCount;
+    }
+
+    boolean isFull() {
+        return mCount >= capacity;
+    }
+
+    @Override
+    public long firstTimestamp() {
+        return mFirstTimestamp;
+    }
+
+    @Override
+    public long lastTimestamp() {
+        return mLastTimestamp;
+    }
+
+    /**
+     * 第一条时间戳不早于 timestamp 的记录的下标。记录按时间戳递增，定长记录可以直接二分查找。
+     */
+    int lowerBound(final long timestamp) {
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (ScanRecord.readTimestamp(mBuffer, positionOf(mid)) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 遍历调用时已写入的记录，之后追加的记录不会被读到
+     */
+    @NonNull
+    @Override
+    public RecordCursor cursor() {
+        return cursor(0);
+    }
+
+    /**
+     * 从第 from 条记录开始遍历
+     */
+    @NonNull
+    RecordCursor cursor(final int from) {
+        final ByteBuffer buffer = readView();
+        final int count = mCount;
+        return new RecordCursor() {
+            private int mIndex = from;
+
+            @Override
+            public boolean next(@NonNull final ScanRecord record) {
+                // 已写入的记录不会再变化，校验失败只可能是文件被外部破坏
+                while (mIndex < count) {
+                    if (record.read(buffer, positionOf(mIndex++))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 只读的视图，供查询使用。读线程之间互不影响。
+     */
+    @NonNull
+    ByteBuffer readView() {
+        return mBuffer.duplicate();
+    }
+
+    /**
+     * 追加一条记录，只能在写线程中调用
+     */
+    void append(final long timestamp, final long BSSID, final int ssidId,
+                final int level, final int frequency, final int flags) {
+        final int index = mCount;
+        ScanRecord.write(mBuffer, positionOf(index), timestamp, BSSID, ssidId, level, frequency, flags);
+        if (index == 0) {
+            mFirstTimestamp = timestamp;
+        }
+        mLastTimestamp = timestamp;
+        mCount = index + 1;
+    }
+
+    @WorkerThread
+    void force() {
+        if (!mBuffer.isReadOnly()) {
+            mBuffer.force();
+        }
+    }
+}
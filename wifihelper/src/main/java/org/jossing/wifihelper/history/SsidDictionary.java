@@ -0,0 +1,139 @@
+package org.jossing.wifihelper.history;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 持久化的 SSID 字典，为每个 SSID 分配一个固定不变的编号。<br/>
+ * 字典文件只追加不修改，每个条目为 short 字节数 + UTF-8 字节。
+ * 打开时会忽略末尾写了一半的条目。
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public final class SsidDictionary {
+
+    public static final int NO_ID = -1;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Nullable
+    private final RandomAccessFile mFile;
+    private final List<String> mSSIDs = new ArrayList<>();
+    private final Map<String, Integer> mIds = new HashMap<>();
+
+    /**
+     * 仅存在于内存中的字典
+     */
+    public SsidDictionary() {
+        mFile = null;
+    }
+
+    @WorkerThread
+    SsidDictionary(@NonNull final File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        final long length = mFile.length();
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, length));
+        mFile.getChannel().read(buffer, 0);
+        buffer.flip();
+        long validLength = 0;
+        while (buffer.remaining() >= 2) {
+            final int size = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < size) {
+                break;
+            }
+            final byte[] bytes = new byte[size];
+            buffer.get(bytes);
+            add(new String(bytes, UTF_8));
+            validLength = buffer.position();
+        }
+        if (validLength != length) {
+            // 截掉写了一半的条目
+            mFile.setLength(validLength);
+        }
+        mFile.seek(validLength);
+    }
+
+    /**
+     * 返回 SSID 的编号，字典中没有时返回 {@link #NO_ID}
+     */
+    public synchronized int getId(@Nullable final String SSID) {
+        final Integer id = mIds.get(SSID == null ? "" : SSID);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * 返回编号对应的 SSID，编号无效时返回 null
+     */
+    @Nullable
+    public synchronized String getSSID(final int id) {
+        return id >= 0 && id < mSSIDs.size() ? mSSIDs.get(id) : null;
+    }
+
+    public synchronized int size() {
+        return mSSIDs.size();
+    }
+
+    /**
+     * 返回 SSID 的编号，字典中没有时新增一个条目，并写入字典文件
+     */
+    @WorkerThread
+    synchronized int getOrAdd(@Nullable final String SSID) throws IOException {
+        final String key = SSID == null ? "" : SSID;
+        final Integer id = mIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (mFile != null) {
+            byte[] bytes = key.getBytes(UTF_8);
+            if (bytes.length > 0xFFFF) {
+                bytes = new byte[0];
+            }
+            final ByteBuffer entry = ByteBuffer.allocate(2 + bytes.length);
+            entry.putShort((short) bytes.length).put(bytes).flip();
+            while (entry.hasRemaining()) {
+                mFile.getChannel().write(entry);
+            }
+        }
+        return add(key);
+    }
+
+    /**
+     * 将已追加的条目刷到磁盘。记录引用新的 SSID 之前需要先调用此方法。
+     */
+    @WorkerThread
+    void sync() throws IOException {
+        if (mFile != null) {
+            mFile.getChannel().force(false);
+        }
+    }
+
+    private int add(@NonNull final String SSID) {
+        final int id = mSSIDs.size();
+        mSSIDs.add(SSID);
+        mIds.put(SSID, id);
+        return id;
+    }
+
+    void close() {
+        if (mFile == null) {
+            return;
+        }
+        try {
+            mFile.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.jossing.wifihelper;
+
+import android.support.annotation.NonNull;
+
+import org.jossing.wifihelper.enumerate.Overflow;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 发布方远快于订阅者时，{@link FlowPublisher} 为每个订阅者保留的事件不超过缓冲区大小
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class FlowPublisherTest {
+
+    private static final Executor DIRECT = Runnable::run;
+    private static final int BUFFER_SIZE = 8;
+    private static final int EVENT_COUNT = 100000;
+
+    @Test
+    public void dropOldestKeepsNewestBufferSizeEvents() {
+        final WifiEventBus<Integer> bus = new WifiEventBus<>();
+        final RecordingSubscriber subscriber = subscribe(bus, Overflow.DROP_OLDEST, 1);
+        publishAll(bus);
+        // 只请求了 1 个，其余的都留在缓冲区中
+        assertEquals(Collections.singletonList(0), subscriber.mItems);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        assertEquals(1 + BUFFER_SIZE, subscriber.mItems.size());
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            assertEquals(EVENT_COUNT - BUFFER_SIZE + i, (int) subscriber.mItems.get(1 + i));
+        }
+        assertNull(subscriber.mError);
+    }
+
+    @Test
+    public void latestKeepsOneEvent() {
+        final WifiEventBus<Integer> bus = new WifiEventBus<>();
+        final RecordingSubscriber subscriber = subscribe(bus, Overflow.LATEST, 1);
+        publishAll(bus);
+        assertEquals(Collections.singletonList(0), subscriber.mItems);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        assertEquals(2, subscriber.mItems.size());
+        assertEquals(EVENT_COUNT - 1, (int) subscriber.mItems.get(1));
+        assertNull(subscriber.mError);
+    }
+
+    @Test
+    public void bufferFailsOnOverflow() {
+        final WifiEventBus<Integer> bus = new WifiEventBus<>();
+        final RecordingSubscriber subscriber = subscribe(bus, Overflow.BUFFER, 1);
+        publishAll(bus);
+        assertTrue(subscriber.mError instanceof IllegalStateException);
+        // 出错后不再挂在总线上，之后的事件不会再占用内存
+        assertFalse(bus.hasSubscribers());
+        assertEquals(Collections.singletonList(0), subscriber.mItems);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        assertEquals(1, subscriber.mItems.size());
+        assertFalse(subscriber.mCompleted);
+    }
+
+    @Test
+    public void bufferWithinCapacityDeliversEverything() {
+        final WifiEventBus<Integer> bus = new WifiEventBus<>();
+        final RecordingSubscriber subscriber = subscribe(bus, Overflow.BUFFER, 0);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            bus.publish(i);
+        }
+        bus.close();
+        assertFalse(subscriber.mCompleted);
+
+        subscriber.mSubscription.request(Long.MAX_VALUE);
+        assertEquals(BUFFER_SIZE, subscriber.mItems.size());
+        assertTrue(subscriber.mCompleted);
+        assertNull(subscriber.mError);
+    }
+
+    @Test
+    public void slowSubscriberOnSingleThreadStaysBounded() throws InterruptedException {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final WifiEventBus<Integer> bus = new WifiEventBus<>();
+            final CountDownLatch completed = new CountDownLatch(1);
+            final List<Integer> items = Collections.synchronizedList(new ArrayList<Integer>());
+            new FlowPublisher<>(bus, executor, Overflow.DROP_OLDEST, BUFFER_SIZE, event -> event, null)
+                    .subscribe(new WifiFlow.Subscriber<Integer>() {
+                        private WifiFlow.Subscription mSubscription;
+
+                        @Override
+                        public void onSubscribe(@NonNull final WifiFlow.Subscription subscription) {
+                            mSubscription = subscription;
+                            subscription.request(1);
+                        }
+
+                        @Override
+                        public void onNext(@NonNull final Integer item) {
+                            items.add(item);
+                            try {
+                                // 每个事件都要处理一段时间，远跟不上发布方
+                                Thread.sleep(1);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            mSubscription.request(1);
+                        }
+
+                        @Override
+                        public void onError(@NonNull final Throwable throwable) {
+                            completed.countDown();
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            completed.countDown();
+                        }
+                    });
+            publishAll(bus);
+            final int deliveredWhilePublishing = items.size();
+            bus.close();
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+            // 发布结束后还能收到的只有缓冲区中的事件，外加一个正在处理的
+            assertTrue(items.size() - deliveredWhilePublishing <= BUFFER_SIZE + 1);
+            assertTrue(items.size() < EVENT_COUNT);
+            assertEquals(EVENT_COUNT - 1, (int) items.get(items.size() - 1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void publishAll(final WifiEventBus<Integer> bus) {
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            bus.publish(i);
+        }
+    }
+
+    /**
+     * 在发布方线程中直接发出信号，订阅时只请求 initialRequest 个
+     */
+    private static RecordingSubscriber subscribe(final WifiEventBus<Integer> bus, final int overflow,
+                                                 final long initialRequest) {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(initialRequest);
+        new FlowPublisher<>(bus, DIRECT, overflow, BUFFER_SIZE, event -> event, null).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static final class RecordingSubscriber implements WifiFlow.Subscriber<Integer> {
+        private final long mInitialRequest;
+        private final List<Integer> mItems = new ArrayList<>();
+        private WifiFlow.Subscription mSubscription;
+        private Throwable mError;
+        private boolean mCompleted = false;
+
+        RecordingSubscriber(final long initialRequest) {
+            mInitialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(@NonNull final WifiFlow.Subscription subscription) {
+            mSubscription = subscription;
+            if (mInitialRequest > 0) {
+                subscription.request(mInitialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(@NonNull final Integer item) {
+            mItems.add(item);
+        }
+
+        @Override
+        public void onError(@NonNull final Throwable throwable) {
+            mError = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted = true;
+        }
+    }
+}
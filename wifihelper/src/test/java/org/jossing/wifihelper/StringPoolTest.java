@@ -0,0 +1,80 @@
+package org.jossing.wifihelper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link StringPool} 的驻留与 LRU 淘汰。测试中一直持有驻留的实例，不受垃圾回收影响
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class StringPoolTest {
+
+    @Test
+    public void internReturnsPooledInstance() {
+        final StringPool pool = new StringPool(4);
+        final String first = copyOf("HomeWifi");
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(copyOf("HomeWifi")));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void internNull() {
+        assertNull(new StringPool(4).intern(null));
+    }
+
+    @Test
+    public void evictsBeyondCapacity() {
+        final StringPool pool = new StringPool(2);
+        final String a = pool.intern(copyOf("a"));
+        final String b = pool.intern(copyOf("b"));
+        final String c = pool.intern(copyOf("c"));
+        assertEquals(2, pool.size());
+        // a 已被淘汰，再次驻留得到的是新的实例，只能用 equals 判断相等
+        final String another = pool.intern(copyOf("a"));
+        assertNotSame(a, another);
+        assertEquals(a, another);
+        assertSame(c, pool.intern(copyOf("c")));
+        assertNotSame(b, pool.intern(copyOf("b")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final StringPool pool = new StringPool(2);
+        final String a = pool.intern(copyOf("a"));
+        final String b = pool.intern(copyOf("b"));
+        // 访问 a 之后，最久没有用到的是 b
+        assertSame(a, pool.intern(copyOf("a")));
+        final String c = pool.intern(copyOf("c"));
+        assertSame(a, pool.intern(copyOf("a")));
+        assertSame(c, pool.intern(copyOf("c")));
+        assertNotSame(b, pool.intern(copyOf("b")));
+    }
+
+    @Test
+    public void clearDropsAllEntries() {
+        final StringPool pool = new StringPool(4);
+        final String a = pool.intern(copyOf("a"));
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertNotSame(a, pool.intern(copyOf("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCapacity() {
+        new StringPool(0);
+    }
+
+    /**
+     * 内容相同的新实例，避免字面量本身就是同一个实例
+     */
+    private static String copyOf(final String value) {
+        return new String(value.toCharArray());
+    }
+}
@@ -0,0 +1,22 @@
+package org.jossing.wifihelper;
+
+import org.jossing.wifihelper.enumerate.WifiConnection;
+
+/**
+ * 测试中共用的 Wi-Fi 构造方法
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+final class TestWifis {
+
+    private TestWifis() {
+    }
+
+    /**
+     * 未连接、未保存的开放网络，只有 SSID 和信号强度不同
+     */
+    static Wifi wifi(final String SSID, final int level) {
+        return new Wifi(SSID, null, "[ESS]", level, 2412, true, false, 0, null, null, WifiConnection.DISCONNECTED);
+    }
+}
@@ -0,0 +1,131 @@
+package org.jossing.wifihelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.jossing.wifihelper.TestWifis.wifi;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link WifiSearchIndex} 的查询结果必须与逐个比较 SSID 的结果相同，增量更新后也一样
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class WifiSearchIndexTest {
+
+    private static final String ALPHABET = "aB-1";
+    private static final int MAX_LENGTH = 4;
+
+    @Test
+    public void searchMatchesLinearScan() {
+        final WifiSearchIndex index = new WifiSearchIndex();
+        final List<String> SSIDs = allSSIDs();
+        final List<Wifi> wifiList = new ArrayList<>(SSIDs.size());
+        for (int i = 0; i < SSIDs.size(); i++) {
+            wifiList.add(wifi(SSIDs.get(i), -40 - i % 50));
+        }
+        index.update(publish(wifiList, 0));
+        assertEquals(wifiList.size(), index.size());
+        for (final String query : new String[]{"", "a", "b", "aB", "ab-", "b-1a", "a_1", "bbbbbbbbbbbb"}) {
+            assertSameWifi(linearSearch(wifiList, query, true), index.searchPrefix(query));
+            assertSameWifi(linearSearch(wifiList, query, false), index.searchSubstring(query));
+        }
+    }
+
+    @Test
+    public void incrementalUpdateMatchesRebuild() {
+        final WifiSearchIndex index = new WifiSearchIndex();
+        final List<String> SSIDs = allSSIDs();
+        for (int round = 0; round < 20; round++) {
+            // 每轮换一批 SSID，相邻两轮既有留下的，也有移除和新加入的，信号强度也都变了
+            final List<Wifi> wifiList = new ArrayList<>();
+            for (int i = 0; i < SSIDs.size(); i++) {
+                if ((i * 7 + round * 3) % 5 < 3) {
+                    wifiList.add(wifi(SSIDs.get(i), -40 - (i + round * 11) % 50));
+                }
+            }
+            index.update(publish(wifiList, 0));
+            assertEquals(wifiList.size(), index.size());
+            for (final String query : new String[]{"a", "aB", "b1", "a-b", "1-a"}) {
+                assertSameWifi(linearSearch(wifiList, query, true), index.searchPrefix(query));
+                assertSameWifi(linearSearch(wifiList, query, false), index.searchSubstring(query));
+            }
+        }
+    }
+
+    @Test
+    public void resultsFollowSortKeyWhenPartiallyOrdered() {
+        final WifiSearchIndex index = new WifiSearchIndex();
+        final Wifi weak = wifi("cafe-weak", -90);
+        final Wifi strong = wifi("cafe-strong", -40);
+        index.update(publish(Arrays.asList(weak, strong), 0));
+        assertEquals(Arrays.asList(strong, weak), index.searchSubstring("cafe"));
+    }
+
+    @Test
+    public void resultsFollowPublishedOrderWhenFullyOrdered() {
+        // 自定义的排序环节已经排好全部 Wi-Fi，查询结果保持发布时的顺序，不再按排序键重排
+        final WifiSearchIndex index = new WifiSearchIndex();
+        final Wifi weak = wifi("cafe-weak", -90);
+        final Wifi strong = wifi("cafe-strong", -40);
+        final Wifi other = wifi("home", -30);
+        final List<Wifi> wifiList = Arrays.asList(weak, other, strong);
+        index.update(publish(wifiList, wifiList.size()));
+        assertEquals(Arrays.asList(weak, strong), index.searchSubstring("cafe"));
+        assertEquals(Arrays.asList(weak, strong), index.searchPrefix("CAFE"));
+    }
+
+    private static PublishedWifiList publish(final List<Wifi> wifiList, final int orderedCount) {
+        return new PublishedWifiList(wifiList, orderedCount, new ArrayList<Wifi>(), 0, false);
+    }
+
+    /**
+     * 由 ALPHABET 组成、长度不超过 MAX_LENGTH 的全部 SSID。字符集很小，有大量共同的前缀和子串
+     */
+    private static List<String> allSSIDs() {
+        final List<String> SSIDs = new ArrayList<>();
+        List<String> previous = Collections.singletonList("");
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            final List<String> current = new ArrayList<>();
+            for (final String prefix : previous) {
+                for (int i = 0; i < ALPHABET.length(); i++) {
+                    current.add(prefix + ALPHABET.charAt(i));
+                }
+            }
+            SSIDs.addAll(current);
+            previous = current;
+        }
+        return SSIDs;
+    }
+
+    private static List<Wifi> linearSearch(final List<Wifi> wifiList, final String query, final boolean prefix) {
+        final String lowerQuery = query.toLowerCase(Locale.ROOT);
+        final List<Wifi> result = new ArrayList<>();
+        for (final Wifi wifi : wifiList) {
+            final String lowerSSID = wifi.SSID.toLowerCase(Locale.ROOT);
+            if (prefix ? lowerSSID.startsWith(lowerQuery) : lowerSSID.contains(lowerQuery)) {
+                result.add(wifi);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * 排序键相同的 Wi-Fi 先后顺序不确定，只比较集合和每个位置上的排序键
+     */
+    private static void assertSameWifi(final List<Wifi> expected, final List<Wifi> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        for (int i = 0; i < actual.size(); i++) {
+            assertEquals(expected.get(i).getSortKey(), actual.get(i).getSortKey());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jossing.wifihelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jossing.wifihelper.TestWifis.wifi;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link WifiSorter} 的结果必须与 {@link Collections#sort(List)} 一致，包括相同排序键时的先后顺序
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class WifiSorterTest {
+
+    @Test
+    public void sortMatchesCollectionsSort() {
+        for (final int size : new int[]{0, 1, 2, 17, 500}) {
+            final List<Wifi> wifiList = wifiList(size);
+            final List<Wifi> expected = new ArrayList<>(wifiList);
+            Collections.sort(expected);
+            WifiSorter.sort(wifiList);
+            assertSameOrder(expected, wifiList, size);
+        }
+    }
+
+    @Test
+    public void sortTopKMatchesCollectionsSortPrefix() {
+        final int size = 500;
+        for (final int topK : new int[]{1, 2, 10, 100, 499, 500, 1000}) {
+            final List<Wifi> wifiList = wifiList(size);
+            final List<Wifi> expected = new ArrayList<>(wifiList);
+            Collections.sort(expected);
+            WifiSorter.sortTopK(wifiList, topK);
+            assertEquals(size, wifiList.size());
+            assertSameOrder(expected, wifiList, Math.min(topK, size));
+        }
+    }
+
+    @Test
+    public void sortTopKKeepsRestInOriginalOrder() {
+        final List<Wifi> wifiList = wifiList(200);
+        final List<Wifi> origin = new ArrayList<>(wifiList);
+        final int topK = 20;
+        WifiSorter.sortTopK(wifiList, topK);
+        final List<Wifi> rest = new ArrayList<>(origin);
+        rest.removeAll(wifiList.subList(0, topK));
+        assertSameOrder(rest, wifiList.subList(topK, wifiList.size()), rest.size());
+    }
+
+    @Test
+    public void sortTopKWithNonPositiveKeepsOrder() {
+        final List<Wifi> wifiList = wifiList(50);
+        final List<Wifi> origin = new ArrayList<>(wifiList);
+        WifiSorter.sortTopK(wifiList, 0);
+        assertSameOrder(origin, wifiList, origin.size());
+    }
+
+    /**
+     * 信号强度在 8 个值之间跳着取，既不是原本就有序的，又有大量相同的排序键
+     */
+    private static List<Wifi> wifiList(final int size) {
+        final List<Wifi> wifiList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wifiList.add(wifi("wifi-" + i, -90 + (i * 5 % 8) * 5));
+        }
+        return wifiList;
+    }
+
+    private static void assertSameOrder(final List<Wifi> expected, final List<Wifi> actual, final int count) {
+        for (int i = 0; i < count; i++) {
+            assertSame("index " + i, expected.get(i), actual.get(i));
+        }
+    }
+}
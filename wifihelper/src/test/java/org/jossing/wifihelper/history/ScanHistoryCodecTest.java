@@ -0,0 +1,133 @@
+package org.jossing.wifihelper.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 段文件压缩后再解码，得到的记录与原来逐条相同
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class ScanHistoryCodecTest {
+
+    private static final long SEQUENCE = 42;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripAcrossBlocks() throws IOException {
+        // 超过一块的记录数，最后一块不满
+        final List<ScanRecord> records = scanRecords(ScanHistoryCodec.BLOCK_RECORDS * 2 + 123, 37);
+        final EncodedSegment encoded = encode(records);
+        assertEquals(SEQUENCE, encoded.sequence());
+        assertEquals(records.size(), encoded.count());
+        assertEquals(3, encoded.blockCount());
+        assertEquals(records.get(0).getTimestamp(), encoded.firstTimestamp());
+        assertEquals(records.get(records.size() - 1).getTimestamp(), encoded.lastTimestamp());
+        assertRecords(records, encoded.cursor());
+    }
+
+    @Test
+    public void roundTripExtremeValues() throws IOException {
+        final List<ScanRecord> records = new ArrayList<>();
+        records.add(new ScanRecord(0, 0, 0, 0, 0, 0));
+        records.add(new ScanRecord(0, 0xFFFFFFFFFFFFL, Integer.MAX_VALUE, -127, 0xFFFF, 0xFFFF));
+        records.add(new ScanRecord(Long.MAX_VALUE / 2, 0, 0, 127, 0, 0));
+        records.add(new ScanRecord(Long.MAX_VALUE / 2, 0xFFFFFFFFFFFFL, 0, -127, 5825, 0));
+        assertRecords(records, encode(records).cursor());
+    }
+
+    @Test
+    public void roundTripEmpty() throws IOException {
+        final EncodedSegment encoded = encode(new ArrayList<ScanRecord>());
+        assertEquals(0, encoded.count());
+        assertEquals(0, encoded.blockCount());
+        assertFalse(encoded.cursor().next(new ScanRecord()));
+    }
+
+    @Test
+    public void zigzag() {
+        for (final int value : new int[]{0, 1, -1, 63, -64, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            assertEquals(value, ScanHistoryCodec.unzigzag(ScanHistoryCodec.zigzag(value)));
+        }
+        for (final long value : new long[]{0, 1, -1, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(value, ScanHistoryCodec.unzigzag(ScanHistoryCodec.zigzag(value)));
+        }
+        // 绝对值小的负数编码后也很小，varint 只占一个字节
+        assertEquals(1, ScanHistoryCodec.zigzag(-1));
+        assertEquals(2, ScanHistoryCodec.zigzag(1));
+    }
+
+    @Test
+    public void readVarInt() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{
+                0x00,
+                0x7F,
+                (byte) 0x80, 0x01,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        assertEquals(0, ScanHistoryCodec.readVarInt(buffer));
+        assertEquals(127, ScanHistoryCodec.readVarInt(buffer));
+        assertEquals(128, ScanHistoryCodec.readVarInt(buffer));
+        assertEquals(-1, ScanHistoryCodec.readVarInt(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * 模拟连续扫描：若干 AP 交错出现，信号强度小幅波动，每隔一段时间换 SSID、频率或标志位，每 4 条有 1 条时间戳不变
+     */
+    private static List<ScanRecord> scanRecords(final int count, final int apCount) {
+        final List<ScanRecord> records = new ArrayList<>(count);
+        long timestamp = 1540000000000L;
+        for (int i = 0; i < count; i++) {
+            final int ap = i * 7 % apCount;
+            timestamp += i % 4 == 0 ? 0 : i * 131 % 5000;
+            final int level = -40 - (ap * 13 + i % 7) % 60;
+            final int ssidId = (ap + i / 500) % 100;
+            final int frequency = (ap + i / 700) % 2 == 0 ? 2412 + 5 * (ap % 13) : 5180 + 20 * (ap % 8);
+            final int flags = (ap * 3 + i / 900) % 64;
+            records.add(new ScanRecord(timestamp, 0x00AABB000000L + ap, ssidId, level, frequency, flags));
+        }
+        return records;
+    }
+
+    private EncodedSegment encode(final List<ScanRecord> records) throws IOException {
+        final File dir = mFolder.newFolder();
+        final int segmentBytes = Segment.positionOf(Math.max(1, records.size()));
+        final Segment segment = Segment.create(dir, SEQUENCE, segmentBytes);
+        for (final ScanRecord record : records) {
+            segment.append(record.getTimestamp(), record.getBSSID(), record.getSsidId(),
+                    record.getLevel(), record.getFrequency(), record.getFlags());
+        }
+        final File file = ScanHistoryCodec.encode(segment, dir);
+        assertEquals(ScanHistoryCodec.fileNameOf(SEQUENCE), file.getName());
+        return EncodedSegment.open(file);
+    }
+
+    private static void assertRecords(final List<ScanRecord> expected, final RecordCursor cursor) {
+        final ScanRecord record = new ScanRecord();
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue("missing record " + i, cursor.next(record));
+            final ScanRecord wanted = expected.get(i);
+            assertEquals("timestamp " + i, wanted.getTimestamp(), record.getTimestamp());
+            assertEquals("BSSID " + i, wanted.getBSSID(), record.getBSSID());
+            assertEquals("ssidId " + i, wanted.getSsidId(), record.getSsidId());
+            assertEquals("level " + i, wanted.getLevel(), record.getLevel());
+            assertEquals("frequency " + i, wanted.getFrequency(), record.getFrequency());
+            assertEquals("flags " + i, wanted.getFlags(), record.getFlags());
+        }
+        assertFalse(cursor.next(record));
+    }
+}
@@ -0,0 +1,124 @@
+package org.jossing.wifihelper.history;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 段文件重新打开时，尾部写了一半的记录被忽略并清零
+ *
+ * @author jossing
+ * @date 2026/10/19
+ */
+public class SegmentTest {
+
+    private static final long SEQUENCE = 7;
+    private static final int CAPACITY = 10;
+    private static final long BSSID = 0x001122334455L;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void recoverIgnoresTornTail() throws IOException {
+        final File file = writeSegment(3);
+        // 模拟第 4 条记录只写了时间戳和 BSSID，校验值还没写入时进程被杀
+        final int tornPosition = Segment.positionOf(3);
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(tornPosition);
+            randomAccessFile.writeLong(4000);
+            randomAccessFile.writeLong(BSSID);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        final Segment segment = Segment.open(file, SEQUENCE, true);
+        assertEquals(3, segment.count());
+        assertEquals(1000, segment.firstTimestamp());
+        assertEquals(3000, segment.lastTimestamp());
+        assertRecords(segment, 3);
+        // 残留的半条记录已被清零，之后追加的记录不会与它混在一起
+        assertEquals(0, segment.readView().getLong(tornPosition));
+        assertEquals(0, segment.readView().getLong(tornPosition + 8));
+
+        segment.append(4000, BSSID, 4, -54, 2412, 0);
+        segment.force();
+        final Segment reopened = Segment.open(file, SEQUENCE, false);
+        assertEquals(4, reopened.count());
+        assertEquals(4000, reopened.lastTimestamp());
+        assertRecords(reopened, 4);
+    }
+
+    @Test
+    public void recoverStopsAtTimestampGoingBackwards() throws IOException {
+        final File file = writeSegment(3);
+        // 校验值正确但时间戳倒退的记录不可能是按顺序写入的，视为残留的旧数据
+        final Segment segment = Segment.open(file, SEQUENCE, true);
+        segment.append(500, BSSID, 4, -54, 2412, 0);
+        segment.force();
+
+        final Segment reopened = Segment.open(file, SEQUENCE, false);
+        assertEquals(3, reopened.count());
+        assertEquals(3000, reopened.lastTimestamp());
+    }
+
+    @Test
+    public void recoverEmptySegment() throws IOException {
+        final Segment segment = Segment.open(writeSegment(0), SEQUENCE, false);
+        assertEquals(0, segment.count());
+        assertFalse(segment.cursor().next(new ScanRecord()));
+    }
+
+    @Test
+    public void recoverFullSegment() throws IOException {
+        final Segment segment = Segment.open(writeSegment(CAPACITY), SEQUENCE, false);
+        assertEquals(CAPACITY, segment.count());
+        assertTrue(segment.isFull());
+        assertRecords(segment, CAPACITY);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsOtherFiles() throws IOException {
+        final File file = mFolder.newFile("other.seg");
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(Segment.positionOf(CAPACITY));
+        } finally {
+            randomAccessFile.close();
+        }
+        Segment.open(file, SEQUENCE, false);
+    }
+
+    /**
+     * 写入 count 条记录，第 i 条的时间戳是 (i + 1) * 1000
+     */
+    private File writeSegment(final int count) throws IOException {
+        final Segment segment = Segment.create(mFolder.getRoot(), SEQUENCE, Segment.positionOf(CAPACITY));
+        for (int i = 0; i < count; i++) {
+            segment.append((i + 1) * 1000L, BSSID, i + 1, -50 - i, 2412, 0);
+        }
+        segment.force();
+        return segment.file();
+    }
+
+    private static void assertRecords(final Segment segment, final int count) {
+        final RecordCursor cursor = segment.cursor();
+        final ScanRecord record = new ScanRecord();
+        for (int i = 0; i < count; i++) {
+            assertTrue(cursor.next(record));
+            assertEquals((i + 1) * 1000L, record.getTimestamp());
+            assertEquals(BSSID, record.getBSSID());
+            assertEquals(i + 1, record.getSsidId());
+        }
+        assertFalse(cursor.next(record));
+    }
+}